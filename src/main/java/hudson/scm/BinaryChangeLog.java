@@ -0,0 +1,335 @@
+package hudson.scm;
+
+import hudson.model.User;
+import hudson.scm.SubversionChangeLogParser.RawEntry;
+import hudson.scm.SubversionChangeLogSet.LogEntry;
+import hudson.scm.SubversionChangeLogSet.Path;
+import hudson.util.IOException2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOError;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Compact form of a <tt>changelog.xml</tt>, kept next to it, from which {@link SubversionChangeLogSet} loads only
+ * the entries that are looked at, and {@link LogEntry} only the paths that are looked at.
+ * <p/>
+ * The file holds the entries of the change log set, without duplicates and most recent first, as length-prefixed
+ * records. They are followed by a table of the authors and paths the records refer to, by an index of the revision
+ * and offset of each record, and by a trailer that locates the table and the index.
+ * <p/>
+ * The XML stays, for export and for Hudson versions that don't know about this file.
+ */
+final class BinaryChangeLog {
+
+    private final File file;
+    private final int[] revisions;
+    private final long[] offsets;
+    private final long tableOffset;
+    private final long indexOffset;
+    private final LogEntry[] entries;
+
+    /**
+     * Loaded with the first entry.
+     */
+    private String[] strings;
+    private User[] users;
+
+    private BinaryChangeLog(File file, int[] revisions, long[] offsets, long tableOffset,
+                            long indexOffset) {
+        this.file = file;
+        this.revisions = revisions;
+        this.offsets = offsets;
+        this.tableOffset = tableOffset;
+        this.indexOffset = indexOffset;
+        this.entries = new LogEntry[revisions.length];
+    }
+
+    /**
+     * Gets the file kept next to the given change log.
+     */
+    static File getFile(File changelogFile) {
+        return new File(changelogFile.getParentFile(), "svn-changelog.bin");
+    }
+
+    /**
+     * Reads the trailer and the index of the file. The entries are read when first asked for.
+     */
+    static BinaryChangeLog open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            if (raf.length() < TRAILER_SIZE) {
+                throw new IOException(file + " is truncated");
+            }
+            raf.seek(raf.length() - TRAILER_SIZE);
+            long tableOffset = raf.readLong();
+            long indexOffset = raf.readLong();
+            int count = raf.readInt();
+            int version = raf.readInt();
+            if (raf.readInt() != MAGIC || version != VERSION) {
+                throw new IOException(file + " is not a change log of a known version");
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                readFully(raf, indexOffset, raf.length() - TRAILER_SIZE)));
+            int[] revisions = new int[count];
+            long[] offsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                revisions[i] = in.readInt();
+                offsets[i] = in.readLong();
+            }
+            return new BinaryChangeLog(file, revisions, offsets, tableOffset, indexOffset);
+        } finally {
+            raf.close();
+        }
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Gets the revision of an entry without loading it.
+     */
+    public int getRevision(int index) {
+        return revisions[index];
+    }
+
+    /**
+     * Gets an entry, loading it and the few entries after it if it wasn't already.
+     *
+     * @throws IOError if the file can't be read any more.
+     */
+    public synchronized LogEntry get(int index) {
+        if (entries[index] == null) {
+            try {
+                load(index, Math.min(index + CHUNK, entries.length));
+            } catch (IOException e) {
+                throw new IOError(new IOException2("Failed to read " + file, e));
+            }
+        }
+        return entries[index];
+    }
+
+    private void load(int from, int to) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            if (strings == null) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                    readFully(raf, tableOffset, indexOffset)));
+                String[] table = new String[in.readInt()];
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = readString(in);
+                }
+                strings = table;
+                users = new User[table.length];
+            }
+            long end = to < offsets.length ? offsets[to] : tableOffset;
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(readFully(raf, offsets[from], end)));
+            for (int i = from; i < to; i++) {
+                int length = in.readInt();
+                if (entries[i] != null) {
+                    in.skipBytes(length);
+                    continue;
+                }
+                LogEntry entry = new LogEntry();
+                entry.setRevision(in.readInt());
+                int author = in.readInt();
+                if (author >= 0) {
+                    if (users[author] == null) {
+                        users[author] = User.get(strings[author]);
+                    }
+                    entry.setAuthor(users[author]);
+                }
+                entry.setDate(readString(in));
+                entry.setMsg(readString(in));
+                byte[] paths = new byte[in.readInt() * PATH_SIZE];
+                in.readFully(paths);
+                entry.setPackedPaths(new PackedPaths(paths, strings));
+                entries[i] = entry;
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static byte[] readFully(RandomAccessFile raf, long from, long to) throws IOException {
+        byte[] buf = new byte[(int) (to - from)];
+        raf.seek(from);
+        raf.readFully(buf);
+        return buf;
+    }
+
+    /**
+     * The paths of an entry, until {@link LogEntry#getPaths()} is first called.
+     */
+    static final class PackedPaths {
+        private final byte[] data;
+        private final String[] strings;
+
+        PackedPaths(byte[] data, String[] strings) {
+            this.data = data;
+            this.strings = strings;
+        }
+
+        void unpack(LogEntry entry) {
+            for (int i = 0; i < data.length; i += PATH_SIZE) {
+                Path path = new Path();
+                char action = (char) (data[i] & 0xff);
+                if (action != 0) {
+                    path.setAction(String.valueOf(action));
+                }
+                path.setValue(strings[(data[i + 1] & 0xff) << 24 | (data[i + 2] & 0xff) << 16
+                    | (data[i + 3] & 0xff) << 8 | data[i + 4] & 0xff]);
+                entry.addPath(path);
+            }
+        }
+    }
+
+    /**
+     * Writes the file for the given change log.
+     */
+    static void write(File changelogFile) throws IOException {
+        List<RawEntry> raw;
+        InputStream xml = new BufferedInputStream(new FileInputStream(changelogFile));
+        try {
+            raw = SubversionChangeLogParser.read(xml);
+        } catch (XMLStreamException e) {
+            throw new IOException2("Failed to parse " + changelogFile, e);
+        } catch (NumberFormatException e) {
+            throw new IOException2("Failed to parse " + changelogFile, e);
+        } finally {
+            xml.close();
+        }
+
+        // same as SubversionChangeLogSet.prepareChangeLogEntries
+        Map<String, RawEntry> unique = new LinkedHashMap<String, RawEntry>();
+        for (RawEntry e : raw) {
+            String key = e.revision + "\n" + e.author + "\n" + e.date + "\n" + e.msg;
+            if (!unique.containsKey(key)) {
+                unique.put(key, e);
+            }
+        }
+        List<RawEntry> sorted = new ArrayList<RawEntry>(unique.values());
+        Collections.sort(sorted, new Comparator<RawEntry>() {
+            public int compare(RawEntry a, RawEntry b) {
+                return b.revision - a.revision;
+            }
+        });
+
+        File target = getFile(changelogFile);
+        File tmp = new File(target.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            Map<String, Integer> index = new HashMap<String, Integer>();
+            List<String> table = new ArrayList<String>();
+            long[] offsets = new long[sorted.size()];
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(buf);
+            for (int i = 0; i < sorted.size(); i++) {
+                RawEntry e = sorted.get(i);
+                buf.reset();
+                record.writeInt(e.revision);
+                record.writeInt(e.author != null ? intern(e.author, index, table) : -1);
+                writeString(record, e.date);
+                writeString(record, e.msg);
+                record.writeInt(e.paths.size());
+                for (int j = 0; j < e.paths.size(); j++) {
+                    record.writeByte(e.actions.charAt(j));
+                    record.writeInt(intern(e.paths.get(j), index, table));
+                }
+                offsets[i] = out.size();
+                out.writeInt(buf.size());
+                buf.writeTo(out);
+            }
+
+            long tableOffset = out.size();
+            out.writeInt(table.size());
+            for (String s : table) {
+                writeString(out, s);
+            }
+
+            long indexOffset = out.size();
+            for (int i = 0; i < sorted.size(); i++) {
+                out.writeInt(sorted.get(i).revision);
+                out.writeLong(offsets[i]);
+            }
+
+            out.writeLong(tableOffset);
+            out.writeLong(indexOffset);
+            out.writeInt(sorted.size());
+            out.writeInt(VERSION);
+            out.writeInt(MAGIC);
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(target)) {
+            target.delete();
+            if (!tmp.renameTo(target)) {
+                tmp.delete();
+                throw new IOException("Failed to rename " + tmp + " to " + target);
+            }
+        }
+    }
+
+    private static int intern(String s, Map<String, Integer> index, List<String> table) {
+        Integer i = index.get(s);
+        if (i == null) {
+            index.put(s, i = table.size());
+            table.add(s);
+        }
+        return i;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /**
+     * How many entries are loaded at once.
+     */
+    private static final int CHUNK = 16;
+
+    /**
+     * The action byte and the table index of a path.
+     */
+    private static final int PATH_SIZE = 5;
+
+    private static final int TRAILER_SIZE = 8 + 8 + 4 + 4 + 4;
+    private static final int VERSION = 1;
+    private static final int MAGIC = 0x53564e4c;
+}
@@ -0,0 +1,216 @@
+package hudson.scm;
+
+import hudson.model.Api;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Post-commit notifications accepted by {@link SubversionRepositoryStatus} but not processed yet.
+ * <p/>
+ * Notifications for the same repository that arrive within {@link #WINDOW} milliseconds of each other are
+ * merged, so that each affected job is triggered once, with the highest revision reported. At most
+ * {@link #MAX_QUEUED} notifications are held; the ones beyond that are refused.
+ * <p/>
+ * Disabled unless {@link #WINDOW} is set to a positive value. Otherwise notifications are processed
+ * before the HTTP request returns, as they have always been.
+ */
+@ExportedBean
+public final class CommitNotificationQueue {
+
+    private static final CommitNotificationQueue INSTANCE = new CommitNotificationQueue();
+
+    /**
+     * Merged notifications per repository.
+     */
+    private final Map<UUID, Pending> pending = new HashMap<UUID, Pending>();
+
+    /**
+     * Number of notifications in {@link #pending}.
+     */
+    private int depth;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+        new ExceptionCatchingThreadFactory(new DaemonThreadFactory()));
+
+    /**
+     * Processes the notifications for one repository.
+     */
+    /*package*/ interface Processor {
+        /**
+         * @param firstRev the lowest revision reported, or -1 if any of the notifications didn't have one.
+         * @param rev the highest revision reported, or -1 if any of the notifications didn't have one.
+         */
+        void process(UUID uuid, Set<String> affectedPaths, long firstRev, long rev);
+    }
+
+    private final Processor processor;
+
+    /*package*/ CommitNotificationQueue(Processor processor) {
+        this.processor = processor;
+    }
+
+    private CommitNotificationQueue() {
+        this(new Processor() {
+            public void process(UUID uuid, Set<String> affectedPaths, long firstRev, long rev) {
+                SubversionRepositoryStatus.scheduleAffectedJobs(uuid, affectedPaths, firstRev, rev);
+            }
+        });
+    }
+
+    public static CommitNotificationQueue get() {
+        return INSTANCE;
+    }
+
+    public static boolean isEnabled() {
+        return WINDOW > 0;
+    }
+
+    /**
+     * Notifications merged for a repository.
+     */
+    private static final class Pending {
+        final Set<String> paths = new HashSet<String>();
+        long firstRev, rev;
+        int count;
+
+        Pending(long rev) {
+            this.firstRev = this.rev = rev;
+        }
+
+        void add(Collection<String> affectedPaths, long rev) {
+            paths.addAll(affectedPaths);
+            // -1 means the revision isn't known, so polling needs to look at the head
+            this.rev = this.rev == -1 || rev == -1 ? -1 : Math.max(this.rev, rev);
+            this.firstRev = this.firstRev == -1 || rev == -1 ? -1 : Math.min(this.firstRev, rev);
+            count++;
+        }
+    }
+
+    /**
+     * Queues a notification.
+     *
+     * @param rev the committed revision, or -1 if unknown.
+     * @return false if the queue is full and the notification was dropped.
+     */
+    public boolean offer(final UUID uuid, Collection<String> affectedPaths, long rev) {
+        synchronized (this) {
+            if (depth >= MAX_QUEUED) {
+                overflows.incrementAndGet();
+                return false;
+            }
+            depth++;
+            accepted.incrementAndGet();
+            Pending p = pending.get(uuid);
+            if (p != null) {
+                p.add(affectedPaths, rev);
+                coalesced.incrementAndGet();
+                return true;
+            }
+            p = new Pending(rev);
+            p.add(affectedPaths, rev);
+            pending.put(uuid, p);
+        }
+        executor.schedule(new Runnable() {
+            public void run() {
+                drain(uuid);
+            }
+        }, WINDOW, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /*package*/ void drain(UUID uuid) {
+        Pending p;
+        synchronized (this) {
+            p = pending.remove(uuid);
+            if (p == null) {
+                return;
+            }
+            depth -= p.count;
+        }
+        try {
+            processor.process(uuid, p.paths, p.firstRev, p.rev);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Failed to handle Subversion commit notification for " + uuid, e);
+        }
+    }
+
+    /**
+     * Number of notifications waiting to be processed.
+     */
+    @Exported
+    public synchronized int getQueueDepth() {
+        return depth;
+    }
+
+    /**
+     * Number of notifications accepted into the queue.
+     */
+    @Exported
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    /**
+     * Number of notifications merged into another one for the same repository.
+     */
+    @Exported
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Number of notifications refused because the queue was full.
+     */
+    @Exported
+    public long getOverflowCount() {
+        return overflows.get();
+    }
+
+    /**
+     * Number of merged notifications whose processing failed.
+     */
+    @Exported
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(CommitNotificationQueue.class.getName());
+
+    /**
+     * How long, in milliseconds, notifications for a repository are collected before being processed together.
+     * 0 or less processes notifications synchronously, which is the default.
+     */
+    public static int WINDOW = Integer.getInteger(CommitNotificationQueue.class.getName() + ".window", 0).intValue();
+
+    /**
+     * Maximum number of notifications waiting to be processed.
+     */
+    public static int MAX_QUEUED = Integer.getInteger(CommitNotificationQueue.class.getName() + ".maxQueued", 1000)
+        .intValue();
+}
@@ -0,0 +1,185 @@
+package hudson.scm;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches repository paths against the included or excluded regions of {@link SubversionSCM}.
+ * <p/>
+ * Region rules are regular expressions, but most of them are in practice plain paths, or plain paths
+ * followed by ".*". Those are checked with a hash lookup and a binary search instead of a regex match,
+ * and the remaining rules are combined into a single regular expression. Once compiled, matching a path
+ * doesn't allocate anything.
+ * <p/>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class PathRegionMatcher implements Serializable {
+
+    /**
+     * Rules without any regex construct.
+     */
+    private final Set<String> literals = new HashSet<String>();
+
+    /**
+     * Literal parts of the rules of the form "literal.*", sorted. None of them is a prefix of another.
+     */
+    private final String[] prefixes;
+
+    /**
+     * All the other rules, in a single pattern. Null if there are none.
+     */
+    private final Pattern combined;
+
+    /**
+     * Rules that can't be combined with the others, because they refer to their own groups.
+     */
+    private final Pattern[] separate;
+
+    private transient ThreadLocal<Matcher[]> matchers;
+
+    /**
+     * @param regions the region rules, as regular expressions. Null means no rule.
+     * @throws java.util.regex.PatternSyntaxException if a rule isn't a valid regular expression.
+     */
+    public PathRegionMatcher(String[] regions) {
+        TreeSet<String> prefixSet = new TreeSet<String>();
+        StringBuilder combinedRegex = new StringBuilder();
+        List<Pattern> separateList = new ArrayList<Pattern>();
+
+        if (regions != null) {
+            for (String region : regions) {
+                Pattern pattern = Pattern.compile(region); // fail on invalid rules, as before
+                String literal = toLiteral(region);
+                if (literal != null) {
+                    literals.add(literal);
+                    continue;
+                }
+                if (region.endsWith(".*")) {
+                    literal = toLiteral(region.substring(0, region.length() - 2));
+                    if (literal != null) {
+                        prefixSet.add(literal);
+                        continue;
+                    }
+                }
+                if (hasBackReference(region)) {
+                    separateList.add(pattern);
+                    continue;
+                }
+                if (combinedRegex.length() > 0) {
+                    combinedRegex.append('|');
+                }
+                combinedRegex.append("(?:").append(region).append(')');
+            }
+        }
+
+        // drop the prefixes made redundant by a shorter one, so that a single candidate needs to be checked
+        List<String> minimal = new ArrayList<String>();
+        for (String prefix : prefixSet) {
+            if (minimal.isEmpty() || !prefix.startsWith(minimal.get(minimal.size() - 1))) {
+                minimal.add(prefix);
+            }
+        }
+        prefixes = minimal.toArray(new String[minimal.size()]);
+        combined = combinedRegex.length() > 0 ? Pattern.compile(combinedRegex.toString()) : null;
+        separate = separateList.toArray(new Pattern[separateList.size()]);
+        initMatchers();
+    }
+
+    private void initMatchers() {
+        matchers = new ThreadLocal<Matcher[]>() {
+            @Override
+            protected Matcher[] initialValue() {
+                Matcher[] m = new Matcher[separate.length + 1];
+                if (combined != null) {
+                    m[0] = combined.matcher("");
+                }
+                for (int i = 0; i < separate.length; i++) {
+                    m[i + 1] = separate[i].matcher("");
+                }
+                return m;
+            }
+        };
+    }
+
+    private Object readResolve() {
+        initMatchers();
+        return this;
+    }
+
+    /**
+     * True if there's no rule at all.
+     */
+    public boolean isEmpty() {
+        return literals.isEmpty() && prefixes.length == 0 && combined == null && separate.length == 0;
+    }
+
+    /**
+     * Does the path match any of the rules, in the sense of {@link Matcher#matches()}?
+     */
+    public boolean matches(String path) {
+        if (literals.contains(path)) {
+            return true;
+        }
+        if (prefixes.length > 0) {
+            // the only prefix that can match is the greatest one not greater than the path
+            int i = Arrays.binarySearch(prefixes, path);
+            if (i >= 0 || (i = -i - 2) >= 0 && path.startsWith(prefixes[i])) {
+                return true;
+            }
+        }
+        if (combined == null && separate.length == 0) {
+            return false;
+        }
+        Matcher[] m = matchers.get();
+        for (Matcher matcher : m) {
+            if (matcher != null && matcher.reset(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the string matched by the given regular expression if it only matches that string, or null.
+     */
+    /*package*/ static String toLiteral(String regex) {
+        StringBuilder buf = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (++i == regex.length()) {
+                    return null;
+                }
+                c = regex.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    return null; // \d, \Q, \1, ...
+                }
+            } else if (".^$|?*+()[]{}".indexOf(c) >= 0) {
+                return null;
+            }
+            buf.append(c);
+        }
+        return buf.toString();
+    }
+
+    private static boolean hasBackReference(String regex) {
+        for (int i = 0; i < regex.length() - 1; i++) {
+            if (regex.charAt(i) == '\\') {
+                char c = regex.charAt(++i);
+                if (Character.isDigit(c) || c == 'k') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
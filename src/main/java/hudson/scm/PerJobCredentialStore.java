@@ -5,11 +5,13 @@ import hudson.Extension;
 import hudson.ExtensionList;
 import hudson.XmlFile;
 import hudson.matrix.MatrixConfiguration;
+import hudson.model.Item;
 import hudson.model.ItemGroup;
 import hudson.model.Saveable;
 import hudson.model.AbstractProject;
 import hudson.model.Hudson;
 import hudson.model.Job;
+import hudson.model.listeners.ItemListener;
 import hudson.model.listeners.SaveableListener;
 import hudson.remoting.Channel;
 import hudson.scm.SubversionSCM.DescriptorImpl.Credential;
@@ -19,7 +21,9 @@ import hudson.scm.subversion.Messages;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -51,11 +55,30 @@ public final class PerJobCredentialStore implements Saveable, RemotableSVNAuthen
      */
     private final Map<String, Credential> credentials = new Hashtable<String, Credential>();
 
+    /**
+     * Copy of {@link #credentials} that lookups read without locking. Replaced whenever credentials change.
+     */
+    private transient volatile Map<String, Credential> snapshot;
+
+    /**
+     * The file the credentials were read from, and its time stamp and length at the time.
+     * Used to tell whether this store is still up to date, without locking it.
+     */
+    private transient volatile File file;
+    private transient volatile long fileTimestamp, fileLength;
+
+    /**
+     * Stores by the full name of their project, for {@link #get(AbstractProject)}. Entries of jobs that are
+     * renamed or deleted, or of all jobs when they are loaded again, are dropped by {@link ItemListenerImpl}.
+     */
+    private static final Map<String, PerJobCredentialStore> STORES = new HashMap<String, PerJobCredentialStore>();
+
     public PerJobCredentialStore(AbstractProject<?, ?> project, String url) {
         this.project = project;
         this.url = url;
         // read existing credential
         XmlFile xml = getXmlFile(project);
+        stamp(xml.getFile());
         try {
             if (xml.exists()) {
                 xml.unmarshal(this);
@@ -64,10 +87,60 @@ public final class PerJobCredentialStore implements Saveable, RemotableSVNAuthen
             // ignore the failure to unmarshal, or else we'll never get through beyond this point.
             LOGGER.log(INFO, Messages.PerJobCredentialStore_readCredentials_error(xml), e);
         }
+        snapshot = new HashMap<String, Credential>(credentials);
+    }
+
+    /**
+     * Returns the store of the project. The credentials are only read again if their file changed
+     * since the last time.
+     */
+    public static PerJobCredentialStore get(AbstractProject<?, ?> project) {
+        synchronized (STORES) {
+            PerJobCredentialStore store = STORES.get(project.getFullName());
+            if (store == null || store.project != project || !store.isUpToDate()) {
+                store = new PerJobCredentialStore(project, null);
+                STORES.put(project.getFullName(), store);
+            }
+            return store;
+        }
     }
 
-    private synchronized Credential get(String key) {
-        return credentials.get(key);
+    /**
+     * Drops the stores of the given job and of the jobs inside it.
+     */
+    /*package*/ static void forget(String fullName) {
+        synchronized (STORES) {
+            for (Iterator<String> it = STORES.keySet().iterator(); it.hasNext();) {
+                String name = it.next();
+                if (name.equals(fullName) || name.startsWith(fullName + '/')) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * For the tests only.
+     */
+    /*package*/ static boolean isCached(String fullName) {
+        synchronized (STORES) {
+            return STORES.containsKey(fullName);
+        }
+    }
+
+    private void stamp(File file) {
+        this.file = file;
+        fileTimestamp = file.lastModified();
+        fileLength = file.length();
+    }
+
+    private boolean isUpToDate() {
+        File f = getXmlFile(project).getFile();
+        return f.equals(file) && f.lastModified() == fileTimestamp && f.length() == fileLength;
+    }
+
+    private Credential get(String key) {
+        return snapshot.get(key);
     }
 
     public Credential getCredential(SerializableSVNURL serializableURL, String realm) throws SVNException {
@@ -100,11 +173,13 @@ public final class PerJobCredentialStore implements Saveable, RemotableSVNAuthen
 
     private synchronized void acknowledge(String key, Credential cred) throws IOException {
         Credential old = cred == null ? credentials.remove(key) : credentials.put(key, cred);
+        snapshot = new HashMap<String, Credential>(credentials);
         // save only if there was a change
         if (old == null && cred == null) {
             return;
         }
         if (old == null || cred == null || !old.equals(cred)) {
+            RemoteCredentialCache.invalidate();
             save();
         }
     }
@@ -115,6 +190,13 @@ public final class PerJobCredentialStore implements Saveable, RemotableSVNAuthen
             if (!credentials.isEmpty()) {
                 XmlFile xmlFile = getXmlFile(project);
                 xmlFile.write(this);
+                stamp(xmlFile.getFile());
+                synchronized (STORES) {
+                    // the file may change too little for the time stamp to tell
+                    if (STORES.get(project.getFullName()) != this) {
+                        STORES.remove(project.getFullName());
+                    }
+                }
                 SaveableListener.fireOnChange(this, xmlFile);
             }
         } finally {
@@ -143,8 +225,8 @@ public final class PerJobCredentialStore implements Saveable, RemotableSVNAuthen
     }
 
     /*package*/
-    synchronized boolean isEmpty() {
-        return credentials.isEmpty();
+    boolean isEmpty() {
+        return snapshot.isEmpty();
     }
 
     /**
@@ -175,6 +257,30 @@ public final class PerJobCredentialStore implements Saveable, RemotableSVNAuthen
         return saveableListener;
     }
 
+    /**
+     * Keeps {@link #STORES} from holding on to jobs that are gone.
+     */
+    @Extension
+    public static final class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onLoaded() {
+            synchronized (STORES) {
+                STORES.clear();
+            }
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            String parent = item.getParent().getFullName();
+            forget(parent.length() == 0 ? oldName : parent + '/' + oldName);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            forget(item.getFullName());
+        }
+    }
+
     @Extension
     public static class CredentialsSaveableListener extends SaveableListener {
 
@@ -0,0 +1,80 @@
+package hudson.scm;
+
+import hudson.model.AbstractProject;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What post-commit notifications told about the commits that caused the polling of a job.
+ * <p/>
+ * {@link SubversionRepositoryStatus} records the changed paths for every job it triggers, and the next
+ * polling of the job takes them, so that it can decide from them instead of running "svn info" and "svn log".
+ * The paths come from <tt>svnlook changed</tt>, so they say nothing about the author or the commit message.
+ */
+public final class PostCommitEvidence {
+
+    /**
+     * Repository the commits were made to.
+     */
+    public final UUID uuid;
+
+    /**
+     * Lowest and highest revisions reported.
+     */
+    public final long firstRevision, lastRevision;
+
+    /**
+     * Changed paths, relative to the repository root, as reported by <tt>svnlook changed</tt>.
+     */
+    public final Set<String> paths;
+
+    private static final Map<String, PostCommitEvidence> EVIDENCES = new ConcurrentHashMap<String, PostCommitEvidence>();
+
+    public PostCommitEvidence(UUID uuid, long firstRevision, long lastRevision, Collection<String> paths) {
+        this.uuid = uuid;
+        this.firstRevision = firstRevision;
+        this.lastRevision = lastRevision;
+        this.paths = Collections.unmodifiableSet(new HashSet<String>(paths));
+    }
+
+    /**
+     * Records the evidence for the next polling of the job, merging it with what's already recorded.
+     */
+    public static void put(AbstractProject<?, ?> project, PostCommitEvidence e) {
+        put(project.getFullName(), e);
+    }
+
+    /*package*/ static void put(String key, PostCommitEvidence e) {
+        synchronized (EVIDENCES) {
+            PostCommitEvidence old = EVIDENCES.get(key);
+            if (old != null && old.uuid.equals(e.uuid)) {
+                Set<String> paths = new HashSet<String>(old.paths);
+                paths.addAll(e.paths);
+                e = new PostCommitEvidence(e.uuid, Math.min(old.firstRevision, e.firstRevision),
+                    Math.max(old.lastRevision, e.lastRevision), paths);
+            } else if (old != null) {
+                // commits to several repositories. let the polling find out by itself.
+                EVIDENCES.remove(key);
+                return;
+            }
+            EVIDENCES.put(key, e);
+        }
+    }
+
+    /**
+     * Removes and returns the evidence recorded for the job, if any.
+     */
+    public static PostCommitEvidence take(AbstractProject<?, ?> project) {
+        return take(project.getFullName());
+    }
+
+    /*package*/ static PostCommitEvidence take(String key) {
+        return EVIDENCES.remove(key);
+    }
+}
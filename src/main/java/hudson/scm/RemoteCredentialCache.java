@@ -0,0 +1,119 @@
+package hudson.scm;
+
+import hudson.scm.SubversionSCM.DescriptorImpl.Credential;
+import hudson.scm.SubversionSCM.DescriptorImpl.RemotableSVNAuthenticationProvider;
+import hudson.scm.SubversionSCM.DescriptorImpl.SerializableSVNURL;
+
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+
+/**
+ * Credentials that a slave got from the master, so that the authentication challenges of a check out don't
+ * each make a round trip to the master.
+ * <p/>
+ * Entries are kept for {@link #TTL} seconds at most, and no more than {@link #MAX_ENTRIES} of them. "No credential"
+ * answers are kept too. The master invalidates the entries when credentials change by bumping a generation number,
+ * which travels to the slave with the next authentication provider it sends; entries obtained under an older
+ * generation aren't used by providers of a newer one.
+ * <p/>
+ * Only answers that come through remoting are kept, so this does nothing on the master.
+ */
+public final class RemoteCredentialCache {
+
+    private RemoteCredentialCache() {
+    }
+
+    private static final class Entry {
+        final Credential credential;
+        final long generation;
+        final long expires;
+
+        Entry(Credential credential, long generation, long expires) {
+            this.credential = credential;
+            this.generation = generation;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Entries by scope, realm and URL, least recently used first.
+     */
+    private static final Map<String, Entry> ENTRIES = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Generation of the credentials on the master. Starts from the clock, so that it keeps growing
+     * when the master restarts.
+     */
+    private static final AtomicLong GENERATION = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Returns the current generation of the credentials. Called on the master.
+     */
+    static long getGeneration() {
+        return GENERATION.get();
+    }
+
+    /**
+     * Makes the slaves stop using the credentials they got so far. Called on the master when credentials change.
+     */
+    public static void invalidate() {
+        GENERATION.incrementAndGet();
+    }
+
+    /**
+     * Gets the credential from the source, or from the cache if the source is remote.
+     *
+     * @param scope identifies the credentials the source hands out. See
+     * {@link SubversionSCM.DescriptorImpl.SVNAuthenticationProviderImpl#getCredentialScope()}.
+     * @param generation the generation of the credentials when the provider the source belongs to was created.
+     */
+    static Credential getCredential(RemotableSVNAuthenticationProvider src, String scope, long generation,
+                                    SVNURL url, String realm) throws SVNException {
+        if (TTL <= 0 || !Proxy.isProxyClass(src.getClass())) {
+            return src.getCredential(new SerializableSVNURL(url), realm);
+        }
+        String key = scope + '\n' + realm + '\n' + url.toDecodedString();
+        long now = System.currentTimeMillis();
+        synchronized (ENTRIES) {
+            Entry e = ENTRIES.get(key);
+            if (e != null && e.expires > now && e.generation >= generation) {
+                return e.credential;
+            }
+        }
+        Credential cred = src.getCredential(new SerializableSVNURL(url), realm);
+        synchronized (ENTRIES) {
+            ENTRIES.put(key, new Entry(cred, generation, now + TTL * 1000L));
+        }
+        return cred;
+    }
+
+    /**
+     * For the tests only.
+     */
+    static void clear() {
+        synchronized (ENTRIES) {
+            ENTRIES.clear();
+        }
+    }
+
+    /**
+     * How long, in seconds, a slave keeps a credential it got from the master. 0 disables the cache.
+     */
+    public static int TTL = Integer.getInteger(RemoteCredentialCache.class.getName() + ".ttl", 300).intValue();
+
+    /**
+     * How many credentials a slave keeps.
+     */
+    public static int MAX_ENTRIES = Integer.getInteger(RemoteCredentialCache.class.getName() + ".maxEntries", 256)
+        .intValue();
+}
@@ -0,0 +1,151 @@
+package hudson.scm;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.wc.SVNInfo;
+
+/**
+ * Remembers the remote revision of the URLs polled by {@link SubversionSCM}, so that jobs
+ * polling the same repository within a short window share a single "svn info" round trip.
+ * <p/>
+ * Entries are grouped per repository UUID, so that a post-commit notification sent to
+ * {@link SubversionRepositoryStatus} drops everything known about that repository at once.
+ * <p/>
+ * The cache is disabled unless {@link #WINDOW} is set to a positive value.
+ */
+public final class RemoteRevisionCache {
+
+    private static final RemoteRevisionCache INSTANCE = new RemoteRevisionCache();
+
+    /**
+     * Repository UUID to the cached revisions of the URLs in that repository.
+     */
+    private final ConcurrentMap<UUID, ConcurrentMap<String, Entry>> repositories
+        = new ConcurrentHashMap<UUID, ConcurrentMap<String, Entry>>();
+
+    /**
+     * Bumped on every invalidation. A lookup that started before an invalidation must not
+     * store its (possibly outdated) result afterwards.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Cached revision of a single URL.
+     */
+    private static final class Entry {
+        final long revision;
+        final long timestamp;
+
+        Entry(long revision, long timestamp) {
+            this.revision = revision;
+            this.timestamp = timestamp;
+        }
+    }
+
+    RemoteRevisionCache() {
+    }
+
+    public static RemoteRevisionCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the revision of the given URL at HEAD, either from the cache or by running "svn info".
+     *
+     * @param url remote URL to check.
+     * @param authProvider used if the remote repository needs to be contacted.
+     * @return last changed revision of the URL.
+     */
+    public long getRevision(SVNURL url, ISVNAuthenticationProvider authProvider) throws SVNException {
+        String key = url.toDecodedString();
+        long now = System.currentTimeMillis();
+
+        Long cached = getCachedRevision(key, now);
+        if (cached != null) {
+            LOGGER.log(Level.FINE, "Using cached revision {0} of {1}", new Object[]{cached, key});
+            return cached.longValue();
+        }
+
+        long start = generation.get();
+        SVNInfo info = SubversionSCM.parseSvnInfo(url, authProvider);
+        long revision = info.getCommittedRevision().getNumber();
+        if (info.getRepositoryUUID() != null) {
+            put(UUID.fromString(info.getRepositoryUUID()), key, revision, start, now);
+        }
+        return revision;
+    }
+
+    /**
+     * Returns the cached revision of the URL, or null if nothing fresh enough is known.
+     */
+    /*package*/ Long getCachedRevision(String url, long now) {
+        if (WINDOW <= 0) {
+            return null;
+        }
+        for (Map<String, Entry> revisions : repositories.values()) {
+            Entry e = revisions.get(url);
+            if (e != null) {
+                return now - e.timestamp < WINDOW ? Long.valueOf(e.revision) : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records the revision of the URL, unless the cache has been invalidated since the lookup started.
+     *
+     * @param startGeneration value of {@link #getGeneration()} taken before the remote lookup.
+     */
+    /*package*/ void put(UUID uuid, String url, long revision, long startGeneration, long now) {
+        if (WINDOW <= 0) {
+            return;
+        }
+        ConcurrentMap<String, Entry> revisions = repositories.get(uuid);
+        if (revisions == null) {
+            repositories.putIfAbsent(uuid, new ConcurrentHashMap<String, Entry>());
+            revisions = repositories.get(uuid);
+        }
+        revisions.put(url, new Entry(revision, now));
+        if (generation.get() != startGeneration) {
+            // a commit was reported while we were talking to the server. be conservative.
+            revisions.remove(url);
+        }
+    }
+
+    /*package*/ long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Discards everything cached for the given repository, typically because a new commit was made to it.
+     */
+    public void invalidate(UUID uuid) {
+        generation.incrementAndGet();
+        repositories.remove(uuid);
+    }
+
+    /**
+     * Discards everything cached.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        repositories.clear();
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(RemoteRevisionCache.class.getName());
+
+    /**
+     * How long, in milliseconds, a remote revision is trusted before the repository is asked again.
+     * 0 or less disables the cache, which is the default.
+     */
+    public static int WINDOW = Integer.getInteger(RemoteRevisionCache.class.getName() + ".window", 0).intValue();
+}
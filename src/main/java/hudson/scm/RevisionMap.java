@@ -0,0 +1,173 @@
+package hudson.scm;
+
+import hudson.model.AbstractBuild;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Revisions of the module locations of a build, as recorded in its <tt>revision.txt</tt>. Immutable.
+ * <p/>
+ * The URLs are kept sorted in an array, next to an array of their revisions. The map of a build is kept for as long
+ * as the build is in memory, and the file is read again only when its time stamp or size changes, since the
+ * revisions are asked for each time the environment of the build is computed.
+ */
+final class RevisionMap extends AbstractMap<String, Long> {
+    private final String[] urls;
+    private final long[] revisions;
+
+    RevisionMap(Map<String, Long> revisions) {
+        this.urls = revisions.keySet().toArray(new String[revisions.size()]);
+        Arrays.sort(urls);
+        this.revisions = new long[urls.length];
+        for (int i = 0; i < urls.length; i++) {
+            this.revisions[i] = revisions.get(urls[i]).longValue();
+        }
+    }
+
+    /**
+     * Gets the revision of the given URL, or -1 if there is none.
+     */
+    public long getRevision(String url) {
+        int i = Arrays.binarySearch(urls, url);
+        return i < 0 ? -1 : revisions[i];
+    }
+
+    @Override
+    public Long get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int i = Arrays.binarySearch(urls, key);
+        return i < 0 ? null : Long.valueOf(revisions[i]);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && Arrays.binarySearch(urls, key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return urls.length;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Long>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Long>>() {
+            public Iterator<Map.Entry<String, Long>> iterator() {
+                return new Iterator<Map.Entry<String, Long>>() {
+                    private int next;
+
+                    public boolean hasNext() {
+                        return next < urls.length;
+                    }
+
+                    public Map.Entry<String, Long> next() {
+                        if (next >= urls.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return new SimpleImmutableEntry<String, Long>(urls[i], Long.valueOf(revisions[i]));
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            public int size() {
+                return urls.length;
+            }
+        };
+    }
+
+    /**
+     * Gets the revisions recorded for the given build. Empty if it has none.
+     */
+    static RevisionMap get(AbstractBuild<?, ?> build) throws IOException {
+        File file = SubversionSCM.getRevisionFile(build);
+        long lastModified = file.lastModified();
+        long length = file.length();
+        synchronized (CACHE) {
+            Cached c = CACHE.get(build);
+            if (c != null && c.lastModified == lastModified && c.length == length) {
+                return c.map;
+            }
+        }
+        RevisionMap map = read(file);
+        synchronized (CACHE) {
+            CACHE.put(build, new Cached(map, lastModified, length));
+        }
+        return map;
+    }
+
+    /**
+     * Forgets what was read for the given build, when its file is written.
+     */
+    static void invalidate(AbstractBuild<?, ?> build) {
+        synchronized (CACHE) {
+            CACHE.remove(build);
+        }
+    }
+
+    private static RevisionMap read(File file) throws IOException {
+        Map<String, Long> revisions = new HashMap<String, Long>(); // module -> revision
+        if (!file.exists()) {
+            return new RevisionMap(revisions);
+        }
+
+        BufferedReader br = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                int index = line.lastIndexOf('/');
+                if (index < 0) {
+                    continue;   // invalid line?
+                }
+                try {
+                    revisions.put(line.substring(0, index), Long.valueOf(line.substring(index + 1)));
+                } catch (NumberFormatException e) {
+                    // perhaps a corrupted line. ignore
+                    LOGGER.log(Level.FINEST, "Error parsing line", e);
+                }
+            }
+        } finally {
+            br.close();
+        }
+        return new RevisionMap(revisions);
+    }
+
+    private static final class Cached {
+        final RevisionMap map;
+        final long lastModified;
+        final long length;
+
+        Cached(RevisionMap map, long lastModified, long length) {
+            this.map = map;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+    /**
+     * By build. The values don't refer to the builds, so the builds can still be unloaded.
+     */
+    private static final Map<AbstractBuild<?, ?>, Cached> CACHE = new WeakHashMap<AbstractBuild<?, ?>, Cached>();
+
+    private static final Logger LOGGER = Logger.getLogger(RevisionMap.class.getName());
+}
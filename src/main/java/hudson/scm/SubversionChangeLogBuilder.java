@@ -28,7 +28,8 @@ import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
 import hudson.model.Hudson;
 import hudson.scm.SubversionSCM.ModuleLocation;
-import hudson.FilePath;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
 import hudson.util.IOException2;
 import hudson.remoting.VirtualChannel;
 import hudson.FilePath.FileCallable;
@@ -52,8 +53,20 @@ import javax.xml.transform.sax.TransformerHandler;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Builds <tt>changelog.xml</tt> for {@link SubversionSCM}.
@@ -73,6 +86,7 @@ public final class SubversionChangeLogBuilder {
     private final BuildListener listener;
     private final SubversionSCM scm;
     private final AbstractBuild<?,?> build;
+    private final boolean useLogCache;
 
     public SubversionChangeLogBuilder(AbstractBuild<?,?> build, BuildListener listener, SubversionSCM scm) throws IOException {
         previousRevisions = SubversionSCM.parseRevisionFile(build.getPreviousBuild());
@@ -80,13 +94,21 @@ public final class SubversionChangeLogBuilder {
         this.listener = listener;
         this.scm = scm;
         this.build = build;
+        this.useLogCache = SubversionLogCache.canUse(build.getProject());
 
     }
 
     public boolean run(Collection<SubversionSCM.External> externals, Result changeLog) throws IOException, InterruptedException {
         boolean changelogFileCreated = false;
 
-        final SVNClientManager manager = SubversionSCM.createSvnClientManager(build.getProject());
+        List<String> urls = new ArrayList<String>();
+        for (ModuleLocation l : scm.getLocations(build)) {
+            urls.add(l.getURL());
+        }
+        urls.addAll(getUrlsForPaths(externals));
+
+        final SVNClientManager manager = SubversionSCM.createPooledSvnClientManager(
+            createAuthenticationProvider(build.getProject()));
         try {
             SVNLogClient svnlc = manager.getLogClient();
             TransformerHandler th = createTransformerHandler();
@@ -96,12 +118,12 @@ public final class SubversionChangeLogBuilder {
             th.setDocumentLocator(DUMMY_LOCATOR);
             logHandler.startDocument();
 
-            for (ModuleLocation l : scm.getLocations(build)) {
-                changelogFileCreated |= buildModule(l.getURL(), svnlc, logHandler);
-            }
-            for(SubversionSCM.External ext : externals) {
-                changelogFileCreated |= buildModule(
-                        getUrlForPath(build.getWorkspace().child(ext.path)), svnlc, logHandler);
+            if (THREADS <= 1 || urls.size() <= 1) {
+                for (String url : urls) {
+                    changelogFileCreated |= buildModule(url, svnlc, logHandler);
+                }
+            } else {
+                changelogFileCreated = buildModules(urls, logHandler);
             }
 
             if(changelogFileCreated) {
@@ -114,8 +136,31 @@ public final class SubversionChangeLogBuilder {
         }
     }
 
-    private String getUrlForPath(FilePath path) throws IOException, InterruptedException {
-        return path.act(new GetUrlForPath(createAuthenticationProvider(build.getProject())));
+    /**
+     * Gets the repository URLs of the externals. Those that weren't recorded with the external are looked up in the
+     * working copy, in one call to the workspace. Exports, which have no working copy, always record them.
+     */
+    private List<String> getUrlsForPaths(Collection<SubversionSCM.External> externals)
+        throws IOException, InterruptedException {
+        List<String> urls = new ArrayList<String>();
+        List<String> paths = new ArrayList<String>();
+        for (SubversionSCM.External ext : externals) {
+            urls.add(ext.url);
+            if (ext.url == null) {
+                paths.add(ext.path);
+            }
+        }
+        if (paths.isEmpty()) {
+            return urls;
+        }
+        Iterator<String> found = build.getWorkspace().act(
+            new GetUrlsForPaths(createAuthenticationProvider(build.getProject()), paths)).iterator();
+        for (ListIterator<String> it = urls.listIterator(); it.hasNext();) {
+            if (it.next() == null) {
+                it.set(found.next());
+            }
+        }
+        return urls;
     }
 
     private ISVNAuthenticationProvider createAuthenticationProvider(AbstractProject context) {
@@ -123,41 +168,131 @@ public final class SubversionChangeLogBuilder {
     }
 
     private boolean buildModule(String url, SVNLogClient svnlc, SVNXMLLogHandler logHandler) throws IOException2 {
+        long[] range = getRange(url);
+        if (range == null) {
+            return false;
+        }
+        fetch(url, range, svnlc, logHandler);
+        return true;
+    }
+
+    /**
+     * Fetches the logs of the modules that changed, up to {@link #THREADS} of them at the same time, into a buffer
+     * per module. The buffers are then written in the order of the modules, so that the change log is the same as
+     * if they had been fetched one after another.
+     */
+    private boolean buildModules(List<String> urls, SVNXMLLogHandler logHandler) throws IOException, InterruptedException {
+        // decided up front, so that the console reads the same as when fetching one after another
+        final Map<String, long[]> ranges = new LinkedHashMap<String, long[]>();
+        for (String url : urls) {
+            long[] range = getRange(url);
+            if (range != null && !ranges.containsKey(url)) {
+                ranges.put(url, range);
+            }
+        }
+        if (ranges.isEmpty()) {
+            return false;
+        }
+
+        final ISVNAuthenticationProvider authProvider = createAuthenticationProvider(build.getProject());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(THREADS, ranges.size()),
+            new ExceptionCatchingThreadFactory(new DaemonThreadFactory()));
+        try {
+            List<Future<List<SVNLogEntry>>> results = new ArrayList<Future<List<SVNLogEntry>>>();
+            for (final Map.Entry<String, long[]> e : ranges.entrySet()) {
+                results.add(executor.submit(new Callable<List<SVNLogEntry>>() {
+                    public List<SVNLogEntry> call() throws IOException {
+                        final List<SVNLogEntry> entries = new ArrayList<SVNLogEntry>();
+                        SVNClientManager manager = SubversionSCM.createPooledSvnClientManager(authProvider);
+                        try {
+                            fetch(e.getKey(), e.getValue(), manager.getLogClient(), new ISVNLogEntryHandler() {
+                                public void handleLogEntry(SVNLogEntry logEntry) {
+                                    entries.add(logEntry);
+                                }
+                            });
+                        } finally {
+                            manager.dispose();
+                        }
+                        return entries;
+                    }
+                }));
+            }
+            for (Future<List<SVNLogEntry>> f : results) {
+                List<SVNLogEntry> entries;
+                try {
+                    entries = f.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException2("Failed to compute the change log", e.getCause());
+                }
+                try {
+                    for (SVNLogEntry e : entries) {
+                        logHandler.handleLogEntry(e);
+                    }
+                } catch (SVNException e) {
+                    throw new IOException2("Failed to write the change log", e);
+                }
+            }
+            return true;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the revisions, both inclusive, to get the log of for the given module, or null if there are none.
+     */
+    private long[] getRange(String url) {
         PrintStream logger = listener.getLogger();
         Long prevRev = previousRevisions.get(url);
         if(prevRev==null) {
             logger.println("no revision recorded for "+url+" in the previous build");
-            return false;
+            return null;
         }
         Long thisRev = thisRevisions.get(url);
         if (thisRev == null) {
             listener.error("No revision found for URL: " + url + " in " + SubversionSCM.getRevisionFile(build) + ". Revision file contains: " + thisRevisions.keySet());
-            return false;
+            return null;
         }
         if(thisRev.equals(prevRev)) {
             logger.println("no change for "+url+" since the previous build");
-            return false;
+            return null;
         }
+        return new long[]{prevRev.longValue() + 1, thisRev.longValue()};
+    }
 
+    private void fetch(String url, long[] range, SVNLogClient svnlc, ISVNLogEntryHandler logHandler) throws IOException2 {
         try {
             if(debug)
                 listener.getLogger().printf("Computing changelog of %1s from %2s to %3s%n",
-                        SVNURL.parseURIEncoded(url), Long.valueOf(prevRev.longValue() + 1), thisRev);
-            svnlc.doLog(SVNURL.parseURIEncoded(url),
-                        null,
-                        SVNRevision.UNDEFINED,
-                        SVNRevision.create(prevRev.longValue() + 1),
-                        SVNRevision.create(thisRev.longValue()),
-                        false, // Don't stop on copy.
-                        true, // Report paths.
-                        0, // Retrieve log entries for unlimited number of revisions.
-                        debug ? new DebugSVNLogHandler(logHandler) : logHandler);
+                        SVNURL.parseURIEncoded(url), Long.valueOf(range[0]), Long.valueOf(range[1]));
+            ISVNLogEntryHandler handler = debug ? new DebugSVNLogHandler(logHandler) : logHandler;
+            List<SVNLogEntry> cached = useLogCache ? SubversionLogCache.get().getLog(SVNURL.parseURIEncoded(url),
+                range[0], range[1]) : null;
+            if (cached != null) {
+                for (SVNLogEntry e : cached) {
+                    // only what "svn log" reports without asking for revision properties
+                    handler.handleLogEntry(new SVNLogEntry(e.getChangedPaths(), e.getRevision(), e.getAuthor(),
+                        e.getDate(), e.getMessage()));
+                }
+            } else {
+                svnlc.doLog(SVNURL.parseURIEncoded(url),
+                            null,
+                            SVNRevision.UNDEFINED,
+                            SVNRevision.create(range[0]),
+                            SVNRevision.create(range[1]),
+                            false, // Don't stop on copy.
+                            true, // Report paths.
+                            0, // Retrieve log entries for unlimited number of revisions.
+                            handler);
+            }
             if(debug)
                 listener.getLogger().println("done");
         } catch (SVNException e) {
             throw new IOException2("revision check failed on "+url,e);
         }
-        return true;
     }
 
     /**
@@ -187,35 +322,56 @@ public final class SubversionChangeLogBuilder {
         }
     }
 
+    private static final Logger LOGGER = Logger.getLogger(SubversionChangeLogBuilder.class.getName());
+
     private static final LocatorImpl DUMMY_LOCATOR = new LocatorImpl();
 
     public static boolean debug = false;
 
+    /**
+     * How many modules and externals may have their logs fetched at the same time.
+     * The default, 1, fetches them one after another.
+     */
+    public static int THREADS = Integer.getInteger(SubversionChangeLogBuilder.class.getName() + ".threads", 1).intValue();
+
     static {
         DUMMY_LOCATOR.setLineNumber(-1);
         DUMMY_LOCATOR.setColumnNumber(-1);
     }
 
-    private static class GetUrlForPath implements FileCallable<String> {
+    /*package*/ static class GetUrlsForPaths implements FileCallable<List<String>> {
         private final ISVNAuthenticationProvider authProvider;
+        private final List<String> paths;
 
-        public GetUrlForPath(ISVNAuthenticationProvider authProvider) {
+        public GetUrlsForPaths(ISVNAuthenticationProvider authProvider, List<String> paths) {
             this.authProvider = authProvider;
+            this.paths = paths;
         }
 
-        public String invoke(File p, VirtualChannel channel) throws IOException {
+        /**
+         * Returns the URL of each path, or null for those that couldn't be looked up.
+         * Relative paths are in the workspace, as with {@link hudson.FilePath#child(String)}.
+         */
+        public List<String> invoke(File ws, VirtualChannel channel) throws IOException {
             final SVNClientManager manager = SubversionSCM.createSvnClientManager(authProvider);
             try {
                 final SVNWCClient svnwc = manager.getWCClient();
 
-                SVNInfo info;
-                try {
-                    info = svnwc.doInfo(p, SVNRevision.WORKING);
-                    return info.getURL().toDecodedString();
-                } catch (SVNException e) {
-                    e.printStackTrace();
-                    return null;
+                List<String> urls = new ArrayList<String>(paths.size());
+                for (String path : paths) {
+                    File f = new File(path);
+                    if (!f.isAbsolute()) {
+                        f = new File(ws, path);
+                    }
+                    try {
+                        SVNInfo info = svnwc.doInfo(f, SVNRevision.WORKING);
+                        urls.add(info.getURL().toDecodedString());
+                    } catch (SVNException e) {
+                        LOGGER.log(Level.WARNING, "Failed to get the URL of " + f, e);
+                        urls.add(null);
+                    }
                 }
+                return urls;
             } finally {
                 manager.dispose();
             }
@@ -24,54 +24,193 @@
 package hudson.scm;
 
 import hudson.model.AbstractBuild;
+import hudson.model.User;
 import hudson.scm.SubversionChangeLogSet.LogEntry;
 import hudson.scm.SubversionChangeLogSet.Path;
 import hudson.util.IOException2;
 
-import org.apache.commons.digester.Digester;
 import org.xml.sax.SAXException;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  * {@link ChangeLogParser} for Subversion.
+ * <p/>
+ * Reads the XML written by {@link SubversionChangeLogBuilder} in a single pass, building the {@link LogEntry}s and
+ * {@link Path}s as it goes. The users and the paths that appear in several entries are shared.
+ * <p/>
+ * When the build also has a {@link BinaryChangeLog}, that is read instead.
  *
  * @author Kohsuke Kawaguchi
  */
 public class SubversionChangeLogParser extends ChangeLogParser {
     public SubversionChangeLogSet parse(AbstractBuild build, File changelogFile) throws IOException, SAXException {
+        File binary = BinaryChangeLog.getFile(changelogFile);
+        if (binary.exists() && binary.lastModified() >= changelogFile.lastModified()) {
+            try {
+                return new SubversionChangeLogSet(build, BinaryChangeLog.open(binary));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to read " + binary + ", parsing " + changelogFile + " instead", e);
+            }
+        }
+
         // http://svn.collab.net/repos/svn/trunk/subversion/svn/schema/
+        InputStream in = new BufferedInputStream(new FileInputStream(changelogFile));
+        try {
+            return new SubversionChangeLogSet(build, parse(in));
+        } catch (XMLStreamException e) {
+            throw new IOException2("Failed to parse "+changelogFile,e);
+        } catch (NumberFormatException e) {
+            throw new IOException2("Failed to parse "+changelogFile,e);
+        } finally {
+            in.close();
+        }
+    }
 
-        Digester digester = new Digester();
-        ArrayList<LogEntry> r = new ArrayList<LogEntry>();
-        digester.push(r);
+    /**
+     * Reads the log entries of a change log.
+     */
+    /*package*/ static List<LogEntry> parse(InputStream in) throws XMLStreamException {
+        List<RawEntry> raw = read(in);
+        List<LogEntry> r = new ArrayList<LogEntry>(raw.size());
+        Map<String, User> users = new HashMap<String, User>();
+        for (RawEntry e : raw) {
+            LogEntry entry = new LogEntry();
+            entry.setRevision(e.revision);
+            if (e.author != null) {
+                User user = users.get(e.author);
+                if (user == null) {
+                    users.put(e.author, user = User.get(e.author));
+                }
+                entry.setAuthor(user);
+            }
+            entry.setDate(e.date);
+            entry.setMsg(e.msg);
+            for (int i = 0; i < e.paths.size(); i++) {
+                Path path = new Path();
+                char action = e.actions.charAt(i);
+                if (action != 0) {
+                    path.setAction(String.valueOf(action));
+                }
+                path.setValue(e.paths.get(i));
+                entry.addPath(path);
+            }
+            r.add(entry);
+        }
+        return r;
+    }
 
-        digester.setClassLoader(LogEntry.class.getClassLoader());
-        digester.addObjectCreate("*/logentry", LogEntry.class);
-        digester.addSetProperties("*/logentry");
-        digester.addBeanPropertySetter("*/logentry/author","user");
-        digester.addBeanPropertySetter("*/logentry/date");
-        digester.addBeanPropertySetter("*/logentry/msg");
-        digester.addSetNext("*/logentry","add");
+    /**
+     * A log entry as it is in the change log, before users are resolved.
+     */
+    /*package*/ static final class RawEntry {
+        int revision;
+        String author;
+        String date;
+        String msg;
+        final List<String> paths = new ArrayList<String>();
+        /**
+         * The action of each path, or 0 for paths without one.
+         */
+        final StringBuilder actions = new StringBuilder();
+    }
 
-        digester.addObjectCreate("*/logentry/paths/path", Path.class);
-        digester.addSetProperties("*/logentry/paths/path");
-        digester.addBeanPropertySetter("*/logentry/paths/path","value");
-        digester.addSetNext("*/logentry/paths/path","addPath");
+    /**
+     * Reads the log entries of a change log without resolving their authors.
+     */
+    /*package*/ static List<RawEntry> read(InputStream in) throws XMLStreamException {
+        List<RawEntry> r = new ArrayList<RawEntry>();
+        Map<String, String> paths = new HashMap<String, String>();
+        StringBuilder text = new StringBuilder();
+        RawEntry entry = null;
+        char action = 0;
 
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
         try {
-            digester.parse(changelogFile);
-        } catch (IOException e) {
-            throw new IOException2("Failed to parse "+changelogFile,e);
-        } catch (SAXException e) {
-            throw new IOException2("Failed to parse "+changelogFile,e);
-        } catch (NullPointerException e) {
-        	throw new IOException2("Failed to parse "+changelogFile,e);
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT: {
+                        text.setLength(0);
+                        String name = reader.getLocalName();
+                        if (name.equals("logentry")) {
+                            entry = new RawEntry();
+                            String revision = reader.getAttributeValue(null, "revision");
+                            if (revision != null) {
+                                entry.revision = Integer.parseInt(revision);
+                            }
+                        } else if (name.equals("path") && entry != null) {
+                            String a = reader.getAttributeValue(null, "action");
+                            action = a != null ? a.charAt(0) : 0;
+                        }
+                        break;
+                    }
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT: {
+                        if (entry == null) {
+                            break;
+                        }
+                        String name = reader.getLocalName();
+                        if (name.equals("author")) {
+                            entry.author = text.toString().trim();
+                        } else if (name.equals("date")) {
+                            entry.date = text.toString().trim();
+                        } else if (name.equals("msg")) {
+                            entry.msg = text.toString().trim();
+                        } else if (name.equals("path")) {
+                            String value = text.toString().trim();
+                            String shared = paths.get(value);
+                            if (shared == null) {
+                                paths.put(value, shared = value);
+                            }
+                            entry.paths.add(shared);
+                            entry.actions.append(action);
+                        } else if (name.equals("logentry")) {
+                            r.add(entry);
+                            entry = null;
+                        }
+                        text.setLength(0);
+                        break;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
         }
-
-        return new SubversionChangeLogSet(build,r);
+        return r;
     }
 
+    /**
+     * Whether {@link SubversionSCM} writes a {@link BinaryChangeLog} next to the change log of each build, from
+     * which the change log is then loaded a few entries at a time.
+     */
+    public static boolean BINARY = Boolean.getBoolean(SubversionChangeLogParser.class.getName() + ".binary");
+
+    private static final Logger LOGGER = Logger.getLogger(SubversionChangeLogParser.class.getName());
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        // the change logs are written by us, and never need those
+        FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
 }
@@ -49,6 +49,12 @@ import org.kohsuke.stapler.export.ExportedBean;
 public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
     private final List<LogEntry> logs;
 
+    /**
+     * Remote URLs of the module locations of the project, that the affected paths are relative to,
+     * or null to leave the paths as they are.
+     */
+    private final String[] remotes;
+
     /**
      * @GuardedBy this
      */
@@ -56,9 +62,29 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
 
     /*package*/ SubversionChangeLogSet(AbstractBuild build, List<LogEntry> logs) {
         super(build);
+        this.remotes = getRemotes(build);
         this.logs = prepareChangeLogEntries(logs);
     }
 
+    /**
+     * Creates a change log set whose entries are loaded from the given file as they are looked at.
+     */
+    /*package*/ SubversionChangeLogSet(AbstractBuild build, final BinaryChangeLog log) {
+        super(build);
+        this.remotes = getRemotes(build);
+        this.logs = Collections.unmodifiableList(new AbstractList<LogEntry>() {
+            public LogEntry get(int index) {
+                LogEntry entry = log.get(index);
+                entry.setParent(SubversionChangeLogSet.this);
+                return entry;
+            }
+
+            public int size() {
+                return log.size();
+            }
+        });
+    }
+
     public List<LogEntry> getLogs() {
         return logs;
     }
@@ -84,6 +110,48 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
         return r;
     }
 
+    private static String[] getRemotes(AbstractBuild build) {
+        if (build == null) {
+            return null;
+        }
+        SCM scm = build.getProject().getScm();
+        if (!(scm instanceof SubversionSCM)) {
+            return null;
+        }
+        ModuleLocation[] locations = ((SubversionSCM) scm).getLocations();
+        String[] remotes = new String[locations.length];
+        for (int i = 0; i < locations.length; i++) {
+            remotes[i] = locations[i].remote;
+        }
+        return remotes;
+    }
+
+    /**
+     * Gets where the part of the given repository path below the module location it is in starts.
+     * <p/>
+     * That is after the longest end of the remote URL of the first location that the path, without its leading
+     * slash, starts with, and after the slash that follows. 0 if the path is in none of the locations.
+     */
+    /*package*/ int getRelativePathStart(String path) {
+        if (remotes == null || path == null) {
+            return 0;
+        }
+        int start = path.startsWith("/") ? 1 : 0;
+        for (String remote : remotes) {
+            if (remote == null) {
+                continue;
+            }
+            for (int i = 0; i < remote.length(); i++) {
+                int length = remote.length() - i;
+                if (path.regionMatches(start, remote, i, length)) {
+                    int r = start + length;
+                    return path.startsWith("/", r) ? r + 1 : r;
+                }
+            }
+        }
+        return 0;
+    }
+
     protected List<LogEntry> prepareChangeLogEntries(List<LogEntry> items) {
         items = removeDuplicatedEntries(items);
         // we want recent changes first
@@ -130,6 +198,10 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
         private String date;
         private String msg;
         private List<Path> paths = new ArrayList<Path>();
+        /**
+         * Paths not unpacked yet, for entries read from a {@link BinaryChangeLog}.
+         */
+        private BinaryChangeLog.PackedPaths packedPaths;
 
         /**
          * Gets the {@link SubversionChangeLogSet} to which this change set belongs.
@@ -184,9 +256,10 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
          * {@inheritDoc}
          */
         public Collection<String> getAffectedPaths() {
+            final List<Path> paths = getPaths();
             return new AbstractList<String>() {
                 public String get(int index) {
-                    return preparePath(paths.get(index).value);
+                    return paths.get(index).getRelativePath();
                 }
 
                 public int size() {
@@ -195,46 +268,16 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
             };
         }
 
-        private String preparePath(String path) {
-            SCM scm = getParent().build.getProject().getScm();
-            if (!(scm instanceof SubversionSCM)) {
-                return path;
-            }
-            ModuleLocation[] locations = ((SubversionSCM) scm).getLocations();
-            for (int i = 0; i < locations.length; i++) {
-                String commonPart = findCommonPart(locations[i].remote, path);
-                if (commonPart != null) {
-                    if (path.startsWith("/")) {
-                        path = path.substring(1);
-                    }
-                    String newPath = path.substring(commonPart.length());
-                    if (newPath.startsWith("/")) {
-                        newPath = newPath.substring(1);
-                    }
-                    return newPath;
-                }
-            }
-            return path;
+        public void setUser(String author) {
+            this.author = User.get(author);
         }
 
-        private String findCommonPart(String folder, String filePath) {
-            if (folder == null || filePath == null) {
-                return null;
-            }
-            if (filePath.startsWith("/")) {
-                filePath = filePath.substring(1);
-            }
-            for (int i = 0; i < folder.length(); i++) {
-                String part = folder.substring(i);
-                if (filePath.startsWith(part)) {
-                    return part;
-                }
-            }
-            return null;
+        /*package*/ void setAuthor(User author) {
+            this.author = author;
         }
 
-        public void setUser(String author) {
-            this.author = User.get(author);
+        /*package*/ void setPackedPaths(BinaryChangeLog.PackedPaths packedPaths) {
+            this.packedPaths = packedPaths;
         }
 
         @Exported
@@ -271,13 +314,17 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
          * @return can be empty but never null.
          */
         @Exported
-        public List<Path> getPaths() {
+        public synchronized List<Path> getPaths() {
+            if (packedPaths != null) {
+                packedPaths.unpack(this);
+                packedPaths = null;
+            }
             return paths;
         }
 
         @Override
         public Collection<Path> getAffectedFiles() {
-            return paths;
+            return getPaths();
         }
 
         @Override
@@ -328,6 +375,10 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
         private LogEntry entry;
         private char action;
         private String value;
+        /**
+         * See {@link SubversionChangeLogSet#getRelativePathStart(String)}. -1 until first needed.
+         */
+        private int relativePathStart = -1;
 
         /**
          * Gets the {@link LogEntry} of which this path is a member.
@@ -364,6 +415,18 @@ public final class SubversionChangeLogSet extends ChangeLogSet<LogEntry> {
 
         public void setValue(String value) {
             this.value = value;
+            this.relativePathStart = -1;
+        }
+
+        /**
+         * Gets the path relative to the module location it is in, or the path as is if it is in none.
+         */
+        /*package*/ String getRelativePath() {
+            int start = relativePathStart;
+            if (start < 0) {
+                relativePathStart = start = entry.getParent().getRelativePathStart(value);
+            }
+            return start == 0 ? value : value.substring(start);
         }
 
         @Exported
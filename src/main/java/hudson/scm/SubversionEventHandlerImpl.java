@@ -36,40 +36,39 @@ public class SubversionEventHandlerImpl extends SVNEventAdapter {
 
     protected final File baseDir;
 
+    /**
+     * Canonical path of {@link #baseDir}, with '/' as the separator. Computed on first use.
+     */
+    private String basePath;
+
+    /**
+     * Reused to build the output lines.
+     */
+    private final StringBuilder line = new StringBuilder(128);
+
     public SubversionEventHandlerImpl(PrintStream out, File baseDir) {
         this.out = out;
         this.baseDir = baseDir;
     }
 
     public void handleEvent(SVNEvent event, double progress) throws SVNException {
-        File file = event.getFile();
-        String path = null;
-        if (file != null) {
-            try {
-                path = getRelativePath(file);
-            } catch (IOException e) {
-                throw new SVNException(SVNErrorMessage.create(SVNErrorCode.FS_GENERAL), e);
-            }
-            path = getLocalPath(path);
-        }
-
         SVNEventAction action = event.getAction();
 
         {// commit notifications
             if (action == SVNEventAction.COMMIT_ADDED) {
-                out.println("Adding         "+path);
+                print("Adding         ", event);
                 return;
             }
             if (action == SVNEventAction.COMMIT_DELETED) {
-                out.println("Deleting       "+path);
+                print("Deleting       ", event);
                 return;
             }
             if (action == SVNEventAction.COMMIT_MODIFIED) {
-                out.println("Sending        "+path);
+                print("Sending        ", event);
                 return;
             }
             if (action == SVNEventAction.COMMIT_REPLACED) {
-                out.println("Replacing      "+path);
+                print("Replacing      ", event);
                 return;
             }
             if (action == SVNEventAction.COMMIT_DELTA_SENT) {
@@ -78,20 +77,20 @@ public class SubversionEventHandlerImpl extends SVNEventAdapter {
             }
         }
 
-        String pathChangeType = " ";
+        char pathChangeType = ' ';
         if (action == SVNEventAction.UPDATE_ADD) {
-            pathChangeType = "A";
+            pathChangeType = 'A';
             SVNStatusType contentsStatus = event.getContentsStatus();
             if(contentsStatus== SVNStatusType.UNCHANGED) {
                 // happens a lot with merges
-                pathChangeType = " ";
+                pathChangeType = ' ';
             }else if (contentsStatus == SVNStatusType.CONFLICTED) {
-                pathChangeType = "C";
+                pathChangeType = 'C';
             } else if (contentsStatus == SVNStatusType.MERGED) {
-                pathChangeType = "G";
+                pathChangeType = 'G';
             }
         } else if (action == SVNEventAction.UPDATE_DELETE) {
-            pathChangeType = "D";
+            pathChangeType = 'D';
         } else if (action == SVNEventAction.UPDATE_UPDATE) {
             SVNStatusType contentsStatus = event.getContentsStatus();
             if (contentsStatus == SVNStatusType.CHANGED) {
@@ -99,37 +98,38 @@ public class SubversionEventHandlerImpl extends SVNEventAdapter {
                  * the  item  was  modified in the repository (got  the changes
                  * from the repository
                  */
-                pathChangeType = "U";
+                pathChangeType = 'U';
             }else if (contentsStatus == SVNStatusType.CONFLICTED) {
                 /*
                  * The file item is in  a  state  of Conflict. That is, changes
                  * received from the repository during an update, overlap  with
                  * local changes the user has in his working copy.
                  */
-                pathChangeType = "C";
+                pathChangeType = 'C';
             } else if (contentsStatus == SVNStatusType.MERGED) {
                 /*
                  * The file item was merGed (those  changes that came from  the
                  * repository  did  not  overlap local changes and were  merged
                  * into the file).
                  */
-                pathChangeType = "G";
+                pathChangeType = 'G';
             }
         } else if (action == SVNEventAction.UPDATE_COMPLETED) {
             // finished updating
-            out.println("At revision " + event.getRevision());
+            line.setLength(0);
+            out.println(line.append("At revision ").append(event.getRevision()));
             return;
         } else if (action == SVNEventAction.ADD){
-            out.println("A     " + path);
+            print("A     ", event);
             return;
         } else if (action == SVNEventAction.DELETE){
-            out.println("D     " + path);
+            print("D     ", event);
             return;
         } else if (action == SVNEventAction.LOCKED){
-            out.println("L     " + path);
+            print("L     ", event);
             return;
         } else if (action == SVNEventAction.LOCK_FAILED){
-            out.println("failed to lock    " + path);
+            print("failed to lock    ", event);
             return;
         }
 
@@ -138,37 +138,105 @@ public class SubversionEventHandlerImpl extends SVNEventAdapter {
          * contains information on the properties state.
          */
         SVNStatusType propertiesStatus = event.getPropertiesStatus();
-        String propertiesChangeType = " ";
+        char propertiesChangeType = ' ';
         if (propertiesStatus == SVNStatusType.CHANGED) {
-            propertiesChangeType = "U";
+            propertiesChangeType = 'U';
         } else if (propertiesStatus == SVNStatusType.CONFLICTED) {
-            propertiesChangeType = "C";
+            propertiesChangeType = 'C';
         } else if (propertiesStatus == SVNStatusType.MERGED) {
-            propertiesChangeType = "G";
+            propertiesChangeType = 'G';
         }
 
-        String lockLabel = " ";
+        char lockLabel = ' ';
         SVNStatusType lockType = event.getLockStatus();
         if (lockType == SVNStatusType.LOCK_UNLOCKED) {
             // The lock is broken by someone.
-            lockLabel = "B";
+            lockLabel = 'B';
         }
 
-        if(pathChangeType.equals(" ") && propertiesChangeType.equals(" ") && lockLabel.equals(" "))
+        if(pathChangeType == ' ' && propertiesChangeType == ' ' && lockLabel == ' ')
             // nothing to display here.
             return;
 
-        out.println(pathChangeType
-                + propertiesChangeType
-                + lockLabel
-                + "       "
-                + path);
+        line.setLength(0);
+        line.append(pathChangeType).append(propertiesChangeType).append(lockLabel).append("       ");
+        if (wantsPaths()) {
+            appendPath(event);
+        }
+        printPath(line);
+    }
+
+    /**
+     * Prints the prefix followed by the path of the event.
+     */
+    private void print(String prefix, SVNEvent event) throws SVNException {
+        line.setLength(0);
+        line.append(prefix);
+        if (wantsPaths()) {
+            appendPath(event);
+        }
+        printPath(line);
+    }
+
+    /**
+     * Are the paths wanted in the lines given to {@link #printPath(StringBuilder)}?
+     * If not, they aren't computed and the lines only have the status letters.
+     */
+    protected boolean wantsPaths() {
+        return true;
+    }
+
+    /**
+     * Prints a line about an individual path, which starts with the status letters.
+     * The builder is reused for the next line.
+     */
+    protected void printPath(StringBuilder line) {
+        out.println(line);
+    }
+
+    /**
+     * Appends the local path of the event to {@link #line}, the way {@link #getLocalPath(String)} formats it.
+     */
+    private void appendPath(SVNEvent event) throws SVNException {
+        File file = event.getFile();
+        if (file == null) {
+            line.append("null");
+            return;
+        }
+        String path;
+        try {
+            path = getRelativePath(file);
+        } catch (IOException e) {
+            throw new SVNException(SVNErrorMessage.create(SVNErrorCode.FS_GENERAL), e);
+        }
+        if (path.length() == 0) {
+            line.append('.');
+        } else {
+            line.append(path.replace('/', File.separatorChar));
+        }
     }
 
     public String getRelativePath(File file) throws IOException {
-        String inPath = file.getCanonicalPath().replace(File.separatorChar, '/');
-        String basePath = baseDir.getCanonicalPath().replace(File.separatorChar, '/');
-        String commonRoot = getCommonAncestor(inPath, basePath);
+        String base = getBasePath();
+
+        // the files reported by svnkit are under the canonical directory it was given, so try to avoid
+        // asking the file system about each of them
+        String inPath = file.getAbsolutePath();
+        if (File.separatorChar != '/') {
+            inPath = inPath.replace(File.separatorChar, '/');
+        }
+        if (isNormalized(inPath) && regionEquals(inPath, base, base.length())) {
+            if (inPath.length() == base.length()) {
+                return "";
+            }
+            if (inPath.charAt(base.length()) == '/') {
+                int end = inPath.endsWith("/") ? inPath.length() - 1 : inPath.length();
+                return inPath.substring(base.length() + 1, Math.max(end, base.length() + 1));
+            }
+        }
+
+        inPath = file.getCanonicalPath().replace(File.separatorChar, '/');
+        String commonRoot = getCommonAncestor(inPath, base);
         
         String relativePath = inPath;
         if (commonRoot != null) {
@@ -184,6 +252,36 @@ public class SubversionEventHandlerImpl extends SVNEventAdapter {
         return relativePath;
     }
 
+    private String getBasePath() throws IOException {
+        if (basePath == null) {
+            basePath = baseDir.getCanonicalPath().replace(File.separatorChar, '/');
+        }
+        return basePath;
+    }
+
+    /**
+     * True if the path has no "." or ".." segment.
+     */
+    private static boolean isNormalized(String path) {
+        for (int i = path.indexOf("/."); i >= 0; i = path.indexOf("/.", i + 1)) {
+            int j = i + 2;
+            if (j < path.length() && path.charAt(j) == '.') {
+                j++;
+            }
+            if (j == path.length() || path.charAt(j) == '/') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Does p1 start with the first len characters of p2, ignoring the case where the file system does.
+     */
+    private static boolean regionEquals(String p1, String p2, int len) {
+        return p1.regionMatches(SVNFileUtil.isWindows || SVNFileUtil.isOpenVMS, 0, p2, 0, len);
+    }
+
     private static String getCommonAncestor(String p1, String p2) {
         if (SVNFileUtil.isWindows || SVNFileUtil.isOpenVMS) {
             String ancestor = SVNPathUtil.getCommonPathAncestor(p1.toLowerCase(), p2.toLowerCase());
@@ -0,0 +1,380 @@
+package hudson.scm;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.Saveable;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.scm.SubversionSCM.ModuleLocation;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.tmatesoft.svn.core.SVNException;
+
+/**
+ * Index of the module locations of the jobs, by repository UUID and path, so that
+ * {@link SubversionRepositoryStatus} finds the jobs affected by a commit without going through
+ * all of them and without contacting the repositories.
+ * <p/>
+ * Jobs are (re)indexed in the background when they are loaded, created, saved or renamed, since finding the
+ * UUID of a location may need a round trip to the server. Until that's done, the job is
+ * {@linkplain #getPendingJobs() pending}. If indexing fails, for instance because the server can't be reached,
+ * the job is dropped from the index and kept as a {@linkplain #getFallbackJobs() fallback}, to be looked at
+ * location by location like before there was an index, and indexing is retried after {@link #RETRY_DELAY} seconds. Jobs whose module locations are parameterized can't be indexed, as their URLs are
+ * only known for a build. They're kept aside as {@linkplain #getUnindexableJobs() unindexable}, until their
+ * configuration changes.
+ */
+public final class SubversionJobIndex {
+
+    private static final SubversionJobIndex INSTANCE = new SubversionJobIndex();
+
+    /**
+     * Full name of the job to what was indexed for it.
+     */
+    private final Map<String, IndexedJob> jobs = new HashMap<String, IndexedJob>();
+
+    /**
+     * Repository UUID to the locations in it, organized by path.
+     */
+    private final Map<UUID, Node> repositories = new HashMap<UUID, Node>();
+
+    /**
+     * Full names of the jobs that are waiting to be indexed.
+     */
+    private final Set<String> pending = new HashSet<String>();
+
+    /**
+     * Full names of the jobs that have parameterized module locations.
+     */
+    private final Set<String> unindexable = new HashSet<String>();
+
+    /**
+     * Full names of the jobs that failed to be indexed.
+     */
+    private final Set<String> fallback = new HashSet<String>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+        new ExceptionCatchingThreadFactory(new DaemonThreadFactory()));
+
+    /*package*/ SubversionJobIndex() {
+    }
+
+    public static SubversionJobIndex get() {
+        return INSTANCE;
+    }
+
+    /**
+     * What was indexed for a job.
+     */
+    private static final class IndexedJob {
+        final SCM scm;
+        final List<Node> nodes = new ArrayList<Node>();
+
+        IndexedJob(SCM scm) {
+            this.scm = scm;
+        }
+    }
+
+    /**
+     * A directory in a repository, with the jobs that have a module location there.
+     */
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<String, Node>();
+
+        /**
+         * Full name of the job to the URL of its module location.
+         */
+        final Map<String, String> jobs = new HashMap<String, String>();
+
+        Node child(String name) {
+            Node n = children.get(name);
+            if (n == null) {
+                children.put(name, n = new Node());
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Indexes the job asynchronously.
+     */
+    public void schedule(final AbstractProject<?, ?> project) {
+        synchronized (this) {
+            pending.add(project.getFullName());
+        }
+        executor.submit(new Runnable() {
+            public void run() {
+                SCM scm = project.getScm();
+                if (tryIndex(project.getFullName(), scm, project)) {
+                    return;
+                }
+                Hudson h = Hudson.getInstance();
+                if (project.getScm() == scm && h != null && h.getItemByFullName(project.getFullName()) == project) {
+                    executor.schedule(this, RETRY_DELAY, TimeUnit.SECONDS);
+                }
+            }
+        });
+    }
+
+    /**
+     * Indexes the job now, or makes it a fallback if that fails.
+     *
+     * @return false if the job couldn't be indexed.
+     */
+    /*package*/ boolean tryIndex(String job, SCM scm, AbstractProject<?, ?> context) {
+        try {
+            index(job, scm, context);
+            return true;
+        } catch (SVNException e) {
+            LOGGER.log(Level.FINE, "Failed to index the module locations of " + job
+                + ". Retrying in " + RETRY_DELAY + " seconds", e);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to index the module locations of " + job
+                + ". Retrying in " + RETRY_DELAY + " seconds", e);
+        }
+        synchronized (this) {
+            // what was indexed may be for another configuration
+            remove(job);
+            fallback.add(job);
+            pending.remove(job);
+        }
+        return false;
+    }
+
+    /**
+     * Indexes the job now. This may contact the repositories.
+     */
+    /*package*/ void index(AbstractProject<?, ?> project) throws SVNException {
+        index(project.getFullName(), project.getScm(), project);
+    }
+
+    /*package*/ void index(String job, SCM scm, AbstractProject<?, ?> context) throws SVNException {
+        Map<UUID, Map<String, String>> locations = new HashMap<UUID, Map<String, String>>();
+        if (scm instanceof SubversionSCM) {
+            for (ModuleLocation loc : ((SubversionSCM) scm).getLocations()) {
+                if (loc.getURL().indexOf('$') != -1) {
+                    putUnindexable(job, scm);
+                    return;
+                }
+            }
+            for (ModuleLocation loc : ((SubversionSCM) scm).getLocations()) {
+                String m = loc.getSVNURL().getPath();
+                UUID uuid = loc.getUUID(context);
+                String n = loc.getRepositoryRoot(context).getPath();
+                if (!m.startsWith(n)) {
+                    continue;   // repository root should be a subpath of the module path, but be defensive
+                }
+                Map<String, String> paths = locations.get(uuid);
+                if (paths == null) {
+                    locations.put(uuid, paths = new LinkedHashMap<String, String>());
+                }
+                if (!paths.containsKey(m.substring(n.length()))) {
+                    paths.put(m.substring(n.length()), loc.getURL());
+                }
+            }
+        }
+        put(job, scm, locations);
+    }
+
+    /**
+     * @param locations repository UUID to the paths of the module locations in it, relative to the root,
+     * and their URLs.
+     */
+    /*package*/ synchronized void put(String job, SCM scm, Map<UUID, Map<String, String>> locations) {
+        remove(job);
+        IndexedJob indexed = new IndexedJob(scm);
+        for (Map.Entry<UUID, Map<String, String>> e : locations.entrySet()) {
+            Node root = repositories.get(e.getKey());
+            if (root == null) {
+                repositories.put(e.getKey(), root = new Node());
+            }
+            for (Map.Entry<String, String> path : e.getValue().entrySet()) {
+                Node n = root;
+                for (String name : path.getKey().split("/")) {
+                    if (name.length() > 0) {
+                        n = n.child(name);
+                    }
+                }
+                n.jobs.put(job, path.getValue());
+                indexed.nodes.add(n);
+            }
+        }
+        jobs.put(job, indexed);
+        pending.remove(job);
+    }
+
+    /**
+     * Records a job whose module locations can't be indexed.
+     */
+    /*package*/ synchronized void putUnindexable(String job, SCM scm) {
+        remove(job);
+        jobs.put(job, new IndexedJob(scm));
+        unindexable.add(job);
+        pending.remove(job);
+    }
+
+    public synchronized void remove(String job) {
+        unindexable.remove(job);
+        fallback.remove(job);
+        IndexedJob indexed = jobs.remove(job);
+        if (indexed != null) {
+            for (Node n : indexed.nodes) {
+                n.jobs.remove(job);
+            }
+        }
+    }
+
+    /**
+     * Is the current configuration of the job in the index?
+     */
+    public synchronized boolean isIndexed(AbstractProject<?, ?> project) {
+        IndexedJob indexed = jobs.get(project.getFullName());
+        return indexed != null && indexed.scm == project.getScm();
+    }
+
+    /**
+     * Gets the full names of the jobs that are waiting to be indexed.
+     * They may use any repository.
+     */
+    public synchronized List<String> getPendingJobs() {
+        return new ArrayList<String>(pending);
+    }
+
+    /**
+     * Gets the full names of the jobs whose module locations are parameterized, and so can't be indexed.
+     */
+    public synchronized List<String> getUnindexableJobs() {
+        return new ArrayList<String>(unindexable);
+    }
+
+    /**
+     * Gets the full names of the jobs that failed to be indexed, and whose module locations have to be looked at
+     * one by one.
+     */
+    public synchronized List<String> getFallbackJobs() {
+        return new ArrayList<String>(fallback);
+    }
+
+    /**
+     * Is any indexed job using the given repository?
+     */
+    public synchronized boolean hasRepository(UUID uuid) {
+        return repositories.containsKey(uuid);
+    }
+
+    /**
+     * Finds the indexed jobs that have a module location at or above one of the given paths.
+     *
+     * @param paths paths relative to the repository root, as reported by <tt>svnlook changed</tt>.
+     * @return full name of the job to the URL of the first matching module location.
+     */
+    public synchronized Map<String, String> findJobs(UUID uuid, Collection<String> paths) {
+        Map<String, String> r = new HashMap<String, String>();
+        Node root = repositories.get(uuid);
+        if (root == null) {
+            return r;
+        }
+        for (String path : paths) {
+            Node n = root;
+            int start = 0;
+            while (n != null) {
+                for (Map.Entry<String, String> e : n.jobs.entrySet()) {
+                    if (!r.containsKey(e.getKey())) {
+                        r.put(e.getKey(), e.getValue());
+                    }
+                }
+                while (start < path.length() && path.charAt(start) == '/') {
+                    start++;
+                }
+                if (start == path.length()) {
+                    break;
+                }
+                int end = path.indexOf('/', start);
+                if (end < 0) {
+                    end = path.length();
+                }
+                n = n.children.get(path.substring(start, end));
+                start = end;
+            }
+        }
+        return r;
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(SubversionJobIndex.class.getName());
+
+    /**
+     * Seconds after which indexing a job is retried, if the repository couldn't be reached.
+     */
+    public static int RETRY_DELAY = Integer.getInteger(SubversionJobIndex.class.getName() + ".retryDelay", 300)
+        .intValue();
+
+    /**
+     * Keeps the index up to date with the jobs.
+     */
+    @Extension
+    public static final class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onLoaded() {
+            for (AbstractProject<?, ?> p : Hudson.getInstance().getAllItems(AbstractProject.class)) {
+                get().schedule(p);
+            }
+        }
+
+        @Override
+        public void onCreated(Item item) {
+            if (item instanceof AbstractProject) {
+                get().schedule((AbstractProject<?, ?>) item);
+            }
+        }
+
+        @Override
+        public void onCopied(Item src, Item item) {
+            onCreated(item);
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            if (item instanceof AbstractProject) {
+                String parent = item.getParent().getFullName();
+                get().remove(parent.length() == 0 ? oldName : parent + '/' + oldName);
+                get().schedule((AbstractProject<?, ?>) item);
+            }
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            get().remove(item.getFullName());
+        }
+    }
+
+    /**
+     * Reindexes jobs when their configuration is saved.
+     */
+    @Extension
+    public static final class SaveableListenerImpl extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof AbstractProject) {
+                get().schedule((AbstractProject<?, ?>) o);
+            }
+        }
+    }
+}
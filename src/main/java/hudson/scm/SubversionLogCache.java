@@ -0,0 +1,460 @@
+package hudson.scm;
+
+import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+import org.tmatesoft.svn.core.SVNProperties;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+/**
+ * Keeps the log of the repositories on disk, under <tt>$HUDSON_HOME/svn-log-cache/UUID</tt>, so that
+ * polling and changelog computation only ask the server for the revisions that haven't been seen yet.
+ * <p/>
+ * The log of the whole repository is cached, from the first revision asked for to a high-water mark.
+ * The log of a location is then derived by picking the entries that changed something in it. When that
+ * isn't equivalent to asking the server (the location or one of its parents was copied, replaced or deleted
+ * in the range), or when the range isn't covered, the caller is told to go to the server.
+ * <p/>
+ * The log is fetched with the global credentials, so it is only used for jobs without credentials of their
+ * own. Only available on the master, and disabled unless {@link #ENABLED} is set.
+ */
+public final class SubversionLogCache {
+
+    private final File dir;
+
+    /**
+     * Repository UUID to its cache.
+     */
+    private final Map<String, RepositoryLog> logs = new HashMap<String, RepositoryLog>();
+
+    /**
+     * Location URL (decoded) to {root URL, UUID} of its repository.
+     */
+    private final Map<String, String[]> roots = new ConcurrentHashMap<String, String[]>();
+
+    private static SubversionLogCache instance;
+
+    /*package*/ SubversionLogCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Returns the cache, or null if it isn't available in this JVM.
+     */
+    public static synchronized SubversionLogCache get() {
+        if (!ENABLED || Hudson.getInstance() == null) {
+            return null;
+        }
+        if (instance == null) {
+            instance = new SubversionLogCache(new File(Hudson.getInstance().getRootDir(), "svn-log-cache"));
+        }
+        return instance;
+    }
+
+    /**
+     * Can the given project use the cache?
+     */
+    public static boolean canUse(AbstractProject<?, ?> project) {
+        // the log is fetched with the global credentials. with other credentials, the job may see other paths.
+        return get() != null && PerJobCredentialStore.get(project).isEmpty();
+    }
+
+    /**
+     * Gets the log entries of the given location, as "svn log -v -r from:to url" would report them.
+     *
+     * @return the entries in the ascending order of revisions, or null if the server needs to be asked.
+     */
+    public List<SVNLogEntry> getLog(SVNURL url, long from, long to) {
+        if (from > to) {
+            return new ArrayList<SVNLogEntry>();
+        }
+        ISVNAuthenticationProvider authProvider = Hudson.getInstance()
+            .getDescriptorByType(SubversionSCM.DescriptorImpl.class).createAuthenticationProvider(null);
+        SVNClientManager manager = SubversionSCM.createPooledSvnClientManager(authProvider);
+        try {
+            String key = url.toDecodedString();
+            String[] root = roots.get(key);
+            SVNRepository repository = manager.createRepository(url, true);
+            if (root == null) {
+                root = new String[]{repository.getRepositoryRoot(true).toDecodedString(),
+                    repository.getRepositoryUUID(true)};
+                roots.put(key, root);
+            }
+            repository.setLocation(SVNURL.parseURIDecoded(root[0]), false);
+            String path = key.substring(root[0].length());
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            return getLog(repository, root[1], path, from, to);
+        } catch (SVNException e) {
+            LOGGER.log(Level.WARNING, "Failed to update the log cache for " + url, e);
+            return null;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to access the log cache for " + url, e);
+            return null;
+        } finally {
+            manager.dispose();
+        }
+    }
+
+    /**
+     * @param repository session opened on the repository root.
+     * @param path path of the location relative to the repository root, starting with '/' or empty.
+     */
+    /*package*/ List<SVNLogEntry> getLog(SVNRepository repository, String uuid, String path, long from, long to)
+        throws SVNException, IOException {
+        RepositoryLog log;
+        synchronized (logs) {
+            log = logs.get(uuid);
+            if (log == null) {
+                logs.put(uuid, log = new RepositoryLog(new File(dir, uuid)));
+            }
+        }
+
+        long fetchFrom;
+        synchronized (log) {
+            log.load();
+            if (log.isEmpty() || to - log.high > MAX_FILL) {
+                if (to - from >= MAX_FILL) {
+                    return null; // not worth fetching the whole repository for
+                }
+                if (log.inProgress > 0) {
+                    return null; // the cache still serves others
+                }
+                // nothing useful on disk. start over from here
+                log.reset(from - 1);
+            }
+            if (from <= log.low) {
+                return null; // append-only, so older revisions are never going to be there
+            }
+            if (to <= log.high) {
+                return read(log, path, from, to);
+            }
+            fetchFrom = log.high + 1;
+            // keeps the cache from being reset until the entries are appended
+            log.inProgress++;
+        }
+
+        try {
+            // the server may take a while, so others can read the cache meanwhile
+            final List<SVNLogEntry> fetched = new ArrayList<SVNLogEntry>();
+            repository.log(new String[]{""}, fetchFrom, to, true, false, 0, false, null,
+                new ISVNLogEntryHandler() {
+                    public void handleLogEntry(SVNLogEntry logEntry) {
+                        fetched.add(logEntry);
+                    }
+                });
+
+            synchronized (log) {
+                if (to > log.high) {
+                    // others may have appended some of these meanwhile
+                    List<SVNLogEntry> newer = new ArrayList<SVNLogEntry>();
+                    for (SVNLogEntry e : fetched) {
+                        if (e.getRevision() > log.high) {
+                            newer.add(e);
+                        }
+                    }
+                    log.append(newer, to);
+                }
+                return read(log, path, from, to);
+            }
+        } finally {
+            synchronized (log) {
+                log.inProgress--;
+            }
+        }
+    }
+
+    /**
+     * Picks the entries of the location from the cache, which must cover [from, to].
+     */
+    private static List<SVNLogEntry> read(RepositoryLog log, String path, long from, long to) throws IOException {
+        List<SVNLogEntry> r = new ArrayList<SVNLogEntry>();
+        for (SVNLogEntry e : log.read(from, to)) {
+            if (SubversionLogTailer.RepositoryLog.touches(e, path)) {
+                if (changesHistory(e, path)) {
+                    return null; // "svn log" would follow the copy, or fail
+                }
+                r.add(e);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Was the location, or one of its parents, copied, replaced or deleted by this entry?
+     */
+    private static boolean changesHistory(SVNLogEntry e, String path) {
+        for (Object o : e.getChangedPaths().values()) {
+            SVNLogEntryPath p = (SVNLogEntryPath) o;
+            boolean plainAdd = p.getType() == SVNLogEntryPath.TYPE_ADDED && p.getCopyPath() == null;
+            if (p.getType() != SVNLogEntryPath.TYPE_MODIFIED && !plainAdd
+                && (p.getPath().equals(path) || path.startsWith(p.getPath() + '/'))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Log of one repository, from {@link #low} (exclusive) to {@link #high} (inclusive).
+     * <p/>
+     * Stored in three files: "log" has the entries one after another, "index" has a (revision, offset)
+     * pair of longs per entry, and "range" records low, high, and the valid length of the other two.
+     * "range" is rewritten last, so anything appended after an interrupted update is ignored.
+     */
+    /*package*/ static final class RepositoryLog {
+        private final File dir;
+        private long low = -1, high = -1;
+        private long dataLength, indexLength;
+        private boolean loaded;
+
+        /**
+         * Number of requests fetching entries to append, which rely on the cache not being reset meanwhile.
+         */
+        int inProgress;
+
+        RepositoryLog(File dir) {
+            this.dir = dir;
+        }
+
+        boolean isEmpty() {
+            return high < 0;
+        }
+
+        void load() throws IOException {
+            if (loaded) {
+                return;
+            }
+            File range = new File(dir, "range");
+            if (range.exists()) {
+                DataInputStream in = new DataInputStream(new FileInputStream(range));
+                try {
+                    low = in.readLong();
+                    high = in.readLong();
+                    dataLength = in.readLong();
+                    indexLength = in.readLong();
+                } finally {
+                    in.close();
+                }
+            }
+            loaded = true;
+        }
+
+        void reset(long newLow) throws IOException {
+            new File(dir, "log").delete();
+            new File(dir, "index").delete();
+            low = high = newLow;
+            dataLength = indexLength = 0;
+            writeRange();
+        }
+
+        /**
+         * Appends the given entries, and moves the high-water mark to the given revision.
+         */
+        void append(List<SVNLogEntry> entries, long newHigh) throws IOException {
+            RandomAccessFile data = new RandomAccessFile(new File(dir, "log"), "rw");
+            RandomAccessFile index = new RandomAccessFile(new File(dir, "index"), "rw");
+            try {
+                data.setLength(dataLength);
+                index.setLength(indexLength);
+                data.seek(dataLength);
+                index.seek(indexLength);
+                ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                ByteArrayOutputStream indexBuf = new ByteArrayOutputStream();
+                DataOutputStream indexOut = new DataOutputStream(indexBuf);
+                long offset = dataLength;
+                for (SVNLogEntry e : entries) {
+                    buf.reset();
+                    write(e, new DataOutputStream(buf));
+                    data.write(buf.toByteArray());
+                    indexOut.writeLong(e.getRevision());
+                    indexOut.writeLong(offset);
+                    offset += buf.size();
+                }
+                index.write(indexBuf.toByteArray());
+                data.getFD().sync();
+                index.getFD().sync();
+                dataLength = offset;
+                indexLength += indexBuf.size();
+            } finally {
+                data.close();
+                index.close();
+            }
+            high = newHigh;
+            writeRange();
+        }
+
+        /**
+         * Reads the entries of revisions in [from, to].
+         */
+        List<SVNLogEntry> read(long from, long to) throws IOException {
+            List<SVNLogEntry> r = new ArrayList<SVNLogEntry>();
+            if (indexLength == 0) {
+                return r;
+            }
+            RandomAccessFile index = new RandomAccessFile(new File(dir, "index"), "r");
+            RandomAccessFile data = new RandomAccessFile(new File(dir, "log"), "r");
+            try {
+                // find the first entry at or after 'from'
+                long lo = 0, hi = indexLength / 16;
+                while (lo < hi) {
+                    long mid = (lo + hi) >>> 1;
+                    index.seek(mid * 16);
+                    if (index.readLong() < from) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                for (long i = lo; i < indexLength / 16; i++) {
+                    index.seek(i * 16);
+                    long rev = index.readLong();
+                    if (rev > to) {
+                        break;
+                    }
+                    long start = index.readLong();
+                    long end = i + 1 < indexLength / 16 ? readOffset(index, i + 1) : dataLength;
+                    byte[] bytes = new byte[(int) (end - start)];
+                    data.seek(start);
+                    data.readFully(bytes);
+                    r.add(read(new DataInputStream(new ByteArrayInputStream(bytes))));
+                }
+            } finally {
+                index.close();
+                data.close();
+            }
+            return r;
+        }
+
+        private static long readOffset(RandomAccessFile index, long i) throws IOException {
+            index.seek(i * 16 + 8);
+            return index.readLong();
+        }
+
+        private void writeRange() throws IOException {
+            dir.mkdirs();
+            File tmp = new File(dir, "range.tmp");
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeLong(low);
+                out.writeLong(high);
+                out.writeLong(dataLength);
+                out.writeLong(indexLength);
+            } finally {
+                out.close();
+            }
+            File range = new File(dir, "range");
+            range.delete();
+            if (!tmp.renameTo(range)) {
+                throw new IOException("Failed to rename " + tmp + " to " + range);
+            }
+        }
+
+        private static void write(SVNLogEntry e, DataOutputStream out) throws IOException {
+            out.writeLong(e.getRevision());
+            SVNProperties props = e.getRevisionProperties();
+            Map<?, ?> values = props != null ? props.asMap() : new HashMap<Object, Object>();
+            out.writeInt(values.size());
+            for (Map.Entry<?, ?> p : values.entrySet()) {
+                writeString(out, (String) p.getKey());
+                writeBytes(out, SVNPropertyValue.getPropertyAsBytes((SVNPropertyValue) p.getValue()));
+            }
+            Map<?, ?> paths = e.getChangedPaths();
+            out.writeInt(paths.size());
+            for (Object o : paths.values()) {
+                SVNLogEntryPath p = (SVNLogEntryPath) o;
+                writeString(out, p.getPath());
+                out.writeChar(p.getType());
+                writeString(out, p.getCopyPath());
+                out.writeLong(p.getCopyRevision());
+            }
+        }
+
+        private static SVNLogEntry read(DataInputStream in) throws IOException {
+            long revision = in.readLong();
+            SVNProperties props = new SVNProperties();
+            for (int i = in.readInt(); i > 0; i--) {
+                String name = readString(in);
+                props.put(name, readBytes(in));
+            }
+            Map<String, SVNLogEntryPath> paths = new LinkedHashMap<String, SVNLogEntryPath>();
+            for (int i = in.readInt(); i > 0; i--) {
+                String path = readString(in);
+                char type = in.readChar();
+                String copyPath = readString(in);
+                paths.put(path, new SVNLogEntryPath(path, type, copyPath, in.readLong()));
+            }
+            return new SVNLogEntry(paths, revision, props, false);
+        }
+
+        private static void writeString(DataOutputStream out, String s) throws IOException {
+            writeBytes(out, s == null ? null : s.getBytes("UTF-8"));
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            byte[] b = readBytes(in);
+            return b == null ? null : new String(b, "UTF-8");
+        }
+
+        private static void writeBytes(DataOutputStream out, byte[] b) throws IOException {
+            if (b == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(b.length);
+                out.write(b);
+            }
+        }
+
+        private static byte[] readBytes(DataInputStream in) throws IOException {
+            int len = in.readInt();
+            if (len < 0) {
+                return null;
+            }
+            byte[] b = new byte[len];
+            in.readFully(b);
+            return b;
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(SubversionLogCache.class.getName());
+
+    /**
+     * Enables the cache.
+     */
+    public static boolean ENABLED = Boolean.getBoolean(SubversionLogCache.class.getName() + ".enabled");
+
+    /**
+     * If the cache is behind the requested revision by more than this, it's discarded and started over,
+     * rather than fetching the log of the whole repository in between. While other requests are still fetching
+     * into it, the server is asked instead.
+     */
+    public static int MAX_FILL = Integer.getInteger(SubversionLogCache.class.getName() + ".maxFill", 10000).intValue();
+}
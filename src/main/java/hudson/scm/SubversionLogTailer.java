@@ -0,0 +1,298 @@
+package hudson.scm;
+
+import hudson.Extension;
+import hudson.model.AbstractProject;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Hudson;
+import hudson.model.PeriodicWork;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+/**
+ * Follows the log of every repository that jobs poll, so that polling can be answered from memory
+ * instead of every job running its own "svn info" and "svn log" against the server.
+ * <p/>
+ * Every {@link #INTERVAL} milliseconds, the log of each known repository root is fetched once,
+ * from the last revision seen to HEAD, and the entries are kept in memory (at most {@link #MAX_ENTRIES}
+ * per repository). {@link SubversionSCM} then evaluates its locations and exclusion rules against those
+ * entries. A repository becomes known the first time a job polls a location in it.
+ * <p/>
+ * The log is fetched with the global credentials, so jobs that have their own credentials are
+ * always polled directly. A post-commit notification marks the repository as out of date until the
+ * next fetch, so that the polling it triggers doesn't miss the new commit.
+ * <p/>
+ * Disabled unless {@link #INTERVAL} is set to a positive value.
+ */
+@Extension
+public class SubversionLogTailer extends AsyncPeriodicWork {
+
+    /**
+     * Repository root URL (decoded) to its log.
+     */
+    private final Map<String, RepositoryLog> logs = new ConcurrentHashMap<String, RepositoryLog>();
+
+    /**
+     * Locations that were polled but whose repository isn't followed yet.
+     */
+    private final Set<String> pending = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public SubversionLogTailer() {
+        super("Subversion log tailer");
+    }
+
+    public static SubversionLogTailer get() {
+        return PeriodicWork.all().get(SubversionLogTailer.class);
+    }
+
+    public static boolean isEnabled() {
+        return INTERVAL > 0;
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return isEnabled() ? INTERVAL : DAY;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        if (!isEnabled()) {
+            return;
+        }
+
+        ISVNAuthenticationProvider authProvider = Hudson.getInstance()
+            .getDescriptorByType(SubversionSCM.DescriptorImpl.class).createAuthenticationProvider(null);
+        SVNClientManager manager = SubversionSCM.createPooledSvnClientManager(authProvider);
+        try {
+            for (String url : new ArrayList<String>(pending)) {
+                pending.remove(url);
+                if (findLog(url) != null) {
+                    continue;
+                }
+                try {
+                    SVNRepository repository = manager.createRepository(SVNURL.parseURIDecoded(url), true);
+                    long head = repository.getLatestRevision();
+                    String root = repository.getRepositoryRoot(true).toDecodedString();
+                    UUID uuid = UUID.fromString(repository.getRepositoryUUID(true));
+                    logs.put(root, new RepositoryLog(root, uuid, head));
+                    listener.getLogger().println("Following " + root + " from revision " + head);
+                } catch (SVNException e) {
+                    e.printStackTrace(listener.error("Failed to find the repository of " + url));
+                }
+            }
+
+            for (final RepositoryLog log : logs.values()) {
+                try {
+                    log.refresh(manager.createRepository(SVNURL.parseURIDecoded(log.root), true));
+                } catch (SVNException e) {
+                    e.printStackTrace(listener.error("Failed to fetch the log of " + log.root));
+                }
+            }
+        } finally {
+            manager.dispose();
+        }
+    }
+
+    /**
+     * Can the polling of the given project be answered from the log kept here?
+     */
+    boolean canServe(AbstractProject<?, ?> project) {
+        // the log is fetched with the global credentials. with other credentials, the job may see other paths.
+        return isEnabled() && PerJobCredentialStore.get(project).isEmpty();
+    }
+
+    /**
+     * Returns what happened to the given location since the given revision, or null if this isn't known.
+     * In the latter case, the repository of the location will be followed from now on.
+     *
+     * @param url decoded URL of the location.
+     * @param baseRevision revision of the location in the workspace.
+     */
+    Changes getChanges(String url, long baseRevision) {
+        RepositoryLog log = findLog(url);
+        if (log == null) {
+            pending.add(url);
+            return null;
+        }
+        return log.getChanges(url.substring(log.root.length()), baseRevision);
+    }
+
+    /**
+     * Called when a commit is reported to the given repository.
+     */
+    public void invalidate(UUID uuid) {
+        for (RepositoryLog log : logs.values()) {
+            if (log.uuid.equals(uuid)) {
+                log.invalidate();
+            }
+        }
+    }
+
+    private RepositoryLog findLog(String url) {
+        for (RepositoryLog log : logs.values()) {
+            if (url.equals(log.root) || url.startsWith(log.root + '/')) {
+                return log;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * What happened to a location after a given revision.
+     */
+    static final class Changes {
+        /**
+         * Last revision that changed the location.
+         */
+        final long revision;
+
+        /**
+         * Log entries that touched the location, oldest first.
+         */
+        final List<SVNLogEntry> entries;
+
+        Changes(long revision, List<SVNLogEntry> entries) {
+            this.revision = revision;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * Log entries of one repository, from {@link #firstRevision} to {@link #head}.
+     */
+    static final class RepositoryLog {
+        final String root;
+        final UUID uuid;
+
+        /**
+         * Oldest revision from which all the entries are known.
+         */
+        private long firstRevision;
+        private long head;
+        private final List<SVNLogEntry> entries = new ArrayList<SVNLogEntry>();
+
+        /**
+         * Number of commit notifications received, and the value of it when the last fetch started.
+         * The log can only be trusted when they are equal.
+         */
+        private long invalidations;
+        private long validAsOf;
+
+        RepositoryLog(String root, UUID uuid, long head) {
+            this.root = root;
+            this.uuid = uuid;
+            this.head = head;
+            this.firstRevision = head + 1;
+        }
+
+        synchronized void invalidate() {
+            invalidations++;
+        }
+
+        /**
+         * Fetches the entries committed since the last refresh.
+         *
+         * @param repository session opened on {@link #root}.
+         */
+        void refresh(SVNRepository repository) throws SVNException {
+            long from;
+            long started;
+            synchronized (this) {
+                from = head + 1;
+                started = invalidations;
+            }
+            long to = repository.getLatestRevision();
+            final List<SVNLogEntry> fetched = new ArrayList<SVNLogEntry>();
+            if (to >= from) {
+                repository.log(new String[]{""}, from, to, true, false, 0, false, null, new ISVNLogEntryHandler() {
+                    public void handleLogEntry(SVNLogEntry logEntry) {
+                        fetched.add(logEntry);
+                    }
+                });
+            }
+            append(fetched, Math.max(to, from - 1), started);
+        }
+
+        /**
+         * Adds the entries in (head, newHead].
+         */
+        synchronized void append(List<SVNLogEntry> fetched, long newHead, long started) {
+            entries.addAll(fetched);
+            head = newHead;
+            validAsOf = started;
+            while (entries.size() > MAX_ENTRIES) {
+                firstRevision = entries.remove(0).getRevision() + 1;
+            }
+        }
+
+        /**
+         * @param path path of the location relative to {@link #root}, starting with '/' or empty.
+         */
+        synchronized Changes getChanges(String path, long baseRevision) {
+            if (validAsOf != invalidations || baseRevision + 1 < firstRevision || baseRevision > head) {
+                return null;
+            }
+            long revision = baseRevision;
+            List<SVNLogEntry> touched = new ArrayList<SVNLogEntry>();
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                SVNLogEntry e = entries.get(i);
+                if (e.getRevision() <= baseRevision) {
+                    break;
+                }
+                if (touches(e, path)) {
+                    touched.add(0, e);
+                    revision = Math.max(revision, e.getRevision());
+                }
+            }
+            return new Changes(revision, touched);
+        }
+
+        /**
+         * Does the log entry change anything at or below the given path?
+         */
+        /*package*/ static boolean touches(SVNLogEntry e, String path) {
+            if (path.length() == 0) {
+                return true;
+            }
+            for (Object o : e.getChangedPaths().values()) {
+                SVNLogEntryPath p = (SVNLogEntryPath) o;
+                String changed = p.getPath();
+                if (changed.equals(path) || changed.startsWith(path + '/')) {
+                    return true;
+                }
+                // a copy, replacement or deletion of a parent directory affects us too
+                if (p.getType() != SVNLogEntryPath.TYPE_MODIFIED && path.startsWith(changed + '/')) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * How often, in milliseconds, the log of the repositories is fetched. 0 or less disables the tailer.
+     */
+    public static int INTERVAL = Integer.getInteger(SubversionLogTailer.class.getName() + ".interval", 0).intValue();
+
+    /**
+     * Maximum number of log entries kept in memory per repository.
+     */
+    public static int MAX_ENTRIES = Integer.getInteger(SubversionLogTailer.class.getName() + ".maxEntries", 5000)
+        .intValue();
+}
@@ -33,12 +33,16 @@ import hudson.util.QueryParameterMap;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import static java.util.logging.Level.*;
 import java.util.logging.Logger;
 import javax.servlet.ServletException;
+import static javax.servlet.http.HttpServletResponse.SC_ACCEPTED;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_SERVICE_UNAVAILABLE;
 import org.apache.commons.io.IOUtils;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -100,7 +104,12 @@ public class SubversionRepositoryStatus extends AbstractModelObject {
         if (LOGGER.isLoggable(FINE)) {
             LOGGER.fine("Change reported to Subversion repository " + uuid + " on " + affectedPath);
         }
-        boolean scmFound = false, triggerFound = false, uuidFound = false, pathFound = false;
+        // whatever we knew about the head of this repository is now outdated
+        RemoteRevisionCache.get().invalidate(uuid);
+        SubversionLogTailer tailer = SubversionLogTailer.get();
+        if (tailer != null) {
+            tailer.invalidate(uuid);
+        }
 
         // we can't reliably use req.getParameter() as it can try to parse the payload, which we've already consumed above.
         // servlet container relies on Content-type to decide if it wants to parse the payload or not, and at least
@@ -117,85 +126,132 @@ public class SubversionRepositoryStatus extends AbstractModelObject {
             }
         }
 
-        OUTER:
-        for (AbstractProject<?, ?> p : Hudson.getInstance().getItems(AbstractProject.class)) {
-            try {
-                SCM scm = p.getScm();
-                if (scm instanceof SubversionSCM) {
-                    scmFound = true;
-                } else {
-                    continue;
-                }
+        if (CommitNotificationQueue.isEnabled()) {
+            if (CommitNotificationQueue.get().offer(uuid, affectedPath, rev)) {
+                rsp.setStatus(SC_ACCEPTED);
+            } else {
+                LOGGER.warning("Too many Subversion commit notifications queued. Dropped the one for " + uuid);
+                rsp.setStatus(SC_SERVICE_UNAVAILABLE);
+            }
+            return;
+        }
 
-                SCMTrigger trigger = p.getTrigger(SCMTrigger.class);
-                if (trigger != null) {
-                    triggerFound = true;
-                } else {
-                    continue;
-                }
+        scheduleAffectedJobs(uuid, affectedPath, rev, rev);
+        rsp.setStatus(SC_OK);
+    }
 
-                SubversionSCM sscm = (SubversionSCM) scm;
-                for (ModuleLocation loc : sscm.getLocations()) {
-                    if (loc.getUUID(p).equals(uuid)) {
-                        uuidFound = true;
-                    } else {
-                        continue;
-                    }
-
-                    String m = loc.getSVNURL().getPath();
-                    String n = loc.getRepositoryRoot(p).getPath();
-                    if (!m.startsWith(n)) {
-                        continue;   // repository root should be a subpath of the module path, but be defensive
-                    }
-                    String remaining = m.substring(n.length());
-                    if (remaining.startsWith("/")) {
-                        remaining = remaining.substring(1);
-                    }
-                    String remainingSlash = remaining + '/';
-
-                    final RevisionParameterAction[] actions;
-                    if (rev != -1) {
-                        SvnInfo info[] = {new SvnInfo(loc.getURL(), rev)};
-                        RevisionParameterAction action = new RevisionParameterAction(info);
-                        actions = new RevisionParameterAction[]{action};
-
-                    } else {
-                        actions = new RevisionParameterAction[0];
-                    }
-
-                    for (String path : affectedPath) {
-                        if (path.equals(remaining)
-                        		/*
-                                 * for files
-                                 */ || path.startsWith(remainingSlash) /*
-                                 * for dirs
-                                 */ || remaining.length() == 0) {
-                            // this project is possibly changed. poll now.
-                            // if any of the data we used was bogus, the trigger will not detect a change
-                            LOGGER.fine("Scheduling the immediate polling of " + p);
-                            trigger.run(actions);
-                            pathFound = true;
-
-                            continue OUTER;
-                        }
-                    }
+    /**
+     * Schedules the polling of the jobs that use the changed paths.
+     * <p/>
+     * The jobs are looked up in the {@link SubversionJobIndex}. Jobs that are still waiting to be indexed are
+     * polled regardless of the paths, the module locations of the jobs that failed to be indexed are looked at one
+     * by one, and jobs with parameterized module locations aren't polled.
+     *
+     * @param firstRev the lowest committed revision the paths were reported for, or -1 if unknown.
+     * @param rev the highest committed revision, or -1 if unknown.
+     */
+    /*package*/ static void scheduleAffectedJobs(UUID uuid, Set<String> affectedPath, long firstRev, long rev) {
+        PostCommitEvidence evidence = firstRev != -1 && rev != -1
+            ? new PostCommitEvidence(uuid, firstRev, rev, affectedPath) : null;
+        boolean triggerFound = false;
+
+        SubversionJobIndex index = SubversionJobIndex.get();
+        // full name of the job to the URL of the affected module location, or null if not known yet
+        Map<String, String> jobs = index.findJobs(uuid, affectedPath);
+        boolean uuidFound = index.hasRepository(uuid);
+        List<String> pending = index.getPendingJobs();
+        for (String name : pending) {
+            // what was indexed may be for the previous configuration
+            jobs.put(name, null);
+        }
+
+        Hudson hudson = Hudson.getInstance();
+        List<String> fallback = index.getFallbackJobs();
+        for (String name : fallback) {
+            AbstractProject<?, ?> p = hudson.getItemByFullName(name, AbstractProject.class);
+            if (jobs.containsKey(name) || p == null || !(p.getScm() instanceof SubversionSCM)
+                || p.getTrigger(SCMTrigger.class) == null) {
+                continue;
+            }
+            try {
+                String url = findAffectedLocation(p, (SubversionSCM) p.getScm(), uuid, affectedPath);
+                if (url != null) {
+                    jobs.put(name, url);
                 }
             } catch (SVNException e) {
                 LOGGER.log(WARNING, "Failed to handle Subversion commit notification", e);
             }
         }
 
-        if (!scmFound) {
-            LOGGER.warning("No subversion jobs found");
-        } else if (!triggerFound) {
-            LOGGER.warning("No subversion jobs using SCM polling");
-        } else if (!uuidFound) {
+        for (Map.Entry<String, String> e : jobs.entrySet()) {
+            AbstractProject<?, ?> p = hudson.getItemByFullName(e.getKey(), AbstractProject.class);
+            if (p == null || !(p.getScm() instanceof SubversionSCM)) {
+                continue;
+            }
+            SCMTrigger trigger = p.getTrigger(SCMTrigger.class);
+            if (trigger == null) {
+                continue;
+            }
+            triggerFound = true;
+
+            // this project is possibly changed. poll now.
+            // if any of the data we used was bogus, the trigger will not detect a change
+            LOGGER.fine("Scheduling the immediate polling of " + p);
+            if (evidence != null) {
+                PostCommitEvidence.put(p, evidence);
+            }
+            trigger.run(e.getValue() != null ? createActions(e.getValue(), rev) : new RevisionParameterAction[0]);
+        }
+
+        if (!uuidFound && pending.isEmpty() && fallback.isEmpty()) {
             LOGGER.warning("No subversion jobs using repository: " + uuid);
-        } else if (!pathFound) {
+        } else if (jobs.isEmpty()) {
             LOGGER.fine("No jobs found matching the modified files");
+        } else if (!triggerFound) {
+            LOGGER.fine("None of the jobs matching the modified files use SCM polling");
         }
+    }
 
-        rsp.setStatus(SC_OK);
+    /**
+     * Finds the module location of the job that has one of the changed paths, without the index.
+     *
+     * @return the URL of the location, or null if there's none.
+     */
+    private static String findAffectedLocation(AbstractProject<?, ?> p, SubversionSCM scm, UUID uuid,
+                                               Set<String> affectedPath) throws SVNException {
+        for (ModuleLocation loc : scm.getLocations()) {
+            if (!loc.getUUID(p).equals(uuid)) {
+                continue;
+            }
+
+            String m = loc.getSVNURL().getPath();
+            String n = loc.getRepositoryRoot(p).getPath();
+            if (!m.startsWith(n)) {
+                continue;   // repository root should be a subpath of the module path, but be defensive
+            }
+            String remaining = m.substring(n.length());
+            if (remaining.startsWith("/")) {
+                remaining = remaining.substring(1);
+            }
+            String remainingSlash = remaining + '/';
+
+            for (String path : affectedPath) {
+                if (path.equals(remaining) /* for files */ || path.startsWith(remainingSlash) /* for dirs */
+                    || remaining.length() == 0) {
+                    return loc.getURL();
+                }
+            }
+        }
+        return null;
     }
+
+    private static RevisionParameterAction[] createActions(String url, long rev) {
+        if (rev == -1) {
+            return new RevisionParameterAction[0];
+        }
+        SvnInfo info[] = {new SvnInfo(url, rev)};
+        return new RevisionParameterAction[]{new RevisionParameterAction(info)};
+    }
+
     private static final Logger LOGGER = Logger.getLogger(SubversionRepositoryStatus.class.getName());
 }
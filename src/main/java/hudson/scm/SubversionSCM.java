@@ -45,6 +45,7 @@ import hudson.model.ParametersAction;
 import hudson.model.Run;
 import hudson.remoting.Channel;
 import hudson.remoting.DelegatingCallable;
+import hudson.remoting.RemoteOutputStream;
 import hudson.remoting.VirtualChannel;
 import hudson.scm.PollingResult.Change;
 import hudson.scm.UserProvidedCredential.AuthenticationManagerImpl;
@@ -68,10 +69,8 @@ import hudson.util.TimeUnit2;
 import hudson.util.XStream2;
 
 import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamException;
@@ -97,10 +96,13 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
 import javax.xml.transform.stream.StreamResult;
@@ -109,6 +111,7 @@ import net.sf.json.JSONObject;
 
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -126,6 +129,7 @@ import org.tmatesoft.svn.core.SVNDirEntry;
 import org.tmatesoft.svn.core.SVNErrorMessage;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
 import org.tmatesoft.svn.core.SVNNodeKind;
 import org.tmatesoft.svn.core.SVNProperties;
 import org.tmatesoft.svn.core.SVNURL;
@@ -194,6 +198,11 @@ public class SubversionSCM extends SCM implements Serializable {
     private String excludedRevprop;
     private String excludedCommitMessages;
 
+    /**
+     * {@link #excludedRegions} and {@link #includedRegions}, compiled on first use.
+     */
+    private transient volatile PathRegionMatcher excludedRegionsMatcher, includedRegionsMatcher;
+
     private WorkspaceUpdater workspaceUpdater;
 
     // No longer in use but left for serialization compatibility.
@@ -444,20 +453,12 @@ public class SubversionSCM extends SCM implements Serializable {
             ? null : excludedRegions.split("[\\r\\n]+");
     }
 
-    private Pattern[] getExcludedRegionsPatterns() {
-        String[] excluded = getExcludedRegionsNormalized();
-        if (excluded != null) {
-            Pattern[] patterns = new Pattern[excluded.length];
-
-            int i = 0;
-            for (String excludedRegion : excluded) {
-                patterns[i++] = Pattern.compile(excludedRegion);
-            }
-
-            return patterns;
+    private PathRegionMatcher getExcludedRegionsMatcher() {
+        PathRegionMatcher m = excludedRegionsMatcher;
+        if (m == null) {
+            excludedRegionsMatcher = m = new PathRegionMatcher(getExcludedRegionsNormalized());
         }
-
-        return new Pattern[0];
+        return m;
     }
 
     @Exported
@@ -470,20 +471,12 @@ public class SubversionSCM extends SCM implements Serializable {
             ? null : includedRegions.split("[\\r\\n]+");
     }
 
-    private Pattern[] getIncludedRegionsPatterns() {
-        String[] included = getIncludedRegionsNormalized();
-        if (included != null) {
-            Pattern[] patterns = new Pattern[included.length];
-
-            int i = 0;
-            for (String includedRegion : included) {
-                patterns[i++] = Pattern.compile(includedRegion);
-            }
-
-            return patterns;
+    private PathRegionMatcher getIncludedRegionsMatcher() {
+        PathRegionMatcher m = includedRegionsMatcher;
+        if (m == null) {
+            includedRegionsMatcher = m = new PathRegionMatcher(getIncludedRegionsNormalized());
         }
-
-        return new Pattern[0];
+        return m;
     }
 
     @Exported
@@ -594,6 +587,13 @@ public class SubversionSCM extends SCM implements Serializable {
         }
         if (!created) {
             createEmptyChangeLog(changelogFile, listener, "log");
+        } else if (SubversionChangeLogParser.BINARY) {
+            try {
+                BinaryChangeLog.write(changelogFile);
+            } catch (IOException e) {
+                // the XML is still there
+                LOGGER.log(Level.WARNING, "Failed to write the binary change log of " + build, e);
+            }
         }
 
         return true;
@@ -628,12 +628,11 @@ public class SubversionSCM extends SCM implements Serializable {
      *
      * @param findClosest If true, this method will go back the build history until it finds a revision file.
      * A build may not have a revision file for any number of reasons (such as failure, interruption, etc.)
-     * @return map from {@link SvnInfo#url Subversion URL} to its revision.
+     * @return immutable map from {@link SvnInfo#url Subversion URL} to its revision. The file is read again only
+     * when it changes.
      */
     /*package*/
     static Map<String, Long> parseRevisionFile(AbstractBuild<?, ?> build, boolean findClosest) throws IOException {
-        Map<String, Long> revisions = new HashMap<String, Long>(); // module -> revision
-
         if (findClosest) {
             for (AbstractBuild<?, ?> b = build; b != null; b = b.getPreviousBuild()) {
                 if (getRevisionFile(b).exists()) {
@@ -643,35 +642,7 @@ public class SubversionSCM extends SCM implements Serializable {
             }
         }
 
-        {// read the revision file of the build
-            File file = getRevisionFile(build);
-            if (!file.exists())
-            // nothing to compare against
-            {
-                return revisions;
-            }
-
-            BufferedReader br = new BufferedReader(new FileReader(file));
-            try {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    int index = line.lastIndexOf('/');
-                    if (index < 0) {
-                        continue;   // invalid line?
-                    }
-                    try {
-                        revisions.put(line.substring(0, index), Long.valueOf(line.substring(index + 1)));
-                    } catch (NumberFormatException e) {
-                        // perhaps a corrupted line. ignore
-                        LOGGER.log(Level.FINEST, "Error parsing line", e);
-                    }
-                }
-            } finally {
-                br.close();
-            }
-        }
-
-        return revisions;
+        return RevisionMap.get(build);
     }
 
     /**
@@ -710,22 +681,25 @@ public class SubversionSCM extends SCM implements Serializable {
 
     public boolean checkout(AbstractBuild build, Launcher launcher, FilePath workspace, final BuildListener listener,
                             File changelogFile) throws IOException, InterruptedException {
-        List<External> externals = checkout(build, workspace, listener);
+        CheckOutResult result = checkout(build, workspace, listener);
 
-        if (externals == null) {
+        if (result == null) {
             return false;
         }
+        List<External> externals = result.externals;
 
         // write out the revision file
+        RevisionMap.invalidate(build);
         PrintWriter w = new PrintWriter(new FileOutputStream(getRevisionFile(build)));
         try {
-            Map<String, SvnInfo> revMap = workspace.act(new BuildRevisionMapTask(build, this, listener, externals));
+            Map<String, SvnInfo> revMap = result.revisions;
             for (Entry<String, SvnInfo> e : revMap.entrySet()) {
                 w.println(e.getKey() + '/' + e.getValue().revision);
             }
             build.addAction(new SubversionTagAction(build, revMap.values()));
         } finally {
             w.close();
+            RevisionMap.invalidate(build);
         }
 
         // write out the externals info
@@ -743,9 +717,10 @@ public class SubversionSCM extends SCM implements Serializable {
      *
      * @return null
      *         if the operation failed. Otherwise the set of local workspace paths
-     *         (relative to the workspace root) that has loaded due to svn:external.
+     *         (relative to the workspace root) that has loaded due to svn:external,
+     *         and the revisions of the modules and externals.
      */
-    private List<External> checkout(AbstractBuild build, FilePath workspace, TaskListener listener)
+    private CheckOutResult checkout(AbstractBuild build, FilePath workspace, TaskListener listener)
         throws IOException, InterruptedException {
         if (repositoryLocationsNoLongerExist(build, listener)) {
             Run lsb = build.getProject().getLastSuccessfulBuild();
@@ -766,20 +741,56 @@ public class SubversionSCM extends SCM implements Serializable {
             }
         }
 
-        //TODO get build time from listener.
-        return workspace.act(new CheckOutTask(build, this, build.getTimestamp().getTime(),
-            new GregorianCalendar().getTime(), listener));
+        OutputStream detailLog = null;
+        if (WorkspaceUpdater.LOG_LEVEL != WorkspaceUpdater.LogLevel.FULL && WorkspaceUpdater.DETAIL_LOG) {
+            detailLog = new FileOutputStream(getCheckoutLogFile(build));
+        }
+        try {
+            //TODO get build time from listener.
+            return workspace.act(new CheckOutTask(build, this, build.getTimestamp().getTime(),
+                new GregorianCalendar().getTime(), listener, detailLog));
+        } finally {
+            IOUtils.closeQuietly(detailLog);
+        }
     }
 
 
     /**
-     * Either run "svn co" or "svn up" equivalent.
+     * What {@link CheckOutTask} found.
      */
-    private static class CheckOutTask extends UpdateTask implements FileCallable<List<External>> {
+    private static final class CheckOutResult implements Serializable {
+        /**
+         * Where svn:external mounting happened.
+         */
+        final List<External> externals;
+
+        /**
+         * Repository URL of the modules and externals to their revisions.
+         */
+        final Map<String, SvnInfo> revisions;
+
+        CheckOutResult(List<External> externals, Map<String, SvnInfo> revisions) {
+            this.externals = externals;
+            this.revisions = revisions;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Either run "svn co" or "svn up" equivalent, then finds out revisions of the modules and externals
+     * that the workspace has.
+     */
+    private static class CheckOutTask extends UpdateTask implements FileCallable<CheckOutResult> {
         private final UpdateTask task;
+        /**
+         * Gets the lines about individual paths that don't go to the console, or null.
+         */
+        private final OutputStream detailStream;
 
         public CheckOutTask(AbstractBuild<?, ?> build, SubversionSCM scm, Date queueTime, Date buildTime,
-                            TaskListener listener) {
+                            TaskListener listener, OutputStream detailStream) {
+            this.detailStream = detailStream != null ? new RemoteOutputStream(detailStream) : null;
             this.authProvider = scm.getDescriptor().createAuthenticationProvider(build.getParent());
             this.queueTime = queueTime;
             this.buildTime = buildTime;
@@ -787,22 +798,74 @@ public class SubversionSCM extends SCM implements Serializable {
             this.locations = scm.getLocations(build);
             this.revisionParameterAction = build.getAction(RevisionParameterAction.class);
             this.task = scm.getWorkspaceUpdater().createTask();
+            if (scm.getWorkspaceUpdater().getParallelism() > 0) {
+                this.parallelism = scm.getWorkspaceUpdater().getParallelism();
+            }
             this.revisionPolicy = (scm.getDescriptor() != null ? scm.getDescriptor().getRevisionPolicy() : null);
         }
 
-        public List<External> invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
+        public CheckOutResult invoke(File ws, VirtualChannel channel) throws IOException, InterruptedException {
             manager = createSvnClientManager(authProvider);
+            updatedRevisions = new ConcurrentHashMap<File, Long>();
+            if (detailStream != null) {
+                detailLog = new PrintStream(new BufferedOutputStream(new GZIPOutputStream(detailStream), 65536));
+            }
             this.ws = ws;
             try {
                 List<External> externals = perform();
+                if (externals == null) {
+                    return null;
+                }
 
                 checkClockOutOfSync();
 
-                return externals;
+                return new CheckOutResult(externals, buildRevisionMap(externals));
 
             } finally {
                 manager.dispose();
+                if (detailLog != null) {
+                    detailLog.close();
+                }
+            }
+        }
+
+        /**
+         * Finds out the revisions of the modules and externals from what the update reported,
+         * and runs "svn info" on the working copies it didn't report about.
+         */
+        private Map<String, SvnInfo> buildRevisionMap(List<External> externals) throws IOException {
+            Map<String/*module name*/, SvnInfo> revisions = new HashMap<String, SvnInfo>();
+            for (ModuleLocation module : locations) {
+                try {
+                    SvnInfo info = getSvnInfo(new File(ws, module.getLocalDir()), module.getSVNURL());
+                    revisions.put(info.url, info);
+                } catch (SVNException e) {
+                    e.printStackTrace(listener.error("Failed to parse svn info for " + module.remote));
+                }
             }
+            for (External ext : externals) {
+                try {
+                    File dir = new File(ext.path);
+                    if (!dir.isAbsolute()) {
+                        dir = new File(ws, ext.path);
+                    }
+                    SvnInfo info = getSvnInfo(dir, SVNURL.parseURIDecoded(ext.url));
+                    revisions.put(info.url, info);
+                } catch (SVNException e) {
+                    e.printStackTrace(
+                        listener.error("Failed to parse svn info for external " + ext.url + " at " + ext.path));
+                }
+            }
+            return revisions;
+        }
+
+        private SvnInfo getSvnInfo(File dir, SVNURL url) throws IOException, SVNException {
+            Long rev = updatedRevisions.get(dir.getCanonicalFile());
+            if (rev != null) {
+                return new SvnInfo(url.toDecodedString(), rev.longValue());
+            }
+            // invoke the "svn info"
+            return new SvnInfo(manager.getWCClient().doInfo(dir, SVNRevision.WORKING));
         }
 
         /**
@@ -851,6 +914,18 @@ public class SubversionSCM extends SCM implements Serializable {
         return SVNClientManager.newInstance(SVNWCUtil.createDefaultOptions(true), sam);
     }
 
+    /**
+     * Creates {@link SVNClientManager} whose remote sessions are borrowed from {@link SubversionSessionPool},
+     * instead of being opened and closed for each operation. Meant for short, read-only remote operations
+     * like "svn info" and "svn log" on URLs.
+     * <p/>
+     * Like {@link #createSvnClientManager(ISVNAuthenticationProvider)}, this method must be executed
+     * on the node where svn operations are performed. The manager must be disposed to return the sessions.
+     */
+    public static SVNClientManager createPooledSvnClientManager(ISVNAuthenticationProvider authProvider) {
+        return SubversionSessionPool.get().createClientManager(authProvider);
+    }
+
     /**
      * Creates {@link SVNClientManager} for code running on the master.
      * <p/>
@@ -987,8 +1062,8 @@ public class SubversionSCM extends SCM implements Serializable {
      *
      * @param remoteUrl The target to run "svn info".
      */
-    private static SVNInfo parseSvnInfo(SVNURL remoteUrl, ISVNAuthenticationProvider authProvider) throws SVNException {
-        final SVNClientManager manager = createSvnClientManager(authProvider);
+    /*package*/ static SVNInfo parseSvnInfo(SVNURL remoteUrl, ISVNAuthenticationProvider authProvider) throws SVNException {
+        final SVNClientManager manager = createPooledSvnClientManager(authProvider);
         try {
             final SVNWCClient svnWc = manager.getWCClient();
             return svnWc.doInfo(remoteUrl, SVNRevision.HEAD, SVNRevision.HEAD);
@@ -998,66 +1073,18 @@ public class SubversionSCM extends SCM implements Serializable {
     }
 
     /**
-     * Checks .svn files in the workspace and finds out revisions of the modules
-     * that the workspace has.
-     *
-     * @return null if the parsing somehow fails. Otherwise a map from the repository URL to revisions.
+     * Gets the file that stores the revision.
      */
-    private static class BuildRevisionMapTask implements FileCallable<Map<String, SvnInfo>> {
-        private final ISVNAuthenticationProvider authProvider;
-        private final TaskListener listener;
-        private final List<External> externals;
-        private final ModuleLocation[] locations;
-
-        public BuildRevisionMapTask(AbstractBuild<?, ?> build, SubversionSCM parent, TaskListener listener,
-                                    List<External> externals) {
-            this.authProvider = parent.getDescriptor().createAuthenticationProvider(build.getParent());
-            this.listener = listener;
-            this.externals = externals;
-            this.locations = parent.getLocations(build);
-        }
-
-        public Map<String, SvnInfo> invoke(File ws, VirtualChannel channel) throws IOException {
-            Map<String/*module name*/, SvnInfo> revisions = new HashMap<String, SvnInfo>();
-
-            final SVNClientManager manager = createSvnClientManager(authProvider);
-            try {
-                final SVNWCClient svnWc = manager.getWCClient();
-                // invoke the "svn info"
-                for (ModuleLocation module : locations) {
-                    try {
-                        SvnInfo info = new SvnInfo(
-                            svnWc.doInfo(new File(ws, module.getLocalDir()), SVNRevision.WORKING));
-                        revisions.put(info.url, info);
-                    } catch (SVNException e) {
-                        e.printStackTrace(listener.error("Failed to parse svn info for " + module.remote));
-                    }
-                }
-                for (External ext : externals) {
-                    try {
-                        SvnInfo info = new SvnInfo(svnWc.doInfo(new File(ext.path), SVNRevision.WORKING));
-                        revisions.put(info.url, info);
-                    } catch (SVNException e) {
-                        e.printStackTrace(
-                            listener.error("Failed to parse svn info for external " + ext.url + " at " + ext.path));
-                    }
-
-                }
-
-                return revisions;
-            } finally {
-                manager.dispose();
-            }
-        }
-
-        private static final long serialVersionUID = 1L;
+    public static File getRevisionFile(AbstractBuild build) {
+        return new File(build.getRootDir(), "revision.txt");
     }
 
     /**
-     * Gets the file that stores the revision.
+     * Gets the compressed file that has the lines about the individual paths checked out, when
+     * {@link WorkspaceUpdater#DETAIL_LOG} keeps them out of the console.
      */
-    public static File getRevisionFile(AbstractBuild build) {
-        return new File(build.getRootDir(), "revision.txt");
+    public static File getCheckoutLogFile(AbstractBuild build) {
+        return new File(build.getRootDir(), "svn-checkout.log.gz");
     }
 
     /**
@@ -1071,7 +1098,7 @@ public class SubversionSCM extends SCM implements Serializable {
     public SCMRevisionState calcRevisionsFromBuild(AbstractBuild<?, ?> build, Launcher launcher, TaskListener listener)
         throws IOException, InterruptedException {
         // exclude locations that are svn:external-ed with a fixed revision.
-        Map<String, Long> wsRev = parseRevisionFile(build, true);
+        Map<String, Long> wsRev = new HashMap<String, Long>(parseRevisionFile(build, true));
         for (External e : parseExternalsFile(build.getProject())) {
             if (e.isRevisionFixed()) {
                 wsRev.remove(e.url);
@@ -1122,6 +1149,17 @@ public class SubversionSCM extends SCM implements Serializable {
             }
         }
 
+        PollingResult reported = pollFromPostCommitEvidence(project, baseline, listener,
+            getLocations(lastCompletedBuild));
+        if (reported != null) {
+            return reported;
+        }
+
+        PollingResult tailed = pollFromLogTailer(project, baseline, listener, getLocations(lastCompletedBuild));
+        if (tailed != null) {
+            return tailed;
+        }
+
         // determine where to perform polling. prefer the node where the build happened,
         // in case a cluster is non-uniform. see http://www.nabble.com/svn-connection-from-slave-only-td24970587.html
         VirtualChannel ch = null;
@@ -1139,9 +1177,12 @@ public class SubversionSCM extends SCM implements Serializable {
             ch = MasterComputer.localChannel;
         }
         final String nodeName = n != null ? n.getNodeName() : "master";
+        // the revision cache is only invalidated by commit notifications received on the master
+        final boolean useRevisionCache = ch == MasterComputer.localChannel;
         final String projectName = project.getName();
 
         final SVNLogHandler logHandler = new SVNLogHandler(listener);
+        logHandler.useLogCache = ch == MasterComputer.localChannel && SubversionLogCache.canUse(project);
         // figure out the remote revisions
         final ISVNAuthenticationProvider authProvider = getDescriptor().createAuthenticationProvider(project);
         final ModuleLocation[] moduleLocations = getLocations(lastCompletedBuild);
@@ -1177,7 +1218,9 @@ public class SubversionSCM extends SCM implements Serializable {
                     if (!isRevisionSpecifiedInBuildLocation(url, moduleLocations)) {
                         try {
                             final SVNURL svnurl = SVNURL.parseURIDecoded(url);
-                            long nowRev = new SvnInfo(parseSvnInfo(svnurl, authProvider)).revision;
+                            long nowRev = useRevisionCache
+                                ? RemoteRevisionCache.get().getRevision(svnurl, authProvider)
+                                : new SvnInfo(parseSvnInfo(svnurl, authProvider)).revision;
 
                             changes |= (nowRev > baseRev);
 
@@ -1202,6 +1245,151 @@ public class SubversionSCM extends SCM implements Serializable {
         });
     }
 
+    /**
+     * Decides from the paths reported by the post-commit hook, if they show a change that isn't excluded.
+     * Only the exclusion rules about paths can be checked that way.
+     * <p/>
+     * Anyone can post to the hook, so what it reported is only taken as a hint: a location counts as changed
+     * only if "svn info" on it confirms that it was last changed within the reported revisions, and the new
+     * baseline is the revision that "svn info" gives.
+     *
+     * @return null if the remote repositories need to be checked.
+     */
+    private PollingResult pollFromPostCommitEvidence(AbstractProject<?, ?> project, SVNRevisionState baseline,
+                                                     TaskListener listener, ModuleLocation[] moduleLocations) {
+        PostCommitEvidence evidence = PostCommitEvidence.take(project);
+        if (evidence == null) {
+            return null;
+        }
+        SVNLogHandler logHandler = new SVNLogHandler(listener);
+        if (logHandler.hasRevisionRule()) {
+            return null;
+        }
+
+        ISVNAuthenticationProvider authProvider = null;
+        final Map<String, Long> revs = new HashMap<String, Long>(baseline.revisions);
+        boolean significantChanges = false;
+        for (ModuleLocation loc : getLocations()) {
+            String url = loc.getURL();
+            Long baseRev = baseline.revisions.get(url);
+            // parameterized and pinned locations are left to the regular polling, as well as
+            // reports of commits that may already be in the workspace
+            if (baseRev == null || isRevisionSpecifiedInBuildLocation(url, moduleLocations)
+                || baseRev.longValue() >= evidence.firstRevision) {
+                continue;
+            }
+
+            String remaining;
+            try {
+                if (!loc.getUUID(project).equals(evidence.uuid)) {
+                    continue;
+                }
+                String m = loc.getSVNURL().getPath();
+                String n = loc.getRepositoryRoot(project).getPath();
+                if (!m.startsWith(n)) {
+                    continue;
+                }
+                remaining = m.substring(n.length());
+            } catch (SVNException e) {
+                return null;
+            }
+            if (remaining.startsWith("/")) {
+                remaining = remaining.substring(1);
+            }
+
+            Map<String, SVNLogEntryPath> changedPaths = new HashMap<String, SVNLogEntryPath>();
+            for (String path : evidence.paths) {
+                if (path.equals(remaining) || path.startsWith(remaining + '/') || remaining.length() == 0) {
+                    String p = '/' + (path.endsWith("/") ? path.substring(0, path.length() - 1) : path);
+                    changedPaths.put(p, new SVNLogEntryPath(p, SVNLogEntryPath.TYPE_MODIFIED, null, -1));
+                }
+            }
+            if (!changedPaths.isEmpty() && logHandler.checkLogEntry(
+                new SVNLogEntry(changedPaths, evidence.lastRevision, null, null, null))) {
+                long nowRev;
+                try {
+                    if (authProvider == null) {
+                        authProvider = getDescriptor().createAuthenticationProvider(project);
+                    }
+                    nowRev = new SvnInfo(parseSvnInfo(loc.getSVNURL(), authProvider)).revision;
+                } catch (SVNException e) {
+                    return null;
+                }
+                // the location must really have changed, by the commits that were reported
+                if (nowRev <= baseRev.longValue() || nowRev < evidence.firstRevision
+                    || nowRev > evidence.lastRevision) {
+                    return null;
+                }
+                listener.getLogger().println(
+                    Messages.SubversionSCM_pollChanges_remoteRevisionAt(url, Long.valueOf(nowRev)));
+                listener.getLogger().println(Messages.SubversionSCM_pollChanges_changedFrom(baseRev));
+                revs.put(url, Long.valueOf(nowRev));
+                significantChanges = true;
+            }
+        }
+        if (!significantChanges) {
+            return null;
+        }
+        listener.getLogger().println(Messages.SubversionSCM_pollChanges_fromPostCommit(
+            Long.valueOf(evidence.firstRevision), Long.valueOf(evidence.lastRevision)));
+        return new PollingResult(baseline, new SVNRevisionState(revs), Change.SIGNIFICANT);
+    }
+
+    /**
+     * Computes {@link PollingResult} from the log kept in memory by {@link SubversionLogTailer}, if it
+     * knows about all the locations of the baseline.
+     *
+     * @return null if the remote repositories need to be checked.
+     */
+    private PollingResult pollFromLogTailer(AbstractProject<?, ?> project, SVNRevisionState baseline,
+                                            TaskListener listener, ModuleLocation[] moduleLocations) {
+        SubversionLogTailer tailer = SubversionLogTailer.get();
+        if (tailer == null || !tailer.canServe(project)) {
+            return null;
+        }
+
+        Map<String, SubversionLogTailer.Changes> allChanges = new HashMap<String, SubversionLogTailer.Changes>();
+        for (Map.Entry<String, Long> baselineInfo : baseline.revisions.entrySet()) {
+            String url = baselineInfo.getKey();
+            if (!isRevisionSpecifiedInBuildLocation(url, moduleLocations)) {
+                SubversionLogTailer.Changes c = tailer.getChanges(url, baselineInfo.getValue().longValue());
+                if (c == null) {
+                    return null;
+                }
+                allChanges.put(url, c);
+            }
+        }
+
+        listener.getLogger().println(Messages.SubversionSCM_pollChanges_fromLogTailer(project.getName()));
+        final Map<String, Long> revs = new HashMap<String, Long>(baseline.revisions);
+        boolean changes = false;
+        boolean significantChanges = false;
+        for (Map.Entry<String, SubversionLogTailer.Changes> e : allChanges.entrySet()) {
+            String url = e.getKey();
+            long baseRev = baseline.revisions.get(url).longValue();
+            long nowRev = e.getValue().revision;
+
+            changes |= (nowRev > baseRev);
+            listener.getLogger().println(Messages.SubversionSCM_pollChanges_remoteRevisionAt(url, Long.valueOf(nowRev)));
+            revs.put(url, Long.valueOf(nowRev));
+
+            SVNLogHandler logHandler = new SVNLogHandler(listener);
+            boolean found = false;
+            for (SVNLogEntry logEntry : e.getValue().entries) {
+                if (!logHandler.hasExclusionRule() || logHandler.checkLogEntry(logEntry)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (found) {
+                listener.getLogger().println(Messages.SubversionSCM_pollChanges_changedFrom(Long.valueOf(baseRev)));
+                significantChanges = true;
+            }
+        }
+        return new PollingResult(baseline, new SVNRevisionState(revs),
+            significantChanges ? Change.SIGNIFICANT : changes ? Change.INSIGNIFICANT : Change.NONE);
+    }
+
     /**
      * Checks whether build locations contain specified revision.
      *
@@ -1231,17 +1419,22 @@ public class SubversionSCM extends SCM implements Serializable {
      * Goes through the changes between two revisions and see if all the changes
      * are excluded.
      */
-    private final class SVNLogHandler implements ISVNLogEntryHandler, Serializable {
+    /*package*/ final class SVNLogHandler implements ISVNLogEntryHandler, Serializable {
         private boolean changesFound = false;
 
         private final TaskListener listener;
-        private final Pattern[] excludedPatterns = getExcludedRegionsPatterns();
-        private final Pattern[] includedPatterns = getIncludedRegionsPatterns();
+        private final PathRegionMatcher excludedPatterns = getExcludedRegionsMatcher();
+        private final PathRegionMatcher includedPatterns = getIncludedRegionsMatcher();
         private final Set<String> excludedUsers = getExcludedUsersNormalized();
         private final String excludedRevprop = getExcludedRevpropNormalized();
         private final Pattern[] excludedCommitMessages = getExcludedCommitMessagesPatterns();
 
-        private SVNLogHandler(TaskListener listener) {
+        /**
+         * Whether {@link SubversionLogCache} may be used, which depends on the credentials of the job.
+         */
+        private boolean useLogCache;
+
+        /*package*/ SVNLogHandler(TaskListener listener) {
             this.listener = listener;
         }
 
@@ -1263,17 +1456,57 @@ public class SubversionSCM extends SCM implements Serializable {
                 return true;
             }
 
-            final SVNClientManager manager = createSvnClientManager(authProvider);
+            // fetch the log in pages and stop as soon as one change is found to be significant.
+            // when commits are excluded by author or revprop (typically a bot committing after the build),
+            // the interesting commits tend to be the latest ones, so look at them first.
+            final boolean newestFirst = !excludedUsers.isEmpty() || excludedRevprop != null;
+
+            SubversionLogCache cache = useLogCache ? SubversionLogCache.get() : null;
+            List<SVNLogEntry> cached = cache != null ? cache.getLog(url, from, to) : null;
+            if (cached != null) {
+                if (newestFirst) {
+                    Collections.reverse(cached);
+                }
+                for (SVNLogEntry logEntry : cached) {
+                    handleLogEntry(logEntry);
+                    if (isChangesFound()) {
+                        break;
+                    }
+                }
+                return isChangesFound();
+            }
+
+            final SVNClientManager manager = createPooledSvnClientManager(authProvider);
             try {
-                manager.getLogClient().doLog(url, null, SVNRevision.UNDEFINED,
-                    SVNRevision.create(from), // get log entries from the local revision + 1
-                    SVNRevision.create(to), // to the remote revision
-                    false, // Don't stop on copy.
-                    true, // Report paths.
-                    false, // Don't included merged revisions
-                    0, // Retrieve log entries for unlimited number of revisions.
-                    null, // Retrieve all revprops
-                    this);
+                long start = newestFirst ? to : from;
+                final long end = newestFirst ? from : to;
+                while (!isChangesFound()) {
+                    final long[] last = {-1};
+                    final int[] count = {0};
+                    manager.getLogClient().doLog(url, null, SVNRevision.UNDEFINED,
+                        SVNRevision.create(start),
+                        SVNRevision.create(end),
+                        false, // Don't stop on copy.
+                        true, // Report paths.
+                        false, // Don't included merged revisions
+                        LOG_PAGE_SIZE, // 0 means no limit
+                        null, // Retrieve all revprops
+                        new ISVNLogEntryHandler() {
+                            public void handleLogEntry(SVNLogEntry logEntry) throws SVNException {
+                                count[0]++;
+                                last[0] = logEntry.getRevision();
+                                // the rest of the page is still transferred, but there's no point in looking at it.
+                                // aborting the response would leave the pooled connection unusable.
+                                if (!isChangesFound()) {
+                                    SVNLogHandler.this.handleLogEntry(logEntry);
+                                }
+                            }
+                        });
+                    if (LOG_PAGE_SIZE <= 0 || count[0] < LOG_PAGE_SIZE || last[0] == end) {
+                        break; // reached the end of the range
+                    }
+                    start = newestFirst ? last[0] - 1 : last[0] + 1;
+                }
             } finally {
                 manager.dispose();
             }
@@ -1281,12 +1514,19 @@ public class SubversionSCM extends SCM implements Serializable {
             return isChangesFound();
         }
 
+        /**
+         * Is there any exclusion rule that needs more than the changed paths?
+         */
+        private boolean hasRevisionRule() {
+            return !excludedUsers.isEmpty() || excludedRevprop != null || excludedCommitMessages.length > 0;
+        }
+
         /**
          * Is there any exclusion rule?
          */
         private boolean hasExclusionRule() {
-            return excludedPatterns.length > 0 || !excludedUsers.isEmpty() || excludedRevprop != null
-                || excludedCommitMessages.length > 0 || includedPatterns.length > 0;
+            return !excludedPatterns.isEmpty() || !excludedUsers.isEmpty() || excludedRevprop != null
+                || excludedCommitMessages.length > 0 || !includedPatterns.isEmpty();
         }
 
         /**
@@ -1349,52 +1589,36 @@ public class SubversionSCM extends SCM implements Serializable {
                 return false;
             }
 
-            // If there are included patterns, see which paths are included
-            List<String> includedPaths = new ArrayList<String>();
-            if (includedPatterns.length > 0) {
-                for (String path : (Set<String>) changedPaths.keySet()) {
-                    for (Pattern pattern : includedPatterns) {
-                        if (pattern.matcher(path).matches()) {
-                            includedPaths.add(path);
-                            break;
-                        }
+            // A change is a change as soon as one path is included and not excluded
+            boolean anyIncluded = false;
+            for (String path : (Set<String>) changedPaths.keySet()) {
+                if (includedPatterns.isEmpty() || includedPatterns.matches(path)) {
+                    if (!excludedPatterns.matches(path)) {
+                        return true;
                     }
+                    anyIncluded = true;
                 }
-            } else {
-                includedPaths = new ArrayList<String>(changedPaths.keySet());
             }
 
             // If no paths are included don't count this entry as a change
-            if (includedPaths.isEmpty()) {
+            if (!anyIncluded) {
                 listener.getLogger().println(Messages.SubversionSCM_pollChanges_ignoredRevision(
             		Long.valueOf(logEntry.getRevision()),
                     Messages.SubversionSCM_pollChanges_ignoredRevision_noincpath()));
                 return false;
             }
 
-            // Else, check each changed path
+            // All included paths are in an excluded region, don't count this entry as a change
             List<String> excludedPaths = new ArrayList<String>();
-            if (excludedPatterns.length > 0) {
-                for (String path : includedPaths) {
-                    for (Pattern pattern : excludedPatterns) {
-                        if (pattern.matcher(path).matches()) {
-                            excludedPaths.add(path);
-                            break;
-                        }
-                    }
+            for (String path : (Set<String>) changedPaths.keySet()) {
+                if (includedPatterns.isEmpty() || includedPatterns.matches(path)) {
+                    excludedPaths.add(path);
                 }
             }
-
-            // If all included paths are in an excluded region, don't count this entry as a change
-            if (includedPaths.size() == excludedPaths.size()) {
-                listener.getLogger().println(Messages.SubversionSCM_pollChanges_ignoredRevision(
-            		Long.valueOf(logEntry.getRevision()),
-                    Messages.SubversionSCM_pollChanges_ignoredRevision_path(Util.join(excludedPaths, ", "))));
-                return false;
-            }
-
-            // Otherwise, a change is a change
-            return true;
+            listener.getLogger().println(Messages.SubversionSCM_pollChanges_ignoredRevision(
+        		Long.valueOf(logEntry.getRevision()),
+                Messages.SubversionSCM_pollChanges_ignoredRevision_path(Util.join(excludedPaths, ", "))));
+            return false;
         }
 
         private static final long serialVersionUID = 1L;
@@ -1444,6 +1668,22 @@ public class SubversionSCM extends SCM implements Serializable {
          */
         private final Map<String, Credential> credentials = new Hashtable<String, Credential>();
 
+        /**
+         * Copy of {@link #credentials} that lookups read without locking. Replaced whenever credentials change.
+         */
+        private transient volatile Map<String, Credential> credentialSnapshot = Collections.emptyMap();
+
+        /**
+         * The {@link SubversionCredentialProvider}s, once looked up.
+         */
+        private transient volatile List<SubversionCredentialProvider> credentialProviders;
+
+        /**
+         * Number of lookups of each realm that found a global credential, and that didn't.
+         */
+        private transient final ConcurrentHashMap<String, AtomicLong[]> credentialLookups
+            = new ConcurrentHashMap<String, AtomicLong[]>();
+
         /**
          * Stores name of Subversion revision property to globally exclude
          */
@@ -1593,15 +1833,27 @@ public class SubversionSCM extends SCM implements Serializable {
 
         private final class RemotableSVNAuthenticationProviderImpl implements RemotableSVNAuthenticationProvider {
             public Credential getCredential(SerializableSVNURL serializableUrl, String realm) throws SVNException {
-                for (SubversionCredentialProvider p : SubversionCredentialProvider.all()) {
+                List<SubversionCredentialProvider> providers = credentialProviders;
+                if (providers == null) {
+                    credentialProviders = providers = new ArrayList<SubversionCredentialProvider>(
+                        SubversionCredentialProvider.all());
+                }
+                for (SubversionCredentialProvider p : providers) {
                     Credential c = p.getCredential(serializableUrl.getSVNURL(), realm);
                     if (c != null) {
-                        LOGGER.fine(String.format("getCredential(%s)=>%s by %s", realm, c, p));
+                        if (LOGGER.isLoggable(Level.FINE)) {
+                            LOGGER.fine(String.format("getCredential(%s)=>%s by %s", realm, c, p));
+                        }
+                        countLookup(realm, true);
                         return c;
                     }
                 }
-                LOGGER.fine(String.format("getCredential(%s)=>%s", realm, credentials.get(realm)));
-                return credentials.get(realm);
+                Credential c = credentialSnapshot.get(realm);
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine(String.format("getCredential(%s)=>%s", realm, c));
+                }
+                countLookup(realm, c != null);
+                return c;
             }
 
             public void acknowledgeAuthentication(String realm, Credential credential) {
@@ -1631,6 +1883,16 @@ public class SubversionSCM extends SCM implements Serializable {
              */
             private final RemotableSVNAuthenticationProvider global;
 
+            /**
+             * Identifies the project whose credentials {@link #local} holds. See {@link #getCredentialScope()}.
+             */
+            private final String credentialScope;
+
+            /**
+             * Generation of the credentials on the master when this was created. See {@link RemoteCredentialCache}.
+             */
+            private final long credentialGeneration = RemoteCredentialCache.getGeneration();
+
             /**
              * The {@link Credential} used to create the last {@link SVNAuthentication} that we've tried.
              */
@@ -1638,8 +1900,28 @@ public class SubversionSCM extends SCM implements Serializable {
 
             public SVNAuthenticationProviderImpl(RemotableSVNAuthenticationProvider local,
                                                  RemotableSVNAuthenticationProvider global) {
+                this(local, global, null);
+            }
+
+            SVNAuthenticationProviderImpl(RemotableSVNAuthenticationProvider local,
+                                          RemotableSVNAuthenticationProvider global, String credentialScope) {
                 this.global = global;
                 this.local = local;
+                this.credentialScope = credentialScope;
+            }
+
+            /**
+             * Returns a key that is the same for all the providers that hand out the same credentials.
+             * Used to decide which remote sessions can be shared.
+             */
+            String getCredentialScope() {
+                if (local == null) {
+                    return "global";
+                }
+                if (credentialScope == null) {
+                    return "instance:" + System.identityHashCode(this);
+                }
+                return "job:" + credentialScope;
             }
 
             /**
@@ -1658,9 +1940,12 @@ public class SubversionSCM extends SCM implements Serializable {
                     return null;
                 }
 
-                Credential cred = src.getCredential(new SerializableSVNURL(url), realm);
-                LOGGER.fine(
-                    String.format("%s.requestClientAuthentication(%s,%s,%s)=>%s", debugName, kind, url, realm, cred));
+                Credential cred = RemoteCredentialCache.getCredential(src,
+                    src == local ? getCredentialScope() : "global", credentialGeneration, url, realm);
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine(String.format("%s.requestClientAuthentication(%s,%s,%s)=>%s", debugName, kind, url,
+                        realm, cred));
+                }
                 this.lastCredential = cred;
                 if (cred != null) {
                     return cred.createSVNAuthentication(kind);
@@ -1731,6 +2016,52 @@ public class SubversionSCM extends SCM implements Serializable {
             load();
         }
 
+        /**
+         * Also takes the {@link #credentialSnapshot} of what was loaded, for subclasses too.
+         */
+        @Override
+        public synchronized void load() {
+            super.load();
+            synchronized (credentials) {
+                credentialSnapshot = new HashMap<String, Credential>(credentials);
+            }
+        }
+
+        /**
+         * Sets the global credential of the realm.
+         */
+        private void putCredential(String realm, Credential cred) {
+            synchronized (credentials) {
+                credentials.put(realm, cred);
+                credentialSnapshot = new HashMap<String, Credential>(credentials);
+            }
+            RemoteCredentialCache.invalidate();
+        }
+
+        private void countLookup(String realm, boolean hit) {
+            AtomicLong[] counts = credentialLookups.get(realm);
+            if (counts == null) {
+                AtomicLong[] created = new AtomicLong[]{new AtomicLong(), new AtomicLong()};
+                counts = credentialLookups.putIfAbsent(realm, created);
+                if (counts == null) {
+                    counts = created;
+                }
+            }
+            counts[hit ? 0 : 1].incrementAndGet();
+        }
+
+        /**
+         * Returns the number of lookups of each realm in the global credentials since the start,
+         * as an array of the hits and the misses.
+         */
+        public Map<String, long[]> getCredentialLookupCounts() {
+            Map<String, long[]> r = new HashMap<String, long[]>();
+            for (Entry<String, AtomicLong[]> e : credentialLookups.entrySet()) {
+                r.put(e.getKey(), new long[]{e.getValue()[0].get(), e.getValue()[1].get()});
+            }
+            return r;
+        }
+
         protected DescriptorImpl(Class clazz, Class<? extends RepositoryBrowser> repositoryBrowser) {
             super(clazz, repositoryBrowser);
         }
@@ -1820,7 +2151,8 @@ public class SubversionSCM extends SCM implements Serializable {
          */
         public ISVNAuthenticationProvider createAuthenticationProvider(AbstractProject<?, ?> inContextOf) {
             return new SVNAuthenticationProviderImpl(
-                inContextOf == null ? null : new PerJobCredentialStore(inContextOf, null), remotableProvider);
+                inContextOf == null ? null : PerJobCredentialStore.get(inContextOf), remotableProvider,
+                inContextOf == null ? null : inContextOf.getFullName());
         }
 
         /**
@@ -1897,7 +2229,7 @@ public class SubversionSCM extends SCM implements Serializable {
                     protected void onSuccess(String realm, Credential cred, Boolean overrideGlobal) {
                         if (overrideGlobal.booleanValue()) {
                             LOGGER.info("Persisted " + cred + " for " + realm);
-                            credentials.put(realm, cred);
+                            putCredential(realm, cred);
                             save();
                         }
                         if (upc.inContextOf != null) {
@@ -1917,7 +2249,7 @@ public class SubversionSCM extends SCM implements Serializable {
                 
                 if (upc.getOverrideGlobal().booleanValue()) {
                 	LOGGER.info("Persisted " + cred + " for " + realm);
-                	credentials.put(realm, cred);
+                	putCredential(realm, cred);
                 	save();
                 }
                 
@@ -2585,6 +2917,12 @@ public class SubversionSCM extends SCM implements Serializable {
      */
     public static boolean POLL_FROM_MASTER = Boolean.getBoolean(SubversionSCM.class.getName() + ".pollFromMaster");
 
+    /**
+     * Number of log entries fetched at once when polling checks the changes against the exclusion rules.
+     * Polling stops fetching once a change that isn't excluded is found. 0 fetches the whole range at once.
+     */
+    public static int LOG_PAGE_SIZE = Integer.getInteger(SubversionSCM.class.getName() + ".logPageSize", 100).intValue();
+
     /**
      * Enables trace logging of Ganymed SSH library.
      * <p/>
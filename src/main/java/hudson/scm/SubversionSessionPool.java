@@ -0,0 +1,545 @@
+package hudson.scm;
+
+import hudson.scm.SubversionSCM.DescriptorImpl.SVNAuthenticationProviderImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.tmatesoft.svn.core.ISVNCanceller;
+import org.tmatesoft.svn.core.SVNErrorMessage;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.auth.ISVNProxyManager;
+import org.tmatesoft.svn.core.auth.SVNAuthentication;
+import org.tmatesoft.svn.core.io.ISVNSession;
+import org.tmatesoft.svn.core.io.ISVNTunnelProvider;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.ISVNOptions;
+import org.tmatesoft.svn.core.wc.ISVNRepositoryPool;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+import org.tmatesoft.svn.core.wc.SVNWCUtil;
+import org.tmatesoft.svn.util.ISVNDebugLog;
+
+import javax.net.ssl.TrustManager;
+
+/**
+ * Keeps {@link SVNRepository} sessions open between Subversion operations on this node,
+ * so that polling and changelog computation don't pay for a new TCP/TLS/SSH handshake every time.
+ * <p/>
+ * An idle session is only handed out for URLs under its repository root, and only to an operation that would
+ * authenticate the same way: the credential the session was authenticated with is remembered, and the borrower
+ * must resolve the same credential for that realm. So jobs with the same credentials share their sessions, and a
+ * session authenticated for one credential never serves another. Sessions that never authenticated, like those to
+ * <tt>file://</tt> URLs and anonymous ones, are only shared within the same credential scope
+ * (see {@link #getCredentialScope(ISVNAuthenticationProvider)}).
+ * <p/>
+ * At most {@link #MAX_IDLE} idle sessions are kept per repository root and credential, and {@link #MAX_IDLE_TOTAL}
+ * in all, the ones idle for the longest going first. Sessions idle for longer than {@link #IDLE_TIMEOUT} are closed.
+ * A session that has been idle for a while is probed before it's reused.
+ * <p/>
+ * Sessions are borrowed through {@link SVNClientManager}s created by
+ * {@link #createClientManager(ISVNAuthenticationProvider)}, and go back to the pool when the manager is disposed.
+ *
+ * @see SubversionSCM#createPooledSvnClientManager(ISVNAuthenticationProvider)
+ */
+public final class SubversionSessionPool {
+
+    private static final SubversionSessionPool INSTANCE = new SubversionSessionPool();
+
+    /**
+     * Idle sessions by repository root, most recently used last.
+     */
+    private final Map<String, LinkedList<IdleSession>> idle = new HashMap<String, LinkedList<IdleSession>>();
+
+    private int idleCount;
+
+    private static final class IdleSession {
+        final SVNRepository repository;
+        final long since;
+        final Identity identity;
+
+        IdleSession(SVNRepository repository, long since, Identity identity) {
+            this.repository = repository;
+            this.since = since;
+            this.identity = identity;
+        }
+    }
+
+    /**
+     * Who a session is authenticated as.
+     */
+    private static final class Identity {
+        /**
+         * What the session was last authenticated with, or null if it never was.
+         */
+        final String kind, realm;
+        final SVNAuthentication authentication;
+        /**
+         * Only looked at for sessions that never authenticated.
+         */
+        final String credentialScope;
+
+        Identity(String kind, String realm, SVNAuthentication authentication, String credentialScope) {
+            this.kind = kind;
+            this.realm = realm;
+            this.authentication = authentication;
+            this.credentialScope = credentialScope;
+        }
+
+        boolean isSame(Identity that) {
+            if (authentication == null || that.authentication == null) {
+                return authentication == that.authentication && credentialScope.equals(that.credentialScope);
+            }
+            return kind.equals(that.kind) && realm.equals(that.realm)
+                && SubversionSCM.compareSVNAuthentications(authentication, that.authentication);
+        }
+    }
+
+    SubversionSessionPool() {
+    }
+
+    public static SubversionSessionPool get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a {@link SVNClientManager} that borrows its remote sessions from this pool.
+     * The sessions are returned when {@link SVNClientManager#dispose()} is called.
+     * <p/>
+     * This method must be executed on the node where the svn operations are performed.
+     */
+    public SVNClientManager createClientManager(ISVNAuthenticationProvider authProvider) {
+        SubversionWorkspaceSelector.syncWorkspaceFormatFromMaster();
+        hudson.scm.auth.ISVNAuthenticationManager sam = new DefaultSVNAuthenticationManager();
+        sam.setAuthenticationProvider(authProvider);
+        ISVNOptions options = SVNWCUtil.createDefaultOptions(true);
+        Lease lease = new Lease(getCredentialScope(authProvider), sam.getAuthenticationManager(),
+            (ISVNTunnelProvider) options);
+        return SVNClientManager.newInstance(options, lease);
+    }
+
+    /**
+     * Identifies the set of credentials that the given provider hands out.
+     * Sessions that never authenticated are only shared between providers with the same scope.
+     */
+    static String getCredentialScope(ISVNAuthenticationProvider authProvider) {
+        if (authProvider instanceof SVNAuthenticationProviderImpl) {
+            return ((SVNAuthenticationProviderImpl) authProvider).getCredentialScope();
+        }
+        // unknown provider. only share sessions among the operations that use this very instance.
+        return "instance:" + System.identityHashCode(authProvider);
+    }
+
+    /**
+     * Hands out an open session for the given URL, or creates a new one.
+     */
+    SVNRepository borrow(SVNURL url, String credentialScope, ISVNAuthenticationManager authManager,
+                         ISVNTunnelProvider tunnelProvider) throws SVNException {
+        while (true) {
+            IdleSession s = takeIdle(url, credentialScope, authManager);
+            if (s == null) {
+                break;
+            }
+            SVNRepository repository = s.repository;
+            setAuthenticationManager(repository, authManager, s.identity);
+            repository.setTunnelProvider(tunnelProvider);
+            if (System.currentTimeMillis() - s.since > VALIDATE_AFTER && !isHealthy(repository)) {
+                continue;
+            }
+            repository.setLocation(url, false);
+            return repository;
+        }
+
+        SVNRepository repository = SVNRepositoryFactory.create(url,
+            isPoolable(url) ? ISVNSession.KEEP_ALIVE : ISVNSession.DEFAULT);
+        setAuthenticationManager(repository, authManager, null);
+        repository.setTunnelProvider(tunnelProvider);
+        return repository;
+    }
+
+    /**
+     * Gives the session back to the pool, or closes it if it can't be kept.
+     */
+    void release(SVNRepository repository, String credentialScope) {
+        repository.setCanceller(null);
+        SVNURL root = getRepositoryRoot(repository);
+        if (root == null || IDLE_TIMEOUT <= 0 || !isPoolable(root)) {
+            repository.closeSession();
+            return;
+        }
+        Identity identity = getIdentity(repository);
+        if (identity == null) {
+            identity = new Identity(null, null, null, credentialScope);
+        }
+
+        List<SVNRepository> evicted = new ArrayList<SVNRepository>();
+        synchronized (this) {
+            LinkedList<IdleSession> sessions = idle.get(root.toString());
+            if (sessions == null) {
+                sessions = new LinkedList<IdleSession>();
+                idle.put(root.toString(), sessions);
+            }
+            sessions.addLast(new IdleSession(repository, System.currentTimeMillis(), identity));
+            idleCount++;
+            int same = 0;
+            for (ListIterator<IdleSession> itr = sessions.listIterator(sessions.size()); itr.hasPrevious(); ) {
+                IdleSession s = itr.previous();
+                if (s.identity.isSame(identity) && ++same > MAX_IDLE) {
+                    itr.remove();
+                    idleCount--;
+                    evicted.add(s.repository);
+                }
+            }
+            evicted.addAll(removeExpired());
+            while (idleCount > MAX_IDLE_TOTAL) {
+                evicted.add(removeOldest());
+            }
+        }
+        close(evicted);
+    }
+
+    /**
+     * Sets the authentication manager of a pooled session, so that what it authenticates with is remembered.
+     */
+    private static void setAuthenticationManager(SVNRepository repository, ISVNAuthenticationManager authManager,
+                                                 Identity identity) {
+        repository.setAuthenticationManager(
+            authManager != null ? new RecordingAuthenticationManager(authManager, identity) : null);
+    }
+
+    /**
+     * Gets what the session authenticated with, or null if it never did.
+     */
+    private static Identity getIdentity(SVNRepository repository) {
+        ISVNAuthenticationManager authManager = repository.getAuthenticationManager();
+        return authManager instanceof RecordingAuthenticationManager
+            ? ((RecordingAuthenticationManager) authManager).identity : null;
+    }
+
+    /**
+     * Takes the most recently used idle session that the given URL and credentials can use, if any.
+     */
+    private IdleSession takeIdle(SVNURL url, String credentialScope, ISVNAuthenticationManager authManager) {
+        List<SVNRepository> expired;
+        List<IdleSession> candidates = new ArrayList<IdleSession>();
+        synchronized (this) {
+            expired = removeExpired();
+            for (Map.Entry<String, LinkedList<IdleSession>> e : idle.entrySet()) {
+                String u = url.toString();
+                if (u.equals(e.getKey()) || u.startsWith(e.getKey() + '/')) {
+                    candidates.addAll(e.getValue());
+                }
+            }
+        }
+        close(expired);
+
+        // resolving the credentials may go to the master, so it's done outside of the lock
+        Map<String, SVNAuthentication> resolved = new HashMap<String, SVNAuthentication>();
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            IdleSession s = candidates.get(i);
+            if (!canUse(s.identity, url, credentialScope, authManager, resolved)) {
+                continue;
+            }
+            synchronized (this) {
+                for (Iterator<LinkedList<IdleSession>> itr = idle.values().iterator(); itr.hasNext(); ) {
+                    LinkedList<IdleSession> sessions = itr.next();
+                    if (sessions.remove(s)) {
+                        idleCount--;
+                        if (sessions.isEmpty()) {
+                            itr.remove();
+                        }
+                        return s;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if an operation with the given credentials would authenticate as the session did.
+     *
+     * @param resolved what the credentials resolved to so far, by kind and realm.
+     */
+    private static boolean canUse(Identity identity, SVNURL url, String credentialScope,
+                                  ISVNAuthenticationManager authManager, Map<String, SVNAuthentication> resolved) {
+        if (identity.authentication == null) {
+            return identity.credentialScope.equals(credentialScope);
+        }
+        if (authManager == null) {
+            return false;
+        }
+        String key = identity.kind + '\n' + identity.realm;
+        if (!resolved.containsKey(key)) {
+            SVNAuthentication auth = null;
+            try {
+                auth = authManager.getFirstAuthentication(identity.kind, identity.realm, url);
+            } catch (SVNException e) {
+                LOGGER.log(Level.FINE, "Failed to resolve the credential for " + identity.realm, e);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Failed to resolve the credential for " + identity.realm, e);
+            }
+            resolved.put(key, auth);
+        }
+        SVNAuthentication auth = resolved.get(key);
+        return auth != null && SubversionSCM.compareSVNAuthentications(auth, identity.authentication);
+    }
+
+    /**
+     * Removes the sessions that have been idle for too long. Must be called while holding the lock.
+     */
+    private List<SVNRepository> removeExpired() {
+        List<SVNRepository> expired = new ArrayList<SVNRepository>();
+        long now = System.currentTimeMillis();
+        for (Iterator<LinkedList<IdleSession>> itr = idle.values().iterator(); itr.hasNext(); ) {
+            LinkedList<IdleSession> sessions = itr.next();
+            while (!sessions.isEmpty() && now - sessions.getFirst().since > IDLE_TIMEOUT) {
+                expired.add(sessions.removeFirst().repository);
+                idleCount--;
+            }
+            if (sessions.isEmpty()) {
+                itr.remove();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Removes the session that has been idle for the longest. Must be called while holding the lock,
+     * with at least one idle session.
+     */
+    private SVNRepository removeOldest() {
+        LinkedList<IdleSession> oldest = null;
+        for (LinkedList<IdleSession> sessions : idle.values()) {
+            if (oldest == null || sessions.getFirst().since < oldest.getFirst().since) {
+                oldest = sessions;
+            }
+        }
+        SVNRepository r = oldest.removeFirst().repository;
+        idleCount--;
+        if (oldest.isEmpty()) {
+            idle.values().remove(oldest);
+        }
+        return r;
+    }
+
+    /**
+     * Closes all the idle sessions.
+     */
+    public void closeIdleSessions() {
+        List<SVNRepository> all = new ArrayList<SVNRepository>();
+        synchronized (this) {
+            for (LinkedList<IdleSession> sessions : idle.values()) {
+                for (IdleSession s : sessions) {
+                    all.add(s.repository);
+                }
+            }
+            idle.clear();
+            idleCount = 0;
+        }
+        close(all);
+    }
+
+    /*package*/ synchronized int getIdleCount() {
+        return idleCount;
+    }
+
+    /**
+     * Returns the repository root if the session has ever been connected, or null.
+     */
+    private static SVNURL getRepositoryRoot(SVNRepository repository) {
+        try {
+            return repository.getRepositoryRoot(false);
+        } catch (SVNException e) {
+            return null;
+        }
+    }
+
+    private static boolean isHealthy(SVNRepository repository) {
+        try {
+            repository.getLatestRevision();
+            return true;
+        } catch (SVNException e) {
+            LOGGER.log(Level.FINE, "Discarding a broken session to " + repository.getLocation(), e);
+            repository.closeSession();
+            return false;
+        }
+    }
+
+    /**
+     * SSH connections are not kept around when SVNKit's own SSH connection pooling was turned off,
+     * which is what {@link SubversionSCM} does by default.
+     */
+    private static boolean isPoolable(SVNURL url) {
+        return !url.getProtocol().startsWith("svn+") || !"false".equals(System.getProperty("svnkit.ssh2.persistent"));
+    }
+
+    private static void close(List<SVNRepository> repositories) {
+        for (SVNRepository r : repositories) {
+            r.closeSession();
+        }
+    }
+
+    /**
+     * {@link ISVNRepositoryPool} handed to a single {@link SVNClientManager}. Keeps track of the
+     * sessions borrowed for it, and returns them to the shared pool on {@link #dispose()}.
+     */
+    private final class Lease implements ISVNRepositoryPool {
+        private final String credentialScope;
+        private final ISVNTunnelProvider tunnelProvider;
+        private final List<SVNRepository> borrowed = new ArrayList<SVNRepository>();
+        private ISVNAuthenticationManager authManager;
+        private ISVNCanceller canceller;
+        private ISVNDebugLog debugLog;
+
+        Lease(String credentialScope, ISVNAuthenticationManager authManager, ISVNTunnelProvider tunnelProvider) {
+            this.credentialScope = credentialScope;
+            this.authManager = authManager;
+            this.tunnelProvider = tunnelProvider;
+        }
+
+        public synchronized SVNRepository createRepository(SVNURL url, boolean mayReuse) throws SVNException {
+            if (mayReuse) {
+                for (SVNRepository r : borrowed) {
+                    SVNURL root = getRepositoryRoot(r);
+                    if (root != null && (url.toString().equals(root.toString())
+                        || url.toString().startsWith(root.toString() + '/'))) {
+                        r.setLocation(url, false);
+                        return r;
+                    }
+                }
+            }
+            SVNRepository r = borrow(url, credentialScope, authManager, tunnelProvider);
+            r.setCanceller(canceller);
+            if (debugLog != null) {
+                r.setDebugLog(debugLog);
+            }
+            borrowed.add(r);
+            return r;
+        }
+
+        public synchronized void setAuthenticationManager(ISVNAuthenticationManager authManager) {
+            this.authManager = authManager;
+            for (SVNRepository r : borrowed) {
+                SubversionSessionPool.setAuthenticationManager(r, authManager, getIdentity(r));
+            }
+        }
+
+        public synchronized void setCanceller(ISVNCanceller canceller) {
+            this.canceller = canceller;
+            for (SVNRepository r : borrowed) {
+                r.setCanceller(canceller);
+            }
+        }
+
+        public synchronized void setDebugLog(ISVNDebugLog debugLog) {
+            this.debugLog = debugLog;
+        }
+
+        public synchronized void shutdownConnections(boolean shutdownAll) {
+            for (SVNRepository r : borrowed) {
+                r.closeSession();
+            }
+        }
+
+        public synchronized void dispose() {
+            for (SVNRepository r : borrowed) {
+                release(r, credentialScope);
+            }
+            borrowed.clear();
+        }
+    }
+
+    /**
+     * {@link ISVNAuthenticationManager} of a pooled session, which remembers what the session authenticated with.
+     */
+    static final class RecordingAuthenticationManager implements ISVNAuthenticationManager {
+        private final ISVNAuthenticationManager core;
+        volatile Identity identity;
+
+        RecordingAuthenticationManager(ISVNAuthenticationManager core, Identity identity) {
+            this.core = core;
+            this.identity = identity;
+        }
+
+        public void setAuthenticationProvider(ISVNAuthenticationProvider provider) {
+            core.setAuthenticationProvider(provider);
+        }
+
+        public ISVNProxyManager getProxyManager(SVNURL url) throws SVNException {
+            return core.getProxyManager(url);
+        }
+
+        public TrustManager getTrustManager(SVNURL url) throws SVNException {
+            return core.getTrustManager(url);
+        }
+
+        public SVNAuthentication getFirstAuthentication(String kind, String realm, SVNURL url) throws SVNException {
+            return core.getFirstAuthentication(kind, realm, url);
+        }
+
+        public SVNAuthentication getNextAuthentication(String kind, String realm, SVNURL url) throws SVNException {
+            return core.getNextAuthentication(kind, realm, url);
+        }
+
+        public void acknowledgeAuthentication(boolean accepted, String kind, String realm,
+                                              SVNErrorMessage errorMessage, SVNAuthentication authentication)
+            throws SVNException {
+            if (accepted && authentication != null && realm != null) {
+                identity = new Identity(kind, realm, authentication, null);
+            }
+            core.acknowledgeAuthentication(accepted, kind, realm, errorMessage, authentication);
+        }
+
+        public void acknowledgeTrustManager(TrustManager manager) {
+            core.acknowledgeTrustManager(manager);
+        }
+
+        public boolean isAuthenticationForced() {
+            return core.isAuthenticationForced();
+        }
+
+        public int getReadTimeout(SVNRepository repository) {
+            return core.getReadTimeout(repository);
+        }
+
+        public int getConnectTimeout(SVNRepository repository) {
+            return core.getConnectTimeout(repository);
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(SubversionSessionPool.class.getName());
+
+    /**
+     * How long, in milliseconds, an unused session is kept open. 0 or less disables the pooling.
+     */
+    public static int IDLE_TIMEOUT = Integer.getInteger(SubversionSessionPool.class.getName() + ".idleTimeout",
+        60 * 1000).intValue();
+
+    /**
+     * Maximum number of idle sessions kept per repository root and credential.
+     */
+    public static int MAX_IDLE = Integer.getInteger(SubversionSessionPool.class.getName() + ".maxIdle", 4).intValue();
+
+    /**
+     * Maximum number of idle sessions kept on this node.
+     */
+    public static int MAX_IDLE_TOTAL = Integer.getInteger(SubversionSessionPool.class.getName() + ".maxIdleTotal", 32)
+        .intValue();
+
+    /**
+     * Sessions that have been idle for longer than this many milliseconds are checked before they are reused.
+     */
+    public static int VALIDATE_AFTER = Integer.getInteger(SubversionSessionPool.class.getName() + ".validateAfter",
+        10 * 1000).intValue();
+}
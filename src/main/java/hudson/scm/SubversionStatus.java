@@ -54,6 +54,13 @@ public class SubversionStatus extends AbstractModelObject implements RootAction
         return "subversion";
     }
 
+    /**
+     * Exposes the counters of the asynchronous handling of commit notifications.
+     */
+    public CommitNotificationQueue getNotificationQueue() {
+        return CommitNotificationQueue.get();
+    }
+
     public SubversionRepositoryStatus getDynamic(String uuid) {
         if(UUID_PATTERN.matcher(uuid).matches())
             return new SubversionRepositoryStatus(UUID.fromString(uuid));
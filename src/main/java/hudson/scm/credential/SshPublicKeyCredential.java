@@ -56,6 +56,17 @@ public class SshPublicKeyCredential extends SubversionSCM.DescriptorImpl.Credent
     private final String passphrase; // scrambled by base64
     private final String id;
 
+    /**
+     * The channel this was received from, if it came from the master. Remembered because the key may be needed
+     * by threads that don't serve the channel.
+     */
+    private transient Channel channel;
+
+    /**
+     * The private key, once read.
+     */
+    private transient volatile String privateKey;
+
     /**
      * @param keyFile stores SSH private key. The file will be copied.
      */
@@ -125,19 +136,22 @@ public class SshPublicKeyCredential extends SubversionSCM.DescriptorImpl.Credent
     public SVNSSHAuthentication createSVNAuthentication(String kind) throws SVNException {
         if (kind.equals(ISVNAuthenticationManager.SSH)) {
             try {
-                Channel channel = Channel.current();
-                String privateKey;
-                if (channel != null) {
-                    // remote
-                    privateKey = channel.call(new Callable<String, IOException>() {
-                        public String call() throws IOException {
-                            return FileUtils.readFileToString(getKeyFile(),
-                                Messages.SshPublicKeyCredential_private_key_encoding());
-                        }
-                    });
-                } else {
-                    privateKey = FileUtils.readFileToString(getKeyFile(),
-                        Messages.SshPublicKeyCredential_private_key_encoding());
+                String privateKey = this.privateKey;
+                if (privateKey == null) {
+                    Channel channel = this.channel != null ? this.channel : Channel.current();
+                    if (channel != null) {
+                        // remote
+                        privateKey = channel.call(new Callable<String, IOException>() {
+                            public String call() throws IOException {
+                                return FileUtils.readFileToString(getKeyFile(),
+                                    Messages.SshPublicKeyCredential_private_key_encoding());
+                            }
+                        });
+                    } else {
+                        privateKey = FileUtils.readFileToString(getKeyFile(),
+                            Messages.SshPublicKeyCredential_private_key_encoding());
+                    }
+                    this.privateKey = privateKey;
                 }
                 return new SVNSSHAuthentication(userName, privateKey.toCharArray(),
                     Scrambler.descramble(passphrase), -1, false, null, false);
@@ -153,4 +167,9 @@ public class SshPublicKeyCredential extends SubversionSCM.DescriptorImpl.Credent
         }
         return null; // unknown
     }
+
+    private Object readResolve() {
+        channel = Channel.current();
+        return this;
+    }
 }
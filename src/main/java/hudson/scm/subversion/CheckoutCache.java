@@ -0,0 +1,242 @@
+package hudson.scm.subversion;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.TaskListener;
+import hudson.scm.SubversionSCM.ModuleLocation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.tmatesoft.svn.core.SVNCancelException;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.wc.ISVNEventHandler;
+import org.tmatesoft.svn.core.wc.ISVNExternalsHandler;
+import org.tmatesoft.svn.core.wc.SVNEvent;
+import org.tmatesoft.svn.core.wc.SVNEventAdapter;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.core.wc.SVNUpdateClient;
+
+/**
+ * Working copies kept on a node to seed the fresh check outs of {@link CheckoutUpdater}, so that jobs checking
+ * out the same location on the same node don't each download the whole tree.
+ * <p/>
+ * There's one reference working copy per URL, depth and externals setting. A check out brings the reference to
+ * the wanted revision with "svn update", copies it into the workspace, then updates the copy as usual, which
+ * transfers next to nothing. The copy keeps the permissions of the files and the symbolic links as they are, as
+ * "svn update" wouldn't repair them; if it can't, the location is checked out as if there were no cache. At most {@link #MAX_ENTRIES} references are kept; the least recently used ones are
+ * deleted first. A reference is used by one executor at a time.
+ * <p/>
+ * Disabled unless {@link #DIR} is set, on the node where the check out happens.
+ */
+public final class CheckoutCache {
+
+    private static CheckoutCache INSTANCE;
+
+    private final File dir;
+
+    /**
+     * Lock of each reference, by the name of its directory.
+     */
+    private final Map<String, ReentrantLock> locks = new HashMap<String, ReentrantLock>();
+
+    /*package*/ CheckoutCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Returns the cache of this node, or null if it's disabled.
+     */
+    public static synchronized CheckoutCache get() {
+        if (DIR == null) {
+            return null;
+        }
+        if (INSTANCE == null || !INSTANCE.dir.equals(new File(DIR))) {
+            INSTANCE = new CheckoutCache(new File(DIR));
+        }
+        return INSTANCE;
+    }
+
+    private synchronized ReentrantLock lock(String name) {
+        ReentrantLock lock = locks.get(name);
+        if (lock == null) {
+            locks.put(name, lock = new ReentrantLock());
+        }
+        return lock;
+    }
+
+    /**
+     * Fills the given directory with a copy of the reference working copy of the location,
+     * brought to the given revision.
+     * <p/>
+     * The event and externals handlers of the update client are replaced.
+     *
+     * @param local empty directory to fill.
+     * @return false if the reference couldn't be brought up to date or copied, in which case the caller has to
+     *         check out the location by itself.
+     */
+    public boolean seed(SVNUpdateClient svnuc, ModuleLocation location, SVNRevision revision, SVNDepth depth, File local)
+        throws IOException, InterruptedException, SVNCancelException {
+        String name = Util.getDigestOf(location.getURL() + '@' + depth + '@' + location.isIgnoreExternalsOption()
+            + '@' + svnuc.getOperationsFactory().getPrimaryWcGeneration());
+        File entry = new File(dir, name);
+        ReentrantLock lock = lock(name);
+        lock.lockInterruptibly();
+        try {
+            // the reference gets updated quietly, but can still be aborted
+            svnuc.setEventHandler(CANCELLER);
+            svnuc.setExternalsHandler(ISVNExternalsHandler.DEFAULT);
+            if (!refresh(svnuc, location, revision, depth, entry)) {
+                return false;
+            }
+            entry.setLastModified(System.currentTimeMillis());
+            try {
+                copy(entry, local);
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Failed to copy the cached working copy of " + location.getURL(), e);
+                Util.deleteRecursive(local);
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        evict();
+        return true;
+    }
+
+    /**
+     * Copies a working copy, keeping the permissions of the files and the symbolic links (svn:executable and
+     * svn:special) as they are.
+     */
+    /*package*/ static void copy(File from, File to) throws IOException, InterruptedException {
+        if (Util.isSymlink(from)) {
+            String target = Util.resolveSymlink(from, TaskListener.NULL);
+            if (target != null) {
+                Util.createSymlink(to.getParentFile(), target, to.getName(), TaskListener.NULL);
+            }
+            if (target == null || !Util.isSymlink(to)) {
+                throw new IOException("Failed to copy the symbolic link " + from);
+            }
+            return;
+        }
+        if (from.isDirectory()) {
+            if (!to.isDirectory() && !to.mkdirs()) {
+                throw new IOException("Failed to create " + to);
+            }
+            String[] children = from.list();
+            if (children == null) {
+                throw new IOException("Failed to list " + from);
+            }
+            for (String child : children) {
+                copy(new File(from, child), new File(to, child));
+            }
+            to.setLastModified(from.lastModified());
+            return;
+        }
+        FileUtils.copyFile(from, to, true);
+        int mode = new FilePath(from).mode();
+        if (mode != -1) {
+            new FilePath(to).chmod(mode & 07777);
+        }
+    }
+
+    /**
+     * Brings the reference to the given revision, checking it out again if it can't be updated.
+     */
+    private boolean refresh(SVNUpdateClient svnuc, ModuleLocation location, SVNRevision revision, SVNDepth depth,
+                            File entry) throws IOException, SVNCancelException {
+        if (entry.exists()) {
+            try {
+                svnuc.doUpdate(entry, revision, depth, true, false);
+                return true;
+            } catch (SVNCancelException e) {
+                throw e;
+            } catch (SVNException e) {
+                LOGGER.log(Level.INFO, "Failed to update the cached working copy of " + location.getURL(), e);
+                Util.deleteRecursive(entry);
+            }
+        }
+        try {
+            svnuc.doCheckout(location.getSVNURL(), entry, SVNRevision.HEAD, revision, depth, true);
+            return true;
+        } catch (SVNCancelException e) {
+            Util.deleteRecursive(entry);
+            throw e;
+        } catch (SVNException e) {
+            LOGGER.log(Level.INFO, "Failed to check out the cached working copy of " + location.getURL(), e);
+            Util.deleteRecursive(entry);
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the least recently used references beyond {@link #MAX_ENTRIES}, skipping those in use.
+     */
+    /*package*/ void evict() {
+        File[] entries = dir.listFiles();
+        if (entries == null || entries.length <= MAX_ENTRIES) {
+            return;
+        }
+        Arrays.sort(entries, new Comparator<File>() {
+            public int compare(File a, File b) {
+                long x = a.lastModified(), y = b.lastModified();
+                return x < y ? -1 : x > y ? 1 : 0;
+            }
+        });
+        int excess = entries.length - MAX_ENTRIES;
+        for (File entry : entries) {
+            if (excess == 0) {
+                break;
+            }
+            ReentrantLock lock = lock(entry.getName());
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                Util.deleteRecursive(entry);
+                excess--;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to delete the cached working copy " + entry, e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Ignores the progress of the reference update, but lets the build abort it.
+     */
+    private static final ISVNEventHandler CANCELLER = new SVNEventAdapter() {
+        @Override
+        public void handleEvent(SVNEvent event, double progress) {
+        }
+
+        @Override
+        public void checkCancelled() throws SVNCancelException {
+            if (Thread.interrupted()) {
+                throw new SVNCancelException();
+            }
+        }
+    };
+
+    private static final Logger LOGGER = Logger.getLogger(CheckoutCache.class.getName());
+
+    /**
+     * Directory of the node where the reference working copies are kept. Null disables the cache, which is the default.
+     */
+    public static String DIR = System.getProperty(CheckoutCache.class.getName() + ".dir");
+
+    /**
+     * Maximum number of reference working copies kept.
+     */
+    public static int MAX_ENTRIES = Integer.getInteger(CheckoutCache.class.getName() + ".maxEntries", 10).intValue();
+}
@@ -27,7 +27,7 @@
 package hudson.scm.subversion;
 
 import hudson.Extension;
-import hudson.Util;
+import hudson.model.TaskListener;
 import hudson.scm.SubversionWorkspaceSelector;
 import hudson.scm.SubversionSCM.External;
 import hudson.scm.SubversionSCM.ModuleLocation;
@@ -41,7 +41,6 @@ import org.tmatesoft.svn.core.wc.SVNRevision;
 import org.tmatesoft.svn.core.wc.SVNUpdateClient;
 
 import java.io.*;
-import java.util.ArrayList;
 import java.util.List;
 
 
@@ -51,10 +50,17 @@ import java.util.List;
  * @author Kohsuke Kawaguchi
  */
 public class CheckoutUpdater extends WorkspaceUpdater {
-    @DataBoundConstructor
     public CheckoutUpdater() {
     }
 
+    /**
+     * @param parallelism how many module locations may be fetched at the same time, 0 for the default.
+     */
+    @DataBoundConstructor
+    public CheckoutUpdater(int parallelism) {
+        super(parallelism);
+    }
+
     public UpdateTask createTask() {
         return new UpdateTaskImpl();
     }
@@ -69,56 +75,26 @@ public class CheckoutUpdater extends WorkspaceUpdater {
 
     protected static class UpdateTaskImpl extends UpdateTask {
         public List<External> perform() throws IOException, InterruptedException {
-            final SVNUpdateClient svnuc = manager.getUpdateClient();
-            final List<External> externals = new ArrayList<External>(); // store discovered externals to here
-
             cleanupBeforeCheckout();
 
             // buffer the output by a separate thread so that the update operation
             // won't be blocked by the remoting of the data
             PipedOutputStream pos = new PipedOutputStream();
+            final PrintStream out = new PrintStream(pos);
             StreamCopyThread sct = null;
             if (listener != null) {
                 sct = new StreamCopyThread("svn log copier", new PipedInputStream(pos),
                         listener.getLogger());
                 sct.start();
             }
-            ModuleLocation location = null;
             try {
-                for (final ModuleLocation l : locations) {
-                    location = l;
-                    SVNDepth svnDepth = getSvnDepth(l.getDepthOption());
-                    SVNRevision revision = getRevision(l);
-                    if (listener != null) {
-                        listener.getLogger().println("Checking out " + l.remote + " revision: " +
-                                (revision != null ? revision.toString() : "null") + " depth:" + svnDepth +
-                                " ignoreExternals: " + l.isIgnoreExternalsOption());
+                return forEachLocation(new LocationWork() {
+                    public boolean perform(UpdateTask task, ModuleLocation l, List<External> externals)
+                        throws IOException, InterruptedException {
+                        // locations fetched in parallel already have their output buffered
+                        return checkout(task, l, externals, task == UpdateTaskImpl.this ? out : task.listener.getLogger());
                     }
-                    File local = new File(ws, l.getLocalDir());
-                    svnuc.setIgnoreExternals(l.isIgnoreExternalsOption());
-                    SubversionUpdateEventHandler handler = new SubversionUpdateEventHandler(new PrintStream(pos), externals, local, l.getLocalDir());
-                    svnuc.setEventHandler(handler);
-                    svnuc.setExternalsHandler(handler);
-                    
-                    // If we can't find a valid working generation, fall back to 1.6 generation.
-                    if (SubversionWorkspaceSelector.workspaceFormat == SubversionWorkspaceSelector.workingCopyFormat17)
-                    	svnuc.getOperationsFactory().setPrimaryWcGeneration(SvnWcGeneration.V17);
-                    else 
-                    	svnuc.getOperationsFactory().setPrimaryWcGeneration(SvnWcGeneration.V16);
-                    
-                    // Finally perform a checkout.
-                    svnuc.doCheckout(l.getSVNURL(), local.getCanonicalFile(), SVNRevision.HEAD, revision,
-                            svnDepth, true);
-                }
-            } catch (SVNException e) {
-                //TODO find better solution than this workaround, svnkit uses the same exception and
-                // the same error code in case of aborted builds and builds with invalid credentials
-                if (e.getMessage() != null && e.getMessage().contains(SVN_CANCEL_EXCEPTION_MESSAGE)) {
-                    listener.error("Svn command was aborted");
-                    throw (InterruptedException) new InterruptedException().initCause(e);
-                }
-                e.printStackTrace(listener.error("Failed to check out " + location.remote));
-                return null;
+                });
             } finally {
                 try {
                     pos.close();
@@ -132,8 +108,75 @@ public class CheckoutUpdater extends WorkspaceUpdater {
                     }
                 }
             }
+        }
 
-            return externals;
+        /**
+         * Checks out a single location with the {@link #manager} and {@link #listener} of the given task.
+         */
+        private static boolean checkout(UpdateTask task, ModuleLocation l, List<External> externals, PrintStream out)
+            throws IOException, InterruptedException {
+            TaskListener listener = task.listener;
+            try {
+                doCheckout(task, l, externals, out);
+                return true;
+            } catch (SVNException e) {
+                //TODO find better solution than this workaround, svnkit uses the same exception and
+                // the same error code in case of aborted builds and builds with invalid credentials
+                if (e.getMessage() != null && e.getMessage().contains(SVN_CANCEL_EXCEPTION_MESSAGE)) {
+                    listener.error("Svn command was aborted");
+                    throw (InterruptedException) new InterruptedException().initCause(e);
+                }
+                e.printStackTrace(listener.error("Failed to check out " + l.remote));
+                return false;
+            }
+        }
+
+        private static void doCheckout(UpdateTask task, ModuleLocation l, List<External> externals, PrintStream logger)
+            throws SVNException, IOException, InterruptedException {
+            TaskListener listener = task.listener;
+            final SVNUpdateClient svnuc = task.manager.getUpdateClient();
+            SVNDepth svnDepth = getSvnDepth(l.getDepthOption());
+            SVNRevision revision = task.getRevision(l);
+            if (listener != null) {
+                listener.getLogger().println("Checking out " + l.remote + " revision: " +
+                        (revision != null ? revision.toString() : "null") + " depth:" + svnDepth +
+                        " ignoreExternals: " + l.isIgnoreExternalsOption());
+            }
+            File local = new File(task.ws, l.getLocalDir());
+            svnuc.setIgnoreExternals(l.isIgnoreExternalsOption());
+            
+            // If we can't find a valid working generation, fall back to 1.6 generation.
+            if (SubversionWorkspaceSelector.workspaceFormat == SubversionWorkspaceSelector.workingCopyFormat17)
+            	svnuc.getOperationsFactory().setPrimaryWcGeneration(SvnWcGeneration.V17);
+            else 
+            	svnuc.getOperationsFactory().setPrimaryWcGeneration(SvnWcGeneration.V16);
+
+            CheckoutCache cache = CheckoutCache.get();
+            boolean seeded = cache != null && cache.seed(svnuc, l, revision, svnDepth, local.getCanonicalFile());
+
+            // there's a line per file, so don't write them one by one
+            PrintStream out = new PrintStream(new BufferedOutputStream(logger));
+            SubversionUpdateEventHandler handler = new SubversionUpdateEventHandler(out, externals, local, l.getLocalDir(),
+                task.updatedRevisions);
+            handler.setLogLevel(task.logLevel, task.detailLog);
+            handler.setCancelled(task.cancelled);
+            try {
+                svnuc.setEventHandler(handler);
+                svnuc.setExternalsHandler(handler);
+
+                if (seeded) {
+                    // bring the copy of the cached working copy to the revision, if it moved in between
+                    out.println("Copied " + l.remote + " from the checkout cache");
+                    svnuc.doUpdate(local.getCanonicalFile(), revision, svnDepth, true, false);
+                    return;
+                }
+
+                // Finally perform a checkout.
+                svnuc.doCheckout(l.getSVNURL(), local.getCanonicalFile(), SVNRevision.HEAD, revision,
+                        svnDepth, true);
+            } finally {
+                handler.finish();
+            }
         }
 
         /**
@@ -145,7 +188,7 @@ public class CheckoutUpdater extends WorkspaceUpdater {
             if (listener != null && listener.getLogger() != null) {
                 listener.getLogger().println("Cleaning workspace " + ws.getCanonicalPath());
             }
-            Util.deleteContentsRecursive(ws);
+            WorkspaceTrash.deleteContentsRecursive(ws);
         }
     }
     
@@ -156,7 +199,7 @@ public class CheckoutUpdater extends WorkspaceUpdater {
     	
     	if (!(o instanceof CheckoutUpdater))
     		return false;
-    	return true;
+    	return getParallelism() == ((CheckoutUpdater) o).getParallelism();
     }
     
     @Override
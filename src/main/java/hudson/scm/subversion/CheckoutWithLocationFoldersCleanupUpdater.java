@@ -24,7 +24,6 @@
 package hudson.scm.subversion;
 
 import hudson.Extension;
-import hudson.Util;
 import hudson.scm.SubversionSCM;
 import org.kohsuke.stapler.DataBoundConstructor;
 
@@ -45,10 +44,17 @@ public class CheckoutWithLocationFoldersCleanupUpdater extends WorkspaceUpdater
     /**
      * Constructor.
      */
-    @DataBoundConstructor
     public CheckoutWithLocationFoldersCleanupUpdater() {
     }
 
+    /**
+     * @param parallelism how many module locations may be fetched at the same time, 0 for the default.
+     */
+    @DataBoundConstructor
+    public CheckoutWithLocationFoldersCleanupUpdater(int parallelism) {
+        super(parallelism);
+    }
+
     /**
      * Creates update task.
      *
@@ -84,7 +90,7 @@ public class CheckoutWithLocationFoldersCleanupUpdater extends WorkspaceUpdater
                 if (listener != null && listener.getLogger() != null) {
                     listener.getLogger().println("Cleaning checkout folder " + local.getCanonicalPath());
                 }
-                Util.deleteContentsRecursive(local);
+                WorkspaceTrash.deleteContentsRecursive(local);
             }
         }
     }
@@ -0,0 +1,165 @@
+package hudson.scm.subversion;
+
+import hudson.Extension;
+import hudson.scm.SubversionSCM.External;
+import hudson.scm.SubversionSCM.ModuleLocation;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNProperty;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.wc.SVNExternal;
+import org.tmatesoft.svn.core.wc.ISVNPropertyHandler;
+import org.tmatesoft.svn.core.wc.SVNPropertyData;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+import org.tmatesoft.svn.core.wc.SVNUpdateClient;
+
+/**
+ * {@link WorkspaceUpdater} that cleans the workspace and then performs "svn export", so that the workspace
+ * gets the files without any working copy metadata or pristine copies.
+ * <p/>
+ * The revisions of the modules and externals are still recorded, so polling and change logs work as usual,
+ * but the workspace can't be updated afterwards: every build exports everything again.
+ */
+public class ExportUpdater extends WorkspaceUpdater {
+    public ExportUpdater() {
+    }
+
+    /**
+     * @param parallelism how many module locations may be fetched at the same time, 0 for the default.
+     */
+    @DataBoundConstructor
+    public ExportUpdater(int parallelism) {
+        super(parallelism);
+    }
+
+    @Override
+    public UpdateTask createTask() {
+        return new TaskImpl();
+    }
+
+    @Extension
+    public static class DescriptorImpl extends WorkspaceUpdaterDescriptor {
+        @Override
+        public String getDisplayName() {
+            return Messages.ExportUpdater_DisplayName();
+        }
+    }
+
+    public static class TaskImpl extends UpdateTask {
+        @Override
+        public List<External> perform() throws IOException, InterruptedException {
+            if (listener != null && listener.getLogger() != null) {
+                listener.getLogger().println("Cleaning workspace " + ws.getCanonicalPath());
+            }
+            WorkspaceTrash.deleteContentsRecursive(ws);
+
+            return forEachLocation(new LocationWork() {
+                public boolean perform(UpdateTask task, ModuleLocation l, List<External> externals)
+                    throws IOException, InterruptedException {
+                    try {
+                        ((TaskImpl) task).export(l, externals);
+                        return true;
+                    } catch (SVNException e) {
+                        //TODO find better solution than this workaround, svnkit uses the same exception and
+                        // the same error code in case of aborted builds and builds with invalid credentials
+                        if (e.getMessage() != null && e.getMessage().contains(SVN_CANCEL_EXCEPTION_MESSAGE)) {
+                            task.listener.error("Svn command was aborted");
+                            throw (InterruptedException) new InterruptedException().initCause(e);
+                        }
+                        e.printStackTrace(task.listener.error("Failed to export " + l.remote));
+                        return false;
+                    }
+                }
+            });
+        }
+
+        /**
+         * Exports a single location with the {@link #manager} and {@link #listener} of this task.
+         */
+        private void export(ModuleLocation l, List<External> externals) throws SVNException, IOException {
+            SVNDepth svnDepth = getSvnDepth(l.getDepthOption());
+            SVNRevision revision = getRevision(l);
+            listener.getLogger().println("Exporting " + l.remote + " revision: " +
+                (revision != null ? revision.toString() : "null") + " depth:" + svnDepth +
+                " ignoreExternals: " + l.isIgnoreExternalsOption());
+
+            File local = new File(ws, l.getLocalDir()).getCanonicalFile();
+            // the directories that completed: the module, and the externals in it
+            Map<File, Long> completed = new HashMap<File, Long>();
+            SVNUpdateClient svnuc = manager.getUpdateClient();
+            svnuc.setIgnoreExternals(l.isIgnoreExternalsOption());
+            // there's a line per file, so don't write them one by one
+            PrintStream out = new PrintStream(new BufferedOutputStream(listener.getLogger()));
+            SubversionUpdateEventHandler handler = new SubversionUpdateEventHandler(out, externals,
+                local, l.getLocalDir(), completed);
+            handler.setLogLevel(logLevel, detailLog);
+            handler.setCancelled(cancelled);
+            svnuc.setEventHandler(handler);
+            long rev;
+            try {
+                rev = svnuc.doExport(l.getSVNURL(), local, SVNRevision.HEAD, revision, null, true, svnDepth);
+            } finally {
+                handler.finish();
+            }
+
+            completed.put(local, Long.valueOf(rev));
+            if (updatedRevisions != null) {
+                updatedRevisions.putAll(completed);
+            }
+            if (completed.size() > 1) {
+                // export doesn't report the externals, so find out what they were
+                findExternals(l, rev, externals);
+            }
+        }
+
+        /**
+         * Reads the svn:externals definitions of the location, as they were at the given revision.
+         */
+        private void findExternals(ModuleLocation l, long rev, final List<External> externals) throws SVNException {
+            final SVNURL url = l.getSVNURL();
+            final SVNURL root = manager.createRepository(url, true).getRepositoryRoot(true);
+            final String modulePath = l.getLocalDir();
+            SVNRevision r = SVNRevision.create(rev);
+            manager.getWCClient().doGetProperty(url, SVNProperty.EXTERNALS, r, r, SVNDepth.INFINITY,
+                new ISVNPropertyHandler() {
+                    public void handleProperty(SVNURL owner, SVNPropertyData property) throws SVNException {
+                        // path of the directory that has the definition, within the module
+                        String ownerPath = owner.getPath().substring(url.getPath().length());
+                        for (SVNExternal ext : SVNExternal.parseExternals(owner, SVNPropertyValue.getPropertyAsString(
+                            property.getValue()))) {
+                            SVNURL resolved = ext.resolveURL(root, owner);
+                            externals.add(new External(modulePath + ownerPath + '/' + ext.getPath(), resolved,
+                                ext.getRevision().getNumber()));
+                        }
+                    }
+
+                    public void handleProperty(File path, SVNPropertyData property) {
+                    }
+
+                    public void handleProperty(long revision, SVNPropertyData property) {
+                    }
+                });
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof ExportUpdater && getParallelism() == ((ExportUpdater) o).getParallelism();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -31,6 +31,8 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.net.URL;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.tmatesoft.svn.core.SVNCancelException;
@@ -61,23 +63,112 @@ final class SubversionUpdateEventHandler extends SubversionEventHandlerImpl impl
      * Relative path from the workspace root to the module root.
      */
     private final String modulePath;
+    /**
+     * Revisions the module and its externals were updated to, by their canonical directory. Can be null.
+     */
+    private final Map<File, Long> revisions;
+    /**
+     * How much of the progress goes to {@link #out}.
+     */
+    private WorkspaceUpdater.LogLevel logLevel = WorkspaceUpdater.LogLevel.FULL;
+    /**
+     * Where the lines about individual paths go when {@link #logLevel} keeps them out of {@link #out}. Can be null.
+     */
+    private PrintStream detailLog;
+    /**
+     * If not null, stops the operation once set. See {@link WorkspaceUpdater.UpdateTask#cancelled}.
+     */
+    private AtomicBoolean cancelled;
+    /**
+     * Number of paths added, updated, deleted, conflicted and merged, in the order of {@link #ACTIONS},
+     * and of all the paths reported.
+     */
+    private final int[] counts = new int[ACTIONS.length() + 1];
+    private final long start = System.currentTimeMillis();
+    private long lastSummary = start;
 
     public SubversionUpdateEventHandler(PrintStream out, List<External> externals, File moduleDir, String modulePath) {
+        this(out, externals, moduleDir, modulePath, null);
+    }
+
+    public SubversionUpdateEventHandler(PrintStream out, List<External> externals, File moduleDir, String modulePath,
+                                        Map<File, Long> revisions) {
         super(out, moduleDir);
         this.externals = externals;
         this.modulePath = modulePath;
+        this.revisions = revisions;
     }
 
-    public void handleEvent(SVNEvent event, double progress) throws SVNException {
-        File file = event.getFile();
-        String path = null;
-        try {
-            path = getRelativePath(file);
-        } catch (IOException e) {
-            throw new SVNException(SVNErrorMessage.create(SVNErrorCode.FS_GENERAL), e);
+    /**
+     * Sets how much of the progress is printed.
+     *
+     * @param detailLog where the lines about individual paths go when they are kept out of the console, or null.
+     */
+    public void setLogLevel(WorkspaceUpdater.LogLevel logLevel, PrintStream detailLog) {
+        this.logLevel = logLevel;
+        this.detailLog = detailLog;
+    }
+
+    /**
+     * Sets what stops the operation, besides interrupting its thread. Can be null.
+     */
+    public void setCancelled(AtomicBoolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Prints the final summary, if any, and flushes the output. Called when the operation is over.
+     */
+    public void finish() {
+        if (logLevel == WorkspaceUpdater.LogLevel.SUMMARY) {
+            printSummary(System.currentTimeMillis());
         }
-        path = getLocalPath(path);
+        out.flush();
+    }
 
+    @Override
+    protected boolean wantsPaths() {
+        return logLevel == WorkspaceUpdater.LogLevel.FULL || detailLog != null;
+    }
+
+    @Override
+    protected void printPath(StringBuilder line) {
+        if (logLevel == WorkspaceUpdater.LogLevel.FULL) {
+            super.printPath(line);
+            return;
+        }
+        if (detailLog != null) {
+            // the detail log is shared by all the modules
+            synchronized (detailLog) {
+                detailLog.print(modulePath);
+                detailLog.print(": ");
+                detailLog.println(line);
+            }
+        }
+        if (logLevel == WorkspaceUpdater.LogLevel.SUMMARY) {
+            // the action is in the first column, or the second for property changes
+            char c = line.charAt(0) != ' ' ? line.charAt(0) : line.charAt(1);
+            int i = ACTIONS.indexOf(c);
+            if (i >= 0) {
+                counts[i]++;
+            }
+            counts[ACTIONS.length()]++;
+            long now = System.currentTimeMillis();
+            if (now - lastSummary >= WorkspaceUpdater.LOG_SUMMARY_INTERVAL * 1000L) {
+                printSummary(now);
+            }
+        }
+    }
+
+    private void printSummary(long now) {
+        lastSummary = now;
+        long elapsed = now - start;
+        int total = counts[ACTIONS.length()];
+        out.println(Messages.SubversionUpdateEventHandler_Summary(getLocalPath(modulePath), counts[0], counts[1],
+            counts[2], counts[3], counts[4], total, elapsed / 1000, total * 1000L / Math.max(elapsed, 1)));
+    }
+
+    public void handleEvent(SVNEvent event, double progress) throws SVNException {
         /*
          * Gets the current action. An action is represented by SVNEventAction.
          * In case of an update an  action  can  be  determined  via  comparing
@@ -98,6 +189,13 @@ final class SubversionUpdateEventHandler extends SubversionEventHandlerImpl impl
                 }
                 out.println("AssertionError: appears to be using unpatched svnkit at " + jarFile);
             } else {
+                // only needed here, so that other events don't pay for it
+                String path;
+                try {
+                    path = getLocalPath(getRelativePath(event.getFile()));
+                } catch (IOException e) {
+                    throw new SVNException(SVNErrorMessage.create(SVNErrorCode.FS_GENERAL), e);
+                }
                 out.println(Messages.SubversionUpdateEventHandler_FetchExternal(
                     ext.getResolvedURL(), Long.valueOf(ext.getRevision().getNumber()), event.getFile()));
                 //#1539 - an external inside an external needs to have the path appended 
@@ -116,12 +214,30 @@ final class SubversionUpdateEventHandler extends SubversionEventHandlerImpl impl
         super.handleEvent(event, progress);
     }
 
+    @Override
+    public void handleEvent(org.tmatesoft.svn.core.wc.SVNEvent event, double progress) throws SVNException {
+        if (event.getAction() == SVNEventAction.UPDATE_COMPLETED && revisions != null && event.getRevision() >= 0) {
+            File file = event.getFile();
+            try {
+                revisions.put(file.getCanonicalFile(), Long.valueOf(event.getRevision()));
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to canonicalize " + file, e);
+            }
+        }
+        super.handleEvent(event, progress);
+    }
+
     public void checkCancelled() throws SVNCancelException {
-        if (Thread.interrupted()) {
+        if (Thread.interrupted() || cancelled != null && cancelled.get()) {
             throw new SVNCancelException();
         }
     }
 
+    /**
+     * Added, updated, deleted, conflicted and merged, as printed in the first column.
+     */
+    private static final String ACTIONS = "AUDCG";
+
 	@Override
 	public SVNRevision[] handleExternal(File externalPath, SVNURL externalURL,
 			SVNRevision externalRevision, SVNRevision externalPegRevision,
@@ -41,8 +41,10 @@ import org.tmatesoft.svn.core.wc.SVNRevision;
 import org.tmatesoft.svn.core.wc.SVNUpdateClient;
 import org.tmatesoft.svn.core.wc.SVNWCClient;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -124,7 +126,11 @@ public class SwitchUpdater extends WorkspaceUpdater {
             for (final ModuleLocation l : locations) {
                 try {
                     File local = new File(ws, l.getLocalDir());
-                    SubversionUpdateEventHandler handler = new SubversionUpdateEventHandler(listener.getLogger(), externals, local, l.getLocalDir());
+                    // there's a line per file, so don't write them one by one
+                    PrintStream out = new PrintStream(new BufferedOutputStream(listener.getLogger()));
+                    SubversionUpdateEventHandler handler = new SubversionUpdateEventHandler(out, externals, local, l.getLocalDir(),
+                        updatedRevisions);
+                    handler.setLogLevel(logLevel, detailLog);
                     svnuc.setEventHandler(handler);
                     svnuc.setExternalsHandler(handler);
 
@@ -137,7 +143,11 @@ public class SwitchUpdater extends WorkspaceUpdater {
                     listener.getLogger().println("Switching " + l.remote + " revision: " +
                         (revision != null ? revision.toString() : "null") + " depth:" + svnDepth +
                         " ignoreExternals: " + l.isIgnoreExternalsOption());
-                    svnuc.doSwitch(local.getCanonicalFile(), l.getSVNURL(), SVNRevision.HEAD, revision, svnDepth, true, false);
+                    try {
+                        svnuc.doSwitch(local.getCanonicalFile(), l.getSVNURL(), SVNRevision.HEAD, revision, svnDepth, true, false);
+                    } finally {
+                        handler.finish();
+                    }
                 } catch (final SVNException e) {
                     //TODO find better solution than this workaround, svnkit uses the same exception and
                     // the same error code in case of aborted builds and builds with invalid credentials
@@ -41,10 +41,12 @@ import org.tmatesoft.svn.core.wc.SVNRevision;
 import org.tmatesoft.svn.core.wc.SVNUpdateClient;
 import org.tmatesoft.svn.core.wc.SVNWCClient;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.PrintStream;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * {@link WorkspaceUpdater} that uses "svn update" as much as possible.
@@ -52,10 +54,17 @@ import java.util.List;
  * @author Kohsuke Kawaguchi
  */
 public class UpdateUpdater extends WorkspaceUpdater {
-    @DataBoundConstructor
     public UpdateUpdater() {
     }
 
+    /**
+     * @param parallelism how many module locations may be fetched at the same time, 0 for the default.
+     */
+    @DataBoundConstructor
+    public UpdateUpdater(int parallelism) {
+        super(parallelism);
+    }
+
     @Override
     public UpdateTask createTask() {
         return new TaskImpl();
@@ -113,59 +122,82 @@ public class UpdateUpdater extends WorkspaceUpdater {
             if (!isUpdatable())
                 return delegateTo(new CheckoutUpdater());
 
-            final SVNUpdateClient svnuc = manager.getUpdateClient();
-            final List<External> externals = new ArrayList<External>(); // store discovered externals to here
-
-            for (final ModuleLocation l : locations) {
-                try {
-                	File local = new File(ws, l.getLocalDir());
-                	SubversionUpdateEventHandler handler = new SubversionUpdateEventHandler(listener.getLogger(), externals, local, l.getLocalDir());
-                    svnuc.setEventHandler(handler);
-                    svnuc.setExternalsHandler(handler);
-                    
-                    svnuc.setIgnoreExternals(l.isIgnoreExternalsOption());
-                    preUpdate(l, local);
-
-                    SVNDepth svnDepth = getSvnDepth(l.getDepthOption());
-                    SVNRevision revision = getRevision(l);
-
-                    listener.getLogger().println("Updating " + l.remote + " revision: " +
-                        (revision != null ? revision.toString() : "null") + " depth:" + svnDepth +
-                        " ignoreExternals: " + l.isIgnoreExternalsOption());
-                    svnuc.doUpdate(local.getCanonicalFile(), revision, svnDepth, true, false);
-                } catch (final SVNException e) {
-                    //TODO find better solution than this workaround, svnkit uses the same exception and
-                    // the same error code in case of aborted builds and builds with invalid credentials
-                    if (e.getMessage() != null && e.getMessage().contains(SVN_CANCEL_EXCEPTION_MESSAGE)) {
-                        listener.error("Svn command was aborted");
-                        throw (InterruptedException) new InterruptedException().initCause(e);
-                    }
-
-                    if (e.getErrorMessage().getErrorCode() == SVNErrorCode.WC_LOCKED) {
-                        // work space locked. try fresh check out
-                        listener.getLogger().println("Workspace appear to be locked, so Failing the build");
-                        throw (InterruptedException) new InterruptedException().initCause(e);
-                    }
-                    if (e.getErrorMessage().getErrorCode() == SVNErrorCode.WC_OBSTRUCTED_UPDATE) {
-                        // HUDSON-1882. If existence of local files cause an update to fail,
-                        // revert to fresh check out
-                        listener.getLogger().println(e.getMessage()); // show why this happened. Sometimes this is caused by having a build artifact in the repository.
-                        listener.getLogger().println("Updated failed due to local files. Getting a fresh workspace");
-                        return delegateTo(new CheckoutUpdater());
-                    }
-
-                    e.printStackTrace(listener.error("Failed to update " + l.remote));
-                    // trouble-shooting probe for #591
-                    if (e.getErrorMessage().getErrorCode() == SVNErrorCode.WC_NOT_LOCKED) {
-                        listener.getLogger().println("Polled jobs are " + Hudson.getInstance().getDescriptorByType(SCMTrigger.DescriptorImpl.class).getItemsBeingPolled());
+            final AtomicBoolean obstructed = new AtomicBoolean();
+            List<External> externals = forEachLocation(new LocationWork() {
+                public boolean perform(UpdateTask task, ModuleLocation l, List<External> externals)
+                    throws IOException, InterruptedException {
+                    TaskImpl t = (TaskImpl) task;
+                    try {
+                        return t.update(l, externals);
+                    } catch (final SVNException e) {
+                        //TODO find better solution than this workaround, svnkit uses the same exception and
+                        // the same error code in case of aborted builds and builds with invalid credentials
+                        if (e.getMessage() != null && e.getMessage().contains(SVN_CANCEL_EXCEPTION_MESSAGE)) {
+                            t.listener.error("Svn command was aborted");
+                            throw (InterruptedException) new InterruptedException().initCause(e);
+                        }
+
+                        if (e.getErrorMessage().getErrorCode() == SVNErrorCode.WC_LOCKED) {
+                            // work space locked. try fresh check out
+                            t.listener.getLogger().println("Workspace appear to be locked, so Failing the build");
+                            throw (InterruptedException) new InterruptedException().initCause(e);
+                        }
+                        if (e.getErrorMessage().getErrorCode() == SVNErrorCode.WC_OBSTRUCTED_UPDATE) {
+                            // HUDSON-1882. If existence of local files cause an update to fail,
+                            // revert to fresh check out
+                            t.listener.getLogger().println(e.getMessage()); // show why this happened. Sometimes this is caused by having a build artifact in the repository.
+                            t.listener.getLogger().println("Updated failed due to local files. Getting a fresh workspace");
+                            obstructed.set(true);
+                            return false;
+                        }
+
+                        e.printStackTrace(t.listener.error("Failed to update " + l.remote));
+                        // trouble-shooting probe for #591
+                        if (e.getErrorMessage().getErrorCode() == SVNErrorCode.WC_NOT_LOCKED) {
+                            t.listener.getLogger().println("Polled jobs are " + Hudson.getInstance().getDescriptorByType(SCMTrigger.DescriptorImpl.class).getItemsBeingPolled());
+                        }
+                        return false;
                     }
-                    return null;
                 }
+            });
+            if (obstructed.get()) {
+                return delegateTo(new CheckoutUpdater());
             }
-
             return externals;
         }
 
+        /**
+         * Runs "svn update" on a single location, with the {@link #manager} and {@link #listener} of this task.
+         */
+        private boolean update(ModuleLocation l, List<External> externals) throws SVNException, IOException {
+            final SVNUpdateClient svnuc = manager.getUpdateClient();
+            File local = new File(ws, l.getLocalDir());
+            // there's a line per file, so don't write them one by one
+            PrintStream out = new PrintStream(new BufferedOutputStream(listener.getLogger()));
+            SubversionUpdateEventHandler handler = new SubversionUpdateEventHandler(out, externals, local, l.getLocalDir(),
+                updatedRevisions);
+            handler.setLogLevel(logLevel, detailLog);
+            handler.setCancelled(cancelled);
+            svnuc.setEventHandler(handler);
+            svnuc.setExternalsHandler(handler);
+            
+            svnuc.setIgnoreExternals(l.isIgnoreExternalsOption());
+            preUpdate(l, local);
+
+            SVNDepth svnDepth = getSvnDepth(l.getDepthOption());
+            SVNRevision revision = getRevision(l);
+
+            listener.getLogger().println("Updating " + l.remote + " revision: " +
+                (revision != null ? revision.toString() : "null") + " depth:" + svnDepth +
+                " ignoreExternals: " + l.isIgnoreExternalsOption());
+            try {
+                svnuc.doUpdate(local.getCanonicalFile(), revision, svnDepth, true, false);
+            } finally {
+                handler.finish();
+            }
+            return true;
+        }
+
         /**
          * Hook for subtype to perform some cleanup activity before "svn update" takes place.
          *
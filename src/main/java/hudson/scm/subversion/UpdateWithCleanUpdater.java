@@ -25,9 +25,9 @@ package hudson.scm.subversion;
 
 import hudson.Extension;
 import hudson.scm.SubversionSCM.ModuleLocation;
-import org.apache.commons.io.FileUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNCancelException;
 import org.tmatesoft.svn.core.SVNErrorMessage;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.wc.ISVNStatusHandler;
@@ -42,9 +42,16 @@ import java.io.IOException;
  * @author Kohsuke Kawaguchi
  */
 public class UpdateWithCleanUpdater extends WorkspaceUpdater {
-    @DataBoundConstructor
     public UpdateWithCleanUpdater() {}
 
+    /**
+     * @param parallelism how many module locations may be fetched at the same time, 0 for the default.
+     */
+    @DataBoundConstructor
+    public UpdateWithCleanUpdater(int parallelism) {
+        super(parallelism);
+    }
+
     @Override
     public UpdateTask createTask() {
         return new TaskImpl();
@@ -56,35 +63,38 @@ public class UpdateWithCleanUpdater extends WorkspaceUpdater {
         protected void preUpdate(ModuleLocation module, File local) throws SVNException {
             listener.getLogger().println("Cleaning up " + local);
 
-            manager.getStatusClient().doStatus(local, null, SVNDepth.INFINITY, false, false, true, false, new ISVNStatusHandler() {
-                public void handleStatus(SVNStatus status) throws SVNException {
-                    SVNStatusType s = status.getContentsStatus();
-                    /*
-                     * Perform a delete on the file/directory if any of the following are meet:
-                     * 1. The status of the file is unversioned.
-                     * 2. The status of the file is ignored.
-                     * 3. The status of the file is modified.
-                     * 4. Unable to obtain the status of a specific file.
-                     * 
-                     */
-                    if (s == SVNStatusType.STATUS_UNVERSIONED ||
-                    	s == SVNStatusType.STATUS_IGNORED ||
-                    	s == SVNStatusType.STATUS_MODIFIED ||
-                    	s == SVNStatusType.STATUS_NONE) {
-                        listener.getLogger().println("Deleting "+status.getFile());
-                        try {
-                            File f = status.getFile();
-                            if (f.isDirectory())
-                                FileUtils.deleteDirectory(f);
-                            else
-                                if (!f.delete())
-                                	throw new IOException("Failed to delete file: " + f.getAbsolutePath());
-                        } catch (IOException e) {
-                            throw new SVNException(SVNErrorMessage.UNKNOWN_ERROR_MESSAGE,e);
+            // the deletions run in the background while the status is collected
+            final WorkspaceCleaner cleaner = new WorkspaceCleaner();
+            try {
+                manager.getStatusClient().doStatus(local, null, SVNDepth.INFINITY, false, false, true, false, new ISVNStatusHandler() {
+                    public void handleStatus(SVNStatus status) throws SVNException {
+                        SVNStatusType s = status.getContentsStatus();
+                        /*
+                         * Perform a delete on the file/directory if any of the following are meet:
+                         * 1. The status of the file is unversioned.
+                         * 2. The status of the file is ignored.
+                         * 3. The status of the file is modified.
+                         * 4. Unable to obtain the status of a specific file.
+                         * 
+                         */
+                        if (s == SVNStatusType.STATUS_UNVERSIONED ||
+                        	s == SVNStatusType.STATUS_IGNORED ||
+                        	s == SVNStatusType.STATUS_MODIFIED ||
+                        	s == SVNStatusType.STATUS_NONE) {
+                            cleaner.delete(status.getFile());
                         }
                     }
-                }
-            }, null);
+                }, null);
+                cleaner.await();
+            } catch (IOException e) {
+                throw new SVNException(SVNErrorMessage.UNKNOWN_ERROR_MESSAGE,e);
+            } catch (InterruptedException e) {
+                throw new SVNCancelException();
+            } finally {
+                cleaner.shutdown();
+            }
+            listener.getLogger().println("Deleted " + cleaner.getFileCount() + " files and "
+                + cleaner.getDirectoryCount() + " directories");
         }
     }
 
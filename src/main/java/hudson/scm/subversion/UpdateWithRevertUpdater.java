@@ -37,9 +37,16 @@ import org.tmatesoft.svn.core.wc.SVNWCClient;
  * @author Kohsuke Kawaguchi
  */
 public class UpdateWithRevertUpdater extends WorkspaceUpdater {
-    @DataBoundConstructor
     public UpdateWithRevertUpdater() {}
 
+    /**
+     * @param parallelism how many module locations may be fetched at the same time, 0 for the default.
+     */
+    @DataBoundConstructor
+    public UpdateWithRevertUpdater(int parallelism) {
+        super(parallelism);
+    }
+
     @Override
     public UpdateTask createTask() {
         return new TaskImpl();
@@ -0,0 +1,188 @@
+package hudson.scm.subversion;
+
+import hudson.Util;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
+import hudson.util.IOException2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deletes files and directories, such as the unversioned files of a working copy, with a few threads.
+ * <p/>
+ * The directories are walked by the threads as they go, so that a single large directory is deleted in
+ * parallel too. The files are deleted first, then the emptied directories, deepest first.
+ * <p/>
+ * {@link #shutdown()} has to be called when done, even if {@link #await()} isn't.
+ */
+public final class WorkspaceCleaner {
+
+    private final ExecutorService executor;
+
+    /**
+     * Number of deletions scheduled and not done yet, and the first failure, guarded by the lock.
+     */
+    private final Object lock = new Object();
+    private int pending;
+    private IOException failure;
+
+    /**
+     * The directories to delete once their files are gone.
+     */
+    private final List<File> directories = Collections.synchronizedList(new ArrayList<File>());
+
+    private final AtomicInteger fileCount = new AtomicInteger();
+    private int directoryCount;
+
+    public WorkspaceCleaner() {
+        this(THREADS);
+    }
+
+    /*package*/ WorkspaceCleaner(int threads) {
+        executor = Executors.newFixedThreadPool(Math.max(threads, 1),
+            new ExceptionCatchingThreadFactory(new DaemonThreadFactory()));
+    }
+
+    /**
+     * Schedules the deletion of a file, or of a directory with everything in it.
+     */
+    public void delete(final File f) {
+        synchronized (lock) {
+            pending++;
+        }
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    visit(f);
+                } catch (IOException e) {
+                    fail(e);
+                } catch (RuntimeException e) {
+                    fail(new IOException2("Failed to delete " + f, e));
+                } finally {
+                    synchronized (lock) {
+                        if (--pending == 0) {
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private void visit(File f) throws IOException {
+        if (!f.isDirectory() || Util.isSymlink(f)) {
+            deleteFile(f);
+            return;
+        }
+        directories.add(f);
+        File[] children = f.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (Thread.currentThread().isInterrupted() || hasFailed()) {
+                return;
+            }
+            if (child.isDirectory()) {
+                delete(child);
+            } else {
+                deleteFile(child);
+            }
+        }
+    }
+
+    private void deleteFile(File f) throws IOException {
+        Util.deleteFile(f);
+        fileCount.incrementAndGet();
+    }
+
+    private void fail(IOException e) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = e;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private boolean hasFailed() {
+        synchronized (lock) {
+            return failure != null;
+        }
+    }
+
+    /**
+     * Waits until everything scheduled is deleted.
+     *
+     * @throws IOException the first failure to delete something. The rest may or may not have been deleted.
+     */
+    public void await() throws IOException, InterruptedException {
+        synchronized (lock) {
+            while (pending > 0 && failure == null) {
+                lock.wait();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        // the files are gone, so the directories can go, children before their parent
+        List<File> dirs = new ArrayList<File>(directories);
+        Collections.sort(dirs, new Comparator<File>() {
+            public int compare(File a, File b) {
+                return b.getPath().length() - a.getPath().length();
+            }
+        });
+        for (File dir : dirs) {
+            Util.deleteFile(dir);
+            directoryCount++;
+        }
+        directories.clear();
+    }
+
+    /**
+     * Stops the threads, interrupting any deletion in progress.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Number of files deleted so far, symbolic links included.
+     */
+    public int getFileCount() {
+        return fileCount.get();
+    }
+
+    /**
+     * Number of directories deleted by {@link #await()}.
+     */
+    public int getDirectoryCount() {
+        return directoryCount;
+    }
+
+    /**
+     * Number of threads deleting files.
+     */
+    public static int THREADS = Integer.getInteger(WorkspaceCleaner.class.getName() + ".threads", 4).intValue();
+}
@@ -0,0 +1,125 @@
+package hudson.scm.subversion;
+
+import hudson.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Area of a node where the old contents of workspaces are moved before a fresh check out, so that the build
+ * doesn't wait for them to be deleted. They are deleted by a low priority background thread instead.
+ * <p/>
+ * The contents are renamed into {@link #DIR}, which is only possible if it's on the same file system as the
+ * workspace. Whatever can't be renamed is deleted right away, as it is when the trash is disabled or when
+ * the file system has less than {@link #MIN_FREE_SPACE} megabytes left. Whatever a previous run of the node
+ * left in the trash is deleted the first time the trash is used again.
+ * <p/>
+ * Disabled unless {@link #DIR} is set, on the node where the check out happens.
+ */
+public final class WorkspaceTrash {
+
+    private WorkspaceTrash() {
+    }
+
+    /**
+     * Empties the given directory, like {@link Util#deleteContentsRecursive(File)}, by moving its contents to
+     * the trash if it's enabled.
+     */
+    public static void deleteContentsRecursive(File dir) throws IOException {
+        File trash = getDir();
+        if (trash == null) {
+            Util.deleteContentsRecursive(dir);
+            return;
+        }
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        trash.mkdirs();
+        if (trash.getUsableSpace() < MIN_FREE_SPACE * 1024L * 1024L) {
+            // the space the trash holds may be needed by the check out
+            Util.deleteContentsRecursive(dir);
+        } else {
+            for (File child : children) {
+                if (!child.renameTo(newEntry(trash))) {
+                    Util.deleteRecursive(child);
+                }
+            }
+        }
+        reap(trash);
+    }
+
+    /**
+     * Returns the trash directory of this node, or null if it's disabled.
+     */
+    private static File getDir() {
+        return DIR != null ? new File(DIR) : null;
+    }
+
+    private static File newEntry(File trash) {
+        File entry;
+        do {
+            entry = new File(trash, System.currentTimeMillis() + "-" + SEQUENCE.incrementAndGet());
+        } while (entry.exists());
+        return entry;
+    }
+
+    /**
+     * Has the reaper delete the contents of the trash, unless it's already about to.
+     */
+    private static void reap(final File trash) {
+        if (!QUEUED.compareAndSet(false, true)) {
+            return;
+        }
+        REAPER.execute(new Runnable() {
+            public void run() {
+                // what's moved to the trash from now on needs another pass
+                QUEUED.set(false);
+                File[] entries = trash.listFiles();
+                if (entries == null) {
+                    return;
+                }
+                for (File entry : entries) {
+                    try {
+                        Util.deleteRecursive(entry);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Failed to delete " + entry + " from the workspace trash", e);
+                    }
+                }
+            }
+        });
+    }
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static final AtomicBoolean QUEUED = new AtomicBoolean();
+
+    private static final ExecutorService REAPER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "Subversion workspace trash reaper");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    });
+
+    private static final Logger LOGGER = Logger.getLogger(WorkspaceTrash.class.getName());
+
+    /**
+     * Directory of the node where the old contents of workspaces are moved. Null disables the trash,
+     * which is the default.
+     */
+    public static String DIR = System.getProperty(WorkspaceTrash.class.getName() + ".dir");
+
+    /**
+     * Megabytes of disk space that have to be left where the trash is for it to be used.
+     */
+    public static long MIN_FREE_SPACE = Long.getLong(WorkspaceTrash.class.getName() + ".minFreeSpace", 1024).longValue();
+}
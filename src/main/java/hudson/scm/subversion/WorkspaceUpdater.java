@@ -24,6 +24,7 @@
 package hudson.scm.subversion;
 
 import hudson.ExtensionPoint;
+import hudson.console.LineTransformationOutputStream;
 import hudson.model.AbstractDescribableImpl;
 import hudson.model.Describable;
 import hudson.model.TaskListener;
@@ -32,6 +33,10 @@ import hudson.scm.SubversionSCM;
 import hudson.scm.SubversionSCM.External;
 import hudson.scm.SubversionSCM.ModuleLocation;
 import hudson.scm.util.RevisionUtil;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.ExceptionCatchingThreadFactory;
+import hudson.util.IOException2;
+import hudson.util.StreamTaskListener;
 
 import org.kohsuke.stapler.export.ExportedBean;
 import org.tmatesoft.svn.core.SVNDepth;
@@ -41,9 +46,21 @@ import org.tmatesoft.svn.core.wc.SVNRevision;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Encapsulates the logic of how files are obtained from a subversion repository.
@@ -57,6 +74,27 @@ import java.util.List;
  */
 @ExportedBean
 public abstract class WorkspaceUpdater extends AbstractDescribableImpl<WorkspaceUpdater> implements ExtensionPoint, Serializable {
+    /**
+     * How many module locations may be fetched at the same time by the updaters that fetch them one by one.
+     * 0 or less means {@link #PARALLELISM}.
+     */
+    private int parallelism;
+
+    protected WorkspaceUpdater() {
+    }
+
+    protected WorkspaceUpdater(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets how many module locations may be fetched at the same time, as configured for the job.
+     * 0 or less means {@link #PARALLELISM}.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
     /**
      * Creates the {@link UpdateTask} instance, which performs the actual check out / update.
      */
@@ -75,7 +113,7 @@ public abstract class WorkspaceUpdater extends AbstractDescribableImpl<Workspace
      * A number of contextual objects are defined as fields, to be used by the {@link #perform()} method.
      * These fields are set by {@link SubversionSCM} before the invocation.
      */
-    public static abstract class UpdateTask implements Serializable {
+    public static abstract class UpdateTask implements Serializable, Cloneable {
         private static final long serialVersionUID = 1L;
 
         protected static final String SVN_CANCEL_EXCEPTION_MESSAGE = "svn: Operation cancelled";
@@ -127,6 +165,34 @@ public abstract class WorkspaceUpdater extends AbstractDescribableImpl<Workspace
          */
         protected SubversionSCM.RevisionPolicy revisionPolicy;
 
+        /**
+         * How many module locations may be fetched at the same time. See {@link WorkspaceUpdater#getParallelism()}.
+         */
+        protected int parallelism = PARALLELISM;
+
+        /**
+         * Set when the locations fetched in parallel are to stop, and checked by their event handlers, since
+         * interrupting their threads doesn't always reach svnkit. Null unless locations are fetched in parallel.
+         */
+        protected transient AtomicBoolean cancelled;
+
+        /**
+         * If not null, where to record the revision each module and external was updated to, by its canonical
+         * directory. Must be safe for use from several threads.
+         */
+        protected Map<File, Long> updatedRevisions;
+
+        /**
+         * How much of the progress goes to the build console. See {@link WorkspaceUpdater#LOG_LEVEL}.
+         */
+        protected LogLevel logLevel = LOG_LEVEL;
+
+        /**
+         * If not null, where the lines about individual paths go when {@link #logLevel} keeps them out of the console.
+         * Shared by all the locations, so only written a line at a time.
+         */
+        protected transient PrintStream detailLog;
+
         /**
          * Performs the checkout/update.
          *
@@ -148,6 +214,11 @@ public abstract class WorkspaceUpdater extends AbstractDescribableImpl<Workspace
             t.revisionParameterAction = this.revisionParameterAction;
             t.ws = this.ws;
             t.revisionPolicy = this.revisionPolicy;
+            t.parallelism = this.parallelism;
+            t.cancelled = this.cancelled;
+            t.updatedRevisions = this.updatedRevisions;
+            t.logLevel = this.logLevel;
+            t.detailLog = this.detailLog;
 
             return t.perform();
         }
@@ -160,6 +231,218 @@ public abstract class WorkspaceUpdater extends AbstractDescribableImpl<Workspace
             return delegateTo(wu.createTask());
         }
 
+        /**
+         * What {@link UpdateTask#forEachLocation(LocationWork)} does for each module location.
+         */
+        protected interface LocationWork {
+            /**
+             * @param task
+             *      The task whose {@link UpdateTask#manager} and {@link UpdateTask#listener} are to be used.
+             *      When locations are fetched in parallel, this is a copy of the task dedicated to the location.
+             * @param externals
+             *      Where to store the externals discovered under the location.
+             * @return
+             *      false if the location couldn't be fetched, in which case the remaining locations aren't.
+             */
+            boolean perform(UpdateTask task, ModuleLocation location, List<External> externals) throws IOException, InterruptedException;
+        }
+
+        /**
+         * Does the given work for each of the {@link #locations}, up to {@link #parallelism} of them at the same time.
+         *
+         * <p>
+         * Locations whose local directories are the same, or nested in one another, are fetched one after another
+         * as a single group. Groups fetched in parallel each get their own {@link SVNClientManager}, and their output
+         * goes to the console as it comes, a line at a time, each line prefixed with the local directory of the
+         * location. Externals are reported in the order of the locations, as if they had been fetched one after
+         * another. The first failure, in that order, cancels the locations still being fetched and is the only one
+         * reported.
+         *
+         * @return
+         *      Where svn:external mounting happened, or null if a location failed.
+         */
+        protected final List<External> forEachLocation(final LocationWork work) throws IOException, InterruptedException {
+            List<External> externals = new ArrayList<External>();
+            List<List<ModuleLocation>> groups = parallelism <= 1 ? null : groupByLocalDir();
+            if (groups == null || groups.size() <= 1) {
+                for (ModuleLocation l : locations) {
+                    if (!work.perform(this, l, externals)) {
+                        return null;
+                    }
+                }
+                return externals;
+            }
+
+            cancelled = new AtomicBoolean();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, groups.size()),
+                new ExceptionCatchingThreadFactory(new DaemonThreadFactory()));
+            try {
+                Map<ModuleLocation, Future<Map<ModuleLocation, LocationResult>>> results
+                    = new IdentityHashMap<ModuleLocation, Future<Map<ModuleLocation, LocationResult>>>();
+                for (final List<ModuleLocation> group : groups) {
+                    Future<Map<ModuleLocation, LocationResult>> f = executor.submit(
+                        new Callable<Map<ModuleLocation, LocationResult>>() {
+                            public Map<ModuleLocation, LocationResult> call() {
+                                return fetch(work, group);
+                            }
+                        });
+                    for (ModuleLocation l : group) {
+                        results.put(l, f);
+                    }
+                }
+                for (ModuleLocation l : locations) {
+                    LocationResult r;
+                    try {
+                        // the group stops at its first failure, which comes before this location in the same order
+                        r = results.get(l).get().get(l);
+                    } catch (ExecutionException e) {
+                        throw new IOException2("Failed to fetch a module location", e.getCause());
+                    }
+                    if (r.failure instanceof IOException) {
+                        throw (IOException) r.failure;
+                    }
+                    if (r.failure instanceof InterruptedException) {
+                        throw (InterruptedException) r.failure;
+                    }
+                    if (r.failure instanceof RuntimeException) {
+                        throw (RuntimeException) r.failure;
+                    }
+                    if (!r.ok) {
+                        return null;
+                    }
+                    externals.addAll(r.externals);
+                }
+                return externals;
+            } finally {
+                // cancel what's still running, and don't leave it writing to the workspace behind our back
+                cancelled.set(true);
+                // the copies of the task keep it, and what comes next, like a fresh check out, mustn't stop
+                cancelled = null;
+                executor.shutdownNow();
+                boolean terminated = false;
+                try {
+                    terminated = executor.awaitTermination(CANCEL_TIMEOUT, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (!terminated && listener != null) {
+                    listener.getLogger().println("Some module locations are still being fetched, giving up on them");
+                }
+            }
+        }
+
+        /**
+         * Groups the {@link #locations} whose local directories are the same, or nested in one another,
+         * so that they aren't fetched at the same time. Each group is in the order of the locations.
+         */
+        List<List<ModuleLocation>> groupByLocalDir() throws IOException {
+            String[] dirs = new String[locations.length];
+            int[] group = new int[locations.length];
+            for (int i = 0; i < locations.length; i++) {
+                dirs[i] = new File(ws, locations[i].getLocalDir()).getCanonicalPath() + File.separator;
+                group[i] = i;
+            }
+            for (int i = 0; i < locations.length; i++) {
+                for (int j = i + 1; j < locations.length; j++) {
+                    if ((dirs[i].startsWith(dirs[j]) || dirs[j].startsWith(dirs[i])) && group[j] != group[i]) {
+                        int from = group[j], to = group[i];
+                        for (int k = 0; k < locations.length; k++) {
+                            if (group[k] == from) {
+                                group[k] = to;
+                            }
+                        }
+                    }
+                }
+            }
+            Map<Integer, List<ModuleLocation>> groups = new LinkedHashMap<Integer, List<ModuleLocation>>();
+            for (int i = 0; i < locations.length; i++) {
+                List<ModuleLocation> g = groups.get(group[i]);
+                if (g == null) {
+                    groups.put(group[i], g = new ArrayList<ModuleLocation>());
+                }
+                g.add(locations[i]);
+            }
+            return new ArrayList<List<ModuleLocation>>(groups.values());
+        }
+
+        /**
+         * Outcome of {@link #fetch(LocationWork, List)} for a location.
+         */
+        private static final class LocationResult {
+            final List<External> externals = new ArrayList<External>();
+            boolean ok;
+            Exception failure;
+        }
+
+        /**
+         * Does the work for a group of locations, one after another, each on a copy of this task with the same
+         * client manager, and a listener that prefixes its lines with the local directory of the location.
+         * Stops at the first location that fails.
+         */
+        private Map<ModuleLocation, LocationResult> fetch(LocationWork work, List<ModuleLocation> group) {
+            Map<ModuleLocation, LocationResult> results = new IdentityHashMap<ModuleLocation, LocationResult>();
+            SVNClientManager m = SubversionSCM.createSvnClientManager(authProvider);
+            try {
+                for (ModuleLocation l : group) {
+                    LocationResult r = new LocationResult();
+                    results.put(l, r);
+                    PrintStream out = new PrintStream(new PrefixedLines(listener.getLogger(),
+                        "[" + l.getLocalDir() + "] "), true);
+                    try {
+                        UpdateTask t = (UpdateTask) clone();
+                        t.manager = m;
+                        t.listener = new StreamTaskListener(out);
+                        t.locations = new ModuleLocation[]{l};
+                        r.ok = work.perform(t, l, r.externals);
+                    } catch (CloneNotSupportedException e) {
+                        throw new AssertionError(e);
+                    } catch (IOException e) {
+                        r.failure = e;
+                    } catch (InterruptedException e) {
+                        r.failure = e;
+                    } catch (RuntimeException e) {
+                        r.failure = e;
+                    } finally {
+                        out.close();
+                    }
+                    if (!r.ok) {
+                        break;
+                    }
+                }
+            } finally {
+                m.dispose();
+            }
+            return results;
+        }
+
+        /**
+         * Writes each line to the console of the build in one go, with a prefix, so that the lines of the
+         * locations fetched in parallel don't get mixed up.
+         */
+        private static final class PrefixedLines extends LineTransformationOutputStream {
+            private final PrintStream out;
+            private final byte[] prefix;
+
+            PrefixedLines(PrintStream out, String prefix) {
+                this.out = out;
+                this.prefix = prefix.getBytes();
+            }
+
+            @Override
+            protected void eol(byte[] b, int len) throws IOException {
+                synchronized (out) {
+                    out.write(prefix);
+                    out.write(b, 0, len);
+                    out.flush();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                forceEol();
+            }
+        }
+
         /**
          * Determines the revision to check out for the given location.
          */
@@ -229,8 +512,98 @@ public abstract class WorkspaceUpdater extends AbstractDescribableImpl<Workspace
         void setListener(TaskListener listener) {
             this.listener = listener;
         }
+
+        /**
+         * Sets parallelism. For the tests only.
+         *
+         * @param parallelism how many locations may be fetched at the same time.
+         */
+        void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * Sets where to record updated revisions. For the tests only.
+         *
+         * @param updatedRevisions revisions by canonical directory.
+         */
+        void setUpdatedRevisions(Map<File, Long> updatedRevisions) {
+            this.updatedRevisions = updatedRevisions;
+        }
+
+        /**
+         * Sets log level and detail log. For the tests only.
+         *
+         * @param logLevel how much goes to the console.
+         * @param detailLog where the lines about individual paths go otherwise, or null.
+         */
+        void setLogLevel(LogLevel logLevel, PrintStream detailLog) {
+            this.logLevel = logLevel;
+            this.detailLog = detailLog;
+        }
     }
 
+    /**
+     * How much of the progress of a check out or update is printed to the build console.
+     */
+    public enum LogLevel {
+        /**
+         * A line for each path added, updated, deleted... as "svn" does.
+         */
+        FULL,
+        /**
+         * The number of paths added, updated, deleted... in each module, every {@link #LOG_SUMMARY_INTERVAL} seconds
+         * and when the module is done.
+         */
+        SUMMARY,
+        /**
+         * Nothing about individual paths.
+         */
+        OFF;
+
+        /**
+         * Parses the name of a level, case insensitive. Anything else means {@link #FULL}.
+         */
+        public static LogLevel parse(String name) {
+            for (LogLevel level : values()) {
+                if (level.name().equalsIgnoreCase(name)) {
+                    return level;
+                }
+            }
+            return FULL;
+        }
+    }
+
+    /**
+     * How much of the progress of check outs and updates is printed to the build console. One of "full",
+     * which is the default, "summary" and "off".
+     */
+    public static LogLevel LOG_LEVEL = LogLevel.parse(System.getProperty(WorkspaceUpdater.class.getName() + ".logLevel"));
+
+    /**
+     * How often, in seconds, the summary of a module in progress is printed with {@link LogLevel#SUMMARY}.
+     */
+    public static int LOG_SUMMARY_INTERVAL = Integer.getInteger(WorkspaceUpdater.class.getName() + ".logSummaryInterval", 10)
+        .intValue();
+
+    /**
+     * If true, and {@link #LOG_LEVEL} isn't {@link LogLevel#FULL}, the lines about individual paths are written to
+     * a compressed file in the build directory instead. See {@link SubversionSCM#getCheckoutLogFile}.
+     */
+    public static boolean DETAIL_LOG = Boolean.getBoolean(WorkspaceUpdater.class.getName() + ".detailLog");
+
+    /**
+     * How many module locations of a job may be checked out or updated at the same time, unless the job sets
+     * its own {@link #getParallelism()}. The default, 1, fetches them one after another.
+     */
+    public static int PARALLELISM = Integer.getInteger(WorkspaceUpdater.class.getName() + ".parallelism", 1).intValue();
+
+    /**
+     * How long, in seconds, the module locations still being fetched are waited for, once cancelled.
+     */
+    public static int CANCEL_TIMEOUT = Integer.getInteger(WorkspaceUpdater.class.getName() + ".cancelTimeout", 60)
+        .intValue();
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -241,6 +614,8 @@ public abstract class WorkspaceUpdater extends AbstractDescribableImpl<Workspace
         WorkspaceUpdater that = (WorkspaceUpdater) o;
         if (!(createTask().equals(that.createTask())))
             return false;
+        if (parallelism != that.parallelism)
+            return false;
         return true;
     }
     
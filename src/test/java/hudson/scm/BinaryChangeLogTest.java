@@ -0,0 +1,89 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import hudson.scm.SubversionChangeLogSet.LogEntry;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinaryChangeLogTest {
+
+    private File dir, changelog;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("changelog", "dir");
+        dir.delete();
+        dir.mkdirs();
+        changelog = new File(dir, "changelog.xml");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testSameAsXml() throws Exception {
+        SubversionChangeLogParserBenchmark.write(changelog, 50, false);
+        BinaryChangeLog.write(changelog);
+        List<LogEntry> expected;
+        InputStream in = new BufferedInputStream(new FileInputStream(changelog));
+        try {
+            expected = new SubversionChangeLogSet(null, SubversionChangeLogParser.parse(in)).getLogs();
+        } finally {
+            in.close();
+        }
+        SubversionChangeLogSet set = new SubversionChangeLogSet(null,
+            BinaryChangeLog.open(BinaryChangeLog.getFile(changelog)));
+        List<LogEntry> actual = set.getLogs();
+
+        assertEquals(50, actual.size());
+        // out of order, across chunks
+        assertEquals(1, actual.get(49).getRevision());
+        for (int i = 0; i < expected.size(); i++) {
+            LogEntry e = expected.get(i), a = actual.get(i);
+            assertSame(a, actual.get(i));
+            assertSame(set, a.getParent());
+            assertEquals(e.getRevision(), a.getRevision());
+            assertEquals(e.getDate(), a.getDate());
+            assertEquals(e.getMsg(), a.getMsg());
+            assertEquals(e.getPaths().size(), a.getPaths().size());
+            for (int j = 0; j < e.getPaths().size(); j++) {
+                assertEquals(e.getPaths().get(j).getValue(), a.getPaths().get(j).getValue());
+                assertEquals(e.getPaths().get(j).getEditType(), a.getPaths().get(j).getEditType());
+                assertSame(a, a.getPaths().get(j).getLogEntry());
+            }
+        }
+    }
+
+    @Test
+    public void testDuplicatesAndMissingValues() throws Exception {
+        FileUtils.writeStringToFile(changelog, "<?xml version='1.0' encoding='UTF-8'?><log>"
+            + "<logentry revision='5'><date>d5</date><paths><path>/trunk/a</path></paths></logentry>"
+            + "<logentry revision='7'><date>d7</date><msg>seven</msg></logentry>"
+            + "<logentry revision='5'><date>d5</date><paths><path>/trunk/a</path></paths></logentry>"
+            + "</log>", "UTF-8");
+        BinaryChangeLog.write(changelog);
+        BinaryChangeLog log = BinaryChangeLog.open(BinaryChangeLog.getFile(changelog));
+
+        assertEquals(2, log.size());
+        assertEquals(7, log.getRevision(0));
+        assertEquals("seven", log.get(0).getMsg());
+        assertEquals(0, log.get(0).getPaths().size());
+        assertNull(log.get(1).getMsg());
+        assertEquals("/trunk/a", log.get(1).getPaths().get(0).getValue());
+        assertEquals(EditType.EDIT, log.get(1).getPaths().get(0).getEditType());
+    }
+}
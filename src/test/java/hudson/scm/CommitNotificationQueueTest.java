@@ -0,0 +1,101 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommitNotificationQueueTest {
+
+    private static final UUID REPO1 = UUID.fromString("f81d4fae-7dec-11d0-a765-00a0c91e6bf6");
+    private static final UUID REPO2 = UUID.fromString("0b8a5ad0-7dec-11d0-a765-00a0c91e6bf6");
+
+    private int oldWindow, oldMaxQueued;
+    private final List<Object[]> processed = new ArrayList<Object[]>();
+    private CommitNotificationQueue queue;
+
+    @Before
+    public void setUp() {
+        oldWindow = CommitNotificationQueue.WINDOW;
+        oldMaxQueued = CommitNotificationQueue.MAX_QUEUED;
+        CommitNotificationQueue.WINDOW = 60000; // drained by hand
+        queue = new CommitNotificationQueue(new CommitNotificationQueue.Processor() {
+            public void process(UUID uuid, Set<String> affectedPaths, long firstRev, long rev) {
+                processed.add(new Object[]{uuid, affectedPaths, rev, firstRev});
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        CommitNotificationQueue.WINDOW = oldWindow;
+        CommitNotificationQueue.MAX_QUEUED = oldMaxQueued;
+    }
+
+    @Test
+    public void testNotificationsAreCoalesced() {
+        assertTrue(queue.offer(REPO1, Arrays.asList("trunk/a.txt"), 10));
+        assertTrue(queue.offer(REPO1, Arrays.asList("trunk/b.txt"), 12));
+        assertTrue(queue.offer(REPO1, Arrays.asList("trunk/a.txt"), 11));
+        assertTrue(queue.offer(REPO2, Arrays.asList("trunk/c.txt"), 5));
+        assertEquals(4, queue.getQueueDepth());
+        assertEquals(2, queue.getCoalescedCount());
+
+        queue.drain(REPO1);
+        assertEquals(1, processed.size());
+        assertEquals(REPO1, processed.get(0)[0]);
+        assertEquals(new HashSet<String>(Arrays.asList("trunk/a.txt", "trunk/b.txt")), processed.get(0)[1]);
+        assertEquals(12L, processed.get(0)[2]);
+        assertEquals(10L, processed.get(0)[3]);
+        assertEquals(1, queue.getQueueDepth());
+
+        queue.drain(REPO1);
+        assertEquals(1, processed.size());
+    }
+
+    @Test
+    public void testUnknownRevisionWins() {
+        queue.offer(REPO1, Arrays.asList("trunk/a.txt"), 10);
+        queue.offer(REPO1, Arrays.asList("trunk/a.txt"), -1);
+        queue.offer(REPO1, Arrays.asList("trunk/a.txt"), 12);
+        queue.drain(REPO1);
+        assertEquals(-1L, processed.get(0)[2]);
+        assertEquals(-1L, processed.get(0)[3]);
+    }
+
+    @Test
+    public void testOverflow() {
+        CommitNotificationQueue.MAX_QUEUED = 2;
+        assertTrue(queue.offer(REPO1, Arrays.asList("trunk/a.txt"), 10));
+        assertTrue(queue.offer(REPO2, Arrays.asList("trunk/a.txt"), 10));
+        assertFalse(queue.offer(REPO1, Arrays.asList("trunk/a.txt"), 11));
+        assertEquals(1, queue.getOverflowCount());
+        assertEquals(2, queue.getAcceptedCount());
+
+        queue.drain(REPO2);
+        assertTrue(queue.offer(REPO1, Arrays.asList("trunk/a.txt"), 11));
+    }
+
+    @Test
+    public void testFailuresAreCounted() {
+        queue = new CommitNotificationQueue(new CommitNotificationQueue.Processor() {
+            public void process(UUID uuid, Set<String> affectedPaths, long firstRev, long rev) {
+                throw new IllegalStateException();
+            }
+        });
+        queue.offer(REPO1, Arrays.asList("trunk/a.txt"), 10);
+        queue.drain(REPO1);
+        assertEquals(1, queue.getFailureCount());
+        assertEquals(0, queue.getQueueDepth());
+    }
+}
@@ -0,0 +1,87 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class PathRegionMatcherTest {
+
+    private static final String[] RULES = {
+        "/trunk/pom.xml",
+        "/trunk/docs/.*",
+        "/trunk/docs/api/.*",
+        "/trunk/site\\.xml",
+        ".*\\.txt",
+        "/branches/[^/]+/README",
+        "/tags/(\\w+)/\\1\\.properties"
+    };
+
+    private static final String[] PATHS = {
+        "/trunk/pom.xml",
+        "/trunk/pom.xml2",
+        "/trunk/docs",
+        "/trunk/docs/",
+        "/trunk/docs/index.html",
+        "/trunk/docs/api/index.html",
+        "/trunk/doc/index.html",
+        "/trunk/site.xml",
+        "/trunk/siteXxml",
+        "/trunk/src/notes.txt",
+        "/branches/b1/README",
+        "/branches/b1/sub/README",
+        "/tags/v1/v1.properties",
+        "/tags/v1/v2.properties",
+        "/"
+    };
+
+    @Test
+    public void testSameResultsAsRegex() {
+        PathRegionMatcher matcher = new PathRegionMatcher(RULES);
+        for (String path : PATHS) {
+            boolean expected = false;
+            for (String rule : RULES) {
+                expected |= Pattern.compile(rule).matcher(path).matches();
+            }
+            assertEquals(path, expected, matcher.matches(path));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        PathRegionMatcher matcher = new PathRegionMatcher(null);
+        assertTrue(matcher.isEmpty());
+        assertFalse(matcher.matches("/trunk"));
+        assertFalse(new PathRegionMatcher(new String[]{"/trunk/.*"}).isEmpty());
+    }
+
+    @Test
+    public void testToLiteral() {
+        assertEquals("/trunk/a.txt", PathRegionMatcher.toLiteral("/trunk/a\\.txt"));
+        assertEquals("/trunk/", PathRegionMatcher.toLiteral("/trunk/"));
+        assertNull(PathRegionMatcher.toLiteral("/trunk/a.txt"));
+        assertNull(PathRegionMatcher.toLiteral("/trunk/\\d"));
+        assertNull(PathRegionMatcher.toLiteral("/trunk/(a|b)"));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(buf);
+        out.writeObject(new PathRegionMatcher(RULES));
+        out.close();
+        PathRegionMatcher matcher = (PathRegionMatcher) new ObjectInputStream(
+            new ByteArrayInputStream(buf.toByteArray())).readObject();
+        assertTrue(matcher.matches("/trunk/docs/a"));
+        assertTrue(matcher.matches("/a.txt"));
+        assertFalse(matcher.matches("/trunk/src/A.java"));
+    }
+}
@@ -87,6 +87,37 @@ public class PerJobCredentialStoreTest extends AbstractSubversionTest {
         assertFalse(credentialStore.getSaveableListener().isFileChanged());
     }
 
+    public void testStoreIsCached() throws IOException {
+        FreeStyleProject p = createFreeStyleProject();
+        PerJobCredentialStore store = PerJobCredentialStore.get(p);
+        assertSame(store, PerJobCredentialStore.get(p));
+        assertTrue(store.isEmpty());
+
+        // saved by another instance, so the cached one is stale
+        new PerJobCredentialStore(p, SVN_URL).acknowledgeAuthentication(testSvnRealm,
+            new SubversionSCM.DescriptorImpl.PasswordCredential(testSvnUser, testSvnPassword));
+        PerJobCredentialStore reread = PerJobCredentialStore.get(p);
+        assertNotSame(store, reread);
+        assertFalse(reread.isEmpty());
+
+        // saved by the cached instance itself
+        reread.acknowledgeAuthentication(testSvnRealm,
+            new SubversionSCM.DescriptorImpl.PasswordCredential(testSvnUser, "changed"));
+        assertSame(reread, PerJobCredentialStore.get(p));
+    }
+
+    public void testStoreIsDroppedWithItsJob() throws Exception {
+        FreeStyleProject p = createFreeStyleProject("renamed");
+        PerJobCredentialStore.get(p);
+        p.renameTo("deleted");
+        assertFalse(PerJobCredentialStore.isCached("renamed"));
+
+        PerJobCredentialStore.get(p);
+        assertTrue(PerJobCredentialStore.isCached("deleted"));
+        p.delete();
+        assertFalse(PerJobCredentialStore.isCached("deleted"));
+    }
+
     @Bug(3)
     public void testMatrixConfigurationCredentialsFileNamePath() throws IOException {
         MatrixProject p = createMatrixProject("matrix");
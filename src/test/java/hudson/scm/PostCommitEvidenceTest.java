@@ -0,0 +1,35 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class PostCommitEvidenceTest {
+
+    private static final UUID REPO1 = UUID.fromString("f81d4fae-7dec-11d0-a765-00a0c91e6bf6");
+    private static final UUID REPO2 = UUID.fromString("0b8a5ad0-7dec-11d0-a765-00a0c91e6bf6");
+
+    @Test
+    public void testEvidencesAreMerged() {
+        PostCommitEvidence.put("merged", new PostCommitEvidence(REPO1, 12, 12, Arrays.asList("trunk/a.txt")));
+        PostCommitEvidence.put("merged", new PostCommitEvidence(REPO1, 10, 11, Arrays.asList("trunk/b/")));
+
+        PostCommitEvidence e = PostCommitEvidence.take("merged");
+        assertEquals(10, e.firstRevision);
+        assertEquals(12, e.lastRevision);
+        assertEquals(new HashSet<String>(Arrays.asList("trunk/a.txt", "trunk/b/")), e.paths);
+        assertNull(PostCommitEvidence.take("merged"));
+    }
+
+    @Test
+    public void testSeveralRepositoriesAreLeftToPolling() {
+        PostCommitEvidence.put("several", new PostCommitEvidence(REPO1, 12, 12, Arrays.asList("trunk/a.txt")));
+        PostCommitEvidence.put("several", new PostCommitEvidence(REPO2, 3, 3, Arrays.asList("trunk/a.txt")));
+        assertNull(PostCommitEvidence.take("several"));
+    }
+}
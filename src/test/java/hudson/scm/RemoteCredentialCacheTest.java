@@ -0,0 +1,97 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import hudson.scm.SubversionSCM.DescriptorImpl.Credential;
+import hudson.scm.SubversionSCM.DescriptorImpl.RemotableSVNAuthenticationProvider;
+import hudson.scm.SubversionSCM.DescriptorImpl.SerializableSVNURL;
+import hudson.scm.credential.PasswordCredential;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+
+public class RemoteCredentialCacheTest {
+
+    private int calls;
+    private Credential credential = new PasswordCredential("user", "secret");
+    private int oldTtl;
+
+    /**
+     * Stands for the master, as seen from a slave.
+     */
+    private final RemotableSVNAuthenticationProvider master = new RemotableSVNAuthenticationProvider() {
+        public Credential getCredential(SerializableSVNURL url, String realm) throws SVNException {
+            calls++;
+            return realm.equals("none") ? null : credential;
+        }
+
+        public void acknowledgeAuthentication(String realm, Credential credential) {
+        }
+    };
+
+    private final RemotableSVNAuthenticationProvider proxy = (RemotableSVNAuthenticationProvider) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class[]{RemotableSVNAuthenticationProvider.class}, new InvocationHandler() {
+        public Object invoke(Object o, Method method, Object[] args) throws Throwable {
+            return method.invoke(master, args);
+        }
+    });
+
+    @Before
+    public void setUp() {
+        oldTtl = RemoteCredentialCache.TTL;
+        RemoteCredentialCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        RemoteCredentialCache.TTL = oldTtl;
+        RemoteCredentialCache.clear();
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        SVNURL url = SVNURL.parseURIEncoded("http://localhost/svn/trunk");
+        long generation = RemoteCredentialCache.getGeneration();
+
+        assertSame(credential, RemoteCredentialCache.getCredential(proxy, "global", generation, url, "realm"));
+        assertSame(credential, RemoteCredentialCache.getCredential(proxy, "global", generation, url, "realm"));
+        assertEquals(1, calls);
+        // "no credential" is kept too
+        assertNull(RemoteCredentialCache.getCredential(proxy, "global", generation, url, "none"));
+        assertNull(RemoteCredentialCache.getCredential(proxy, "global", generation, url, "none"));
+        assertEquals(2, calls);
+        // other scope
+        RemoteCredentialCache.getCredential(proxy, "job:x", generation, url, "realm");
+        assertEquals(3, calls);
+
+        // the credentials changed on the master
+        RemoteCredentialCache.invalidate();
+        credential = new PasswordCredential("user", "changed");
+        assertSame(credential, RemoteCredentialCache.getCredential(proxy, "global",
+            RemoteCredentialCache.getGeneration(), url, "realm"));
+        assertEquals(4, calls);
+    }
+
+    @Test
+    public void testLocal() throws Exception {
+        SVNURL url = SVNURL.parseURIEncoded("http://localhost/svn/trunk");
+        long generation = RemoteCredentialCache.getGeneration();
+        RemoteCredentialCache.getCredential(master, "global", generation, url, "realm");
+        RemoteCredentialCache.getCredential(master, "global", generation, url, "realm");
+        assertEquals(2, calls);
+
+        RemoteCredentialCache.TTL = 0;
+        RemoteCredentialCache.getCredential(proxy, "global", generation, url, "realm");
+        RemoteCredentialCache.getCredential(proxy, "global", generation, url, "realm");
+        assertEquals(4, calls);
+    }
+}
@@ -0,0 +1,63 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RemoteRevisionCacheTest {
+
+    private static final UUID REPO1 = UUID.fromString("f81d4fae-7dec-11d0-a765-00a0c91e6bf6");
+    private static final UUID REPO2 = UUID.fromString("0b8a5ad0-7dec-11d0-a765-00a0c91e6bf6");
+
+    private int oldWindow;
+    private RemoteRevisionCache cache;
+
+    @Before
+    public void setUp() {
+        oldWindow = RemoteRevisionCache.WINDOW;
+        RemoteRevisionCache.WINDOW = 1000;
+        cache = new RemoteRevisionCache();
+    }
+
+    @After
+    public void tearDown() {
+        RemoteRevisionCache.WINDOW = oldWindow;
+    }
+
+    @Test
+    public void testCachedWithinWindow() {
+        cache.put(REPO1, "svn://host/repo/trunk", 10L, cache.getGeneration(), 5000L);
+        assertEquals(Long.valueOf(10L), cache.getCachedRevision("svn://host/repo/trunk", 5999L));
+        assertNull(cache.getCachedRevision("svn://host/repo/trunk", 6000L));
+        assertNull(cache.getCachedRevision("svn://host/repo/branches/b1", 5001L));
+    }
+
+    @Test
+    public void testDisabled() {
+        RemoteRevisionCache.WINDOW = 0;
+        cache.put(REPO1, "svn://host/repo/trunk", 10L, cache.getGeneration(), 5000L);
+        assertNull(cache.getCachedRevision("svn://host/repo/trunk", 5000L));
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.put(REPO1, "svn://host/repo/trunk", 10L, cache.getGeneration(), 5000L);
+        cache.put(REPO2, "svn://other/repo/trunk", 20L, cache.getGeneration(), 5000L);
+        cache.invalidate(REPO1);
+        assertNull(cache.getCachedRevision("svn://host/repo/trunk", 5000L));
+        assertEquals(Long.valueOf(20L), cache.getCachedRevision("svn://other/repo/trunk", 5000L));
+    }
+
+    @Test
+    public void testLookupRacingWithInvalidation() {
+        long generation = cache.getGeneration();
+        cache.invalidate(REPO1);
+        cache.put(REPO1, "svn://host/repo/trunk", 10L, generation, 5000L);
+        assertNull(cache.getCachedRevision("svn://host/repo/trunk", 5000L));
+    }
+}
@@ -0,0 +1,72 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.model.AbstractBuild;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RevisionMapTest {
+
+    private File dir;
+    private AbstractBuild build;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("build", "dir");
+        dir.delete();
+        dir.mkdirs();
+        build = mock(AbstractBuild.class);
+        when(build.getRootDir()).thenReturn(dir);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testReadAndCache() throws Exception {
+        assertTrue(RevisionMap.get(build).isEmpty());
+
+        File file = SubversionSCM.getRevisionFile(build);
+        FileUtils.writeStringToFile(file, "https://svn.example.org/repo/trunk/12\n"
+            + "https://svn.example.org/repo/lib/7\n"
+            + "corrupted/x\n"
+            + "https://svn.example.org/repo/trunk/13\n");
+        RevisionMap map = RevisionMap.get(build);
+        Map<String, Long> expected = new HashMap<String, Long>();
+        expected.put("https://svn.example.org/repo/trunk", 13L);
+        expected.put("https://svn.example.org/repo/lib", 7L);
+        assertEquals(expected, map);
+        assertEquals(expected, new HashMap<String, Long>(map));
+        assertEquals(13, map.getRevision("https://svn.example.org/repo/trunk"));
+        assertEquals(-1, map.getRevision("https://svn.example.org/repo/other"));
+        assertNull(map.get("https://svn.example.org/repo/other"));
+        assertSame(map, RevisionMap.get(build));
+
+        // rewritten
+        FileUtils.writeStringToFile(file, "https://svn.example.org/repo/trunk/14\n");
+        RevisionMap.invalidate(build);
+        assertEquals(Long.valueOf(14), RevisionMap.get(build).get("https://svn.example.org/repo/trunk"));
+        assertEquals(1, RevisionMap.get(build).size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() throws Exception {
+        FileUtils.writeStringToFile(SubversionSCM.getRevisionFile(build), "https://svn.example.org/repo/trunk/12\n");
+        RevisionMap.get(build).put("https://svn.example.org/repo/lib", 7L);
+    }
+}
@@ -0,0 +1,116 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import hudson.scm.subversion.CheckoutUpdater;
+import hudson.util.StreamTaskListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNWCUtil;
+
+public class SVNLogHandlerTest {
+
+    private File dir;
+    private SVNURL root;
+    private int oldPageSize;
+    private ByteArrayOutputStream log;
+
+    @Before
+    public void setUp() throws Exception {
+        SubversionSCM.init();
+        dir = File.createTempFile("svnlog", "repo");
+        dir.delete();
+        root = SVNRepositoryFactory.createLocalRepository(dir, true, false);
+        oldPageSize = SubversionSCM.LOG_PAGE_SIZE;
+        SubversionSCM.LOG_PAGE_SIZE = 2;
+        log = new ByteArrayOutputStream();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SubversionSCM.LOG_PAGE_SIZE = oldPageSize;
+        SubversionSessionPool.get().closeIdleSessions();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private void commit(String author, String dirName) throws Exception {
+        SVNRepository repository = SVNRepositoryFactory.create(root);
+        try {
+            repository.setAuthenticationManager(SVNWCUtil.createDefaultAuthenticationManager(author, ""));
+            ISVNEditor editor = repository.getCommitEditor("add " + dirName, null);
+            editor.openRoot(-1);
+            editor.addDir(dirName, null, -1);
+            editor.closeDir();
+            editor.closeDir();
+            editor.closeEdit();
+        } finally {
+            repository.closeSession();
+        }
+    }
+
+    private SubversionSCM.SVNLogHandler handler(String excludedRegions, String excludedUsers) {
+        SubversionSCM scm = new SubversionSCM(
+            Collections.singletonList(new SubversionSCM.ModuleLocation(root.toString(), ".")),
+            new CheckoutUpdater(), null, excludedRegions, excludedUsers, null, null, null) {
+            @Override
+            public DescriptorImpl getDescriptor() {
+                // no Hudson instance to look the real one up from
+                return new DescriptorImpl(SubversionSCM.class, null) {
+                };
+            }
+        };
+        return scm.new SVNLogHandler(new StreamTaskListener(log));
+    }
+
+    private int countIgnored() {
+        return log.toString().split("Ignored").length - 1;
+    }
+
+    @Test
+    public void testStopsAtFirstChangeNewestFirst() throws Exception {
+        commit("alice", "a1");
+        commit("alice", "a2");
+        commit("alice", "a3");
+        commit("bot", "b1");
+        commit("bot", "b2");
+
+        assertTrue(handler(null, "bot").findNonExcludedChanges(root, 1, 5, null));
+        // r5 and r4 are looked at, r3 ends the search
+        assertEquals(2, countIgnored());
+    }
+
+    @Test
+    public void testStopsAtFirstChangeOldestFirst() throws Exception {
+        commit("alice", "excluded1");
+        commit("alice", "excluded2");
+        commit("alice", "excluded3");
+        commit("alice", "a1");
+        commit("alice", "a2");
+
+        assertTrue(handler("/excluded.*", null).findNonExcludedChanges(root, 1, 5, null));
+        assertEquals(3, countIgnored());
+    }
+
+    @Test
+    public void testScansAllPages() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            commit("bot", "b" + i);
+        }
+        assertFalse(handler(null, "bot").findNonExcludedChanges(root, 1, 5, null));
+        assertEquals(5, countIgnored());
+        assertFalse(handler(null, "bot").findNonExcludedChanges(root, 3, 2, null));
+    }
+}
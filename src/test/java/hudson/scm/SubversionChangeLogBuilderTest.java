@@ -0,0 +1,74 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+public class SubversionChangeLogBuilderTest {
+
+    private File repo, ws;
+    private SVNURL lib;
+
+    @Before
+    public void setUp() throws Exception {
+        SubversionSCM.init();
+        repo = File.createTempFile("changelog", "repo");
+        repo.delete();
+        ws = File.createTempFile("changelog", "ws");
+        ws.delete();
+        SVNURL root = SVNRepositoryFactory.createLocalRepository(repo, true, false);
+        lib = root.appendPath("lib", false);
+
+        SVNRepository repository = SVNRepositoryFactory.create(root);
+        ISVNEditor editor = repository.getCommitEditor("layout", null);
+        editor.openRoot(-1);
+        editor.addDir("lib", null, -1);
+        editor.closeDir();
+        editor.closeDir();
+        editor.closeEdit();
+        repository.closeSession();
+
+        SVNClientManager manager = SubversionSCM.createSvnClientManager((ISVNAuthenticationProvider) null);
+        try {
+            manager.getUpdateClient().doCheckout(lib, new File(ws, "mod/ext"), SVNRevision.HEAD, SVNRevision.HEAD,
+                SVNDepth.INFINITY, false);
+        } finally {
+            manager.dispose();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(repo);
+        FileUtils.deleteDirectory(ws);
+    }
+
+    @Test
+    public void testGetUrlsForPaths() throws Exception {
+        List<String> urls = new SubversionChangeLogBuilder.GetUrlsForPaths(null, Arrays.asList(
+            "mod/ext",
+            // as recorded by SubversionUpdateEventHandler.handleExternal
+            new File(ws, "mod/ext").getAbsolutePath(),
+            "missing")).invoke(ws, null);
+
+        assertEquals(lib.toDecodedString(), urls.get(0));
+        assertEquals(lib.toDecodedString(), urls.get(1));
+        assertNull(urls.get(2));
+    }
+}
@@ -0,0 +1,105 @@
+package hudson.scm;
+
+import hudson.scm.SubversionChangeLogSet.LogEntry;
+import hudson.scm.SubversionChangeLogSet.Path;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.digester.Digester;
+
+/**
+ * Compares {@link SubversionChangeLogParser} with the Digester based parser it replaced.
+ * Run with the size of the change log to generate, in entries, as the argument.
+ * <p/>
+ * The entries have no author, since resolving users needs a running Hudson.
+ */
+public class SubversionChangeLogParserBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        File changelog = File.createTempFile("changelog", ".xml");
+        try {
+            write(changelog, entries, false);
+            System.out.println(changelog.length() / 1024 + " KB, " + entries + " entries");
+            for (int i = 0; i < 5; i++) {
+                long start = System.nanoTime();
+                int n = parseWithDigester(changelog).size();
+                long digester = System.nanoTime() - start;
+                start = System.nanoTime();
+                InputStream in = new BufferedInputStream(new FileInputStream(changelog));
+                try {
+                    n += SubversionChangeLogParser.parse(in).size();
+                } finally {
+                    in.close();
+                }
+                long stax = System.nanoTime() - start;
+                System.out.println("digester: " + digester / 1000000 + " ms, stax: " + stax / 1000000 + " ms (" + n + ")");
+            }
+        } finally {
+            changelog.delete();
+        }
+    }
+
+    /**
+     * Writes a change log like {@link SubversionChangeLogBuilder} does, with 10 paths per entry taken from a few
+     * hundred files.
+     */
+    static void write(File file, int entries, boolean authors) throws IOException {
+        PrintWriter w = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            w.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?><log>");
+            for (int i = entries; i > 0; i--) {
+                w.println("<logentry revision=\"" + i + "\">");
+                if (authors) {
+                    w.println("<author>user" + i % 7 + "</author>");
+                }
+                w.println("<date>2012-01-01T10:00:00." + i + "Z</date>");
+                w.println("<paths>");
+                for (int j = 0; j < 10; j++) {
+                    w.println("<path kind=\"file\" action=\"" + "AMD".charAt((i + j) % 3) + "\">/trunk/src/main/java/dir"
+                        + (i + j) % 17 + "/File" + (i * j) % 31 + ".java</path>");
+                }
+                w.println("</paths>");
+                w.println("<msg>Fixed &lt;bug&gt; #" + i + "\n  with a second line\n</msg>");
+                w.println("</logentry>");
+            }
+            w.println("</log>");
+        } finally {
+            w.close();
+        }
+    }
+
+    /**
+     * The parser that {@link SubversionChangeLogParser} used before.
+     */
+    static List<LogEntry> parseWithDigester(File changelogFile) throws Exception {
+        Digester digester = new Digester();
+        ArrayList<LogEntry> r = new ArrayList<LogEntry>();
+        digester.push(r);
+
+        digester.setClassLoader(LogEntry.class.getClassLoader());
+        digester.addObjectCreate("*/logentry", LogEntry.class);
+        digester.addSetProperties("*/logentry");
+        digester.addBeanPropertySetter("*/logentry/author","user");
+        digester.addBeanPropertySetter("*/logentry/date");
+        digester.addBeanPropertySetter("*/logentry/msg");
+        digester.addSetNext("*/logentry","add");
+
+        digester.addObjectCreate("*/logentry/paths/path", Path.class);
+        digester.addSetProperties("*/logentry/paths/path");
+        digester.addBeanPropertySetter("*/logentry/paths/path","value");
+        digester.addSetNext("*/logentry/paths/path","addPath");
+
+        digester.parse(changelogFile);
+        return r;
+    }
+}
@@ -0,0 +1,76 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import hudson.scm.SubversionChangeLogSet.LogEntry;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SubversionChangeLogParserTest {
+
+    private File changelog;
+
+    @Before
+    public void setUp() throws Exception {
+        changelog = File.createTempFile("changelog", ".xml");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        changelog.delete();
+    }
+
+    private List<LogEntry> parse() throws Exception {
+        InputStream in = new BufferedInputStream(new FileInputStream(changelog));
+        try {
+            return SubversionChangeLogParser.parse(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testSameAsDigester() throws Exception {
+        SubversionChangeLogParserBenchmark.write(changelog, 50, false);
+        List<LogEntry> expected = SubversionChangeLogParserBenchmark.parseWithDigester(changelog);
+        List<LogEntry> actual = parse();
+
+        assertEquals(50, actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            LogEntry e = expected.get(i), a = actual.get(i);
+            assertEquals(e.getRevision(), a.getRevision());
+            assertEquals(e.getDate(), a.getDate());
+            assertEquals(e.getMsg(), a.getMsg());
+            assertEquals(e.getPaths().size(), a.getPaths().size());
+            for (int j = 0; j < e.getPaths().size(); j++) {
+                assertEquals(e.getPaths().get(j).getValue(), a.getPaths().get(j).getValue());
+                assertEquals(e.getPaths().get(j).getEditType(), a.getPaths().get(j).getEditType());
+                assertSame(a, a.getPaths().get(j).getLogEntry());
+            }
+        }
+        assertEquals("Fixed <bug> #50\n  with a second line", actual.get(0).getMsg());
+    }
+
+    @Test
+    public void testSharedPaths() throws Exception {
+        SubversionChangeLogParserBenchmark.write(changelog, 50, false);
+        List<LogEntry> entries = parse();
+        String first = entries.get(0).getPaths().get(0).getValue();
+        for (LogEntry e : entries) {
+            for (SubversionChangeLogSet.Path p : e.getPaths()) {
+                if (p.getValue().equals(first)) {
+                    assertSame(first, p.getValue());
+                }
+            }
+        }
+    }
+}
@@ -23,7 +23,18 @@
  */
 package hudson.scm;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.scm.SubversionChangeLogSet.LogEntry;
+import hudson.scm.SubversionChangeLogSet.Path;
+import hudson.scm.SubversionSCM.ModuleLocation;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
@@ -70,6 +81,83 @@ public class SubversionChangeLogSetTest {
     }
 
 
+    private static final String[] PATHS = {
+        "/trunk/src/Foo.java",
+        "/branches/b1/src/Foo.java",
+        "/trunk",
+        "trunk/src/Foo.java",
+        "/other/Bar.java",
+        "/kernel/Baz.java",
+        "/",
+        ""
+    };
+
+    @Test
+    public void testAffectedPaths() throws Exception {
+        ModuleLocation[] locations = {
+            new ModuleLocation(null, "none"),
+            new ModuleLocation("https://svn.example.org/repo/trunk", "trunk"),
+            new ModuleLocation("https://svn.example.org/repo/branches/b1", "b1")
+        };
+        SubversionSCM scm = mock(SubversionSCM.class);
+        when(scm.getLocations()).thenReturn(locations);
+        AbstractProject project = mock(AbstractProject.class);
+        when(project.getScm()).thenReturn(scm);
+        AbstractBuild build = mock(AbstractBuild.class);
+        when(build.getProject()).thenReturn(project);
+
+        LogEntry entry = new LogEntry();
+        for (String p : PATHS) {
+            Path path = new Path();
+            path.setValue(p);
+            entry.addPath(path);
+        }
+        new SubversionChangeLogSet(build, new ArrayList<LogEntry>(Collections.singletonList(entry)));
+
+        Iterator<String> actual = entry.getAffectedPaths().iterator();
+        for (String p : PATHS) {
+            assertEquals(p, preparePath(locations, p), actual.next());
+        }
+        assertEquals("src/Foo.java", preparePath(locations, PATHS[0]));
+        assertEquals("/other/Bar.java", preparePath(locations, "/other/Bar.java"));
+    }
+
+    /**
+     * How {@link LogEntry#getAffectedPaths()} used to work out each path.
+     */
+    private static String preparePath(ModuleLocation[] locations, String path) {
+        for (int i = 0; i < locations.length; i++) {
+            String commonPart = findCommonPart(locations[i].remote, path);
+            if (commonPart != null) {
+                if (path.startsWith("/")) {
+                    path = path.substring(1);
+                }
+                String newPath = path.substring(commonPart.length());
+                if (newPath.startsWith("/")) {
+                    newPath = newPath.substring(1);
+                }
+                return newPath;
+            }
+        }
+        return path;
+    }
+
+    private static String findCommonPart(String folder, String filePath) {
+        if (folder == null || filePath == null) {
+            return null;
+        }
+        if (filePath.startsWith("/")) {
+            filePath = filePath.substring(1);
+        }
+        for (int i = 0; i < folder.length(); i++) {
+            String part = folder.substring(i);
+            if (filePath.startsWith(part)) {
+                return part;
+            }
+        }
+        return null;
+    }
+
     private SubversionChangeLogSet.LogEntry buildChangeLogEntry(int revision, String msg) {
         SubversionChangeLogSet.LogEntry entry = new SubversionChangeLogSet.LogEntry();
         entry.setRevision(revision);
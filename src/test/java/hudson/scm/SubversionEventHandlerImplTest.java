@@ -0,0 +1,70 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNNodeKind;
+import org.tmatesoft.svn.core.wc.SVNEvent;
+import org.tmatesoft.svn.core.wc.SVNEventAction;
+import org.tmatesoft.svn.core.wc.SVNStatusType;
+
+public class SubversionEventHandlerImplTest {
+
+    private File root, base;
+
+    @Before
+    public void setUp() throws Exception {
+        root = File.createTempFile("eventhandler", "root");
+        root.delete();
+        base = new File(root, "base");
+        new File(base, "a").mkdirs();
+        new File(root, "other").mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(root);
+    }
+
+    @Test
+    public void testRelativePath() throws Exception {
+        SubversionEventHandlerImpl handler = new SubversionEventHandlerImpl(System.out, base);
+        assertEquals("", handler.getRelativePath(base));
+        assertEquals("a", handler.getRelativePath(new File(base, "a")));
+        assertEquals("a/b.txt", handler.getRelativePath(new File(base, "a/b.txt")));
+        assertEquals(".hidden/b", handler.getRelativePath(new File(base, ".hidden/b")));
+        // not normalized, or outside of the base directory
+        assertEquals("b", handler.getRelativePath(new File(base, "a/../b")));
+        assertEquals("other/f", handler.getRelativePath(new File(root, "other/f")));
+        assertEquals("other/f", handler.getRelativePath(new File(base, "../other/f")));
+    }
+
+    @Test
+    public void testOutput() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SubversionEventHandlerImpl handler = new SubversionEventHandlerImpl(new PrintStream(out, true), base);
+        handler.handleEvent(event(new File(base, "a/b.txt"), SVNEventAction.UPDATE_ADD, SVNStatusType.CHANGED,
+            SVNStatusType.UNCHANGED), 0);
+        handler.handleEvent(event(new File(base, "a"), SVNEventAction.UPDATE_UPDATE, SVNStatusType.UNCHANGED,
+            SVNStatusType.CHANGED), 0);
+        handler.handleEvent(event(new File(base, "a"), SVNEventAction.UPDATE_UPDATE, SVNStatusType.UNCHANGED,
+            SVNStatusType.UNCHANGED), 0);
+        handler.handleEvent(event(base, SVNEventAction.COMMIT_ADDED, null, null), 0);
+        String sep = File.separator;
+        String nl = System.getProperty("line.separator");
+        assertEquals("A         a" + sep + "b.txt" + nl + " U        a" + nl + "Adding         ." + nl,
+            out.toString());
+    }
+
+    private static SVNEvent event(File file, SVNEventAction action, SVNStatusType contents, SVNStatusType props) {
+        return new SVNEvent(file, SVNNodeKind.FILE, null, -1, contents, props, null, null, action, null, null, null,
+            null, null, null);
+    }
+}
@@ -0,0 +1,120 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.scm.SubversionSCM.ModuleLocation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SubversionJobIndexTest {
+
+    private static final UUID REPO1 = UUID.fromString("f81d4fae-7dec-11d0-a765-00a0c91e6bf6");
+    private static final UUID REPO2 = UUID.fromString("0b8a5ad0-7dec-11d0-a765-00a0c91e6bf6");
+
+    private SubversionJobIndex index;
+
+    @Before
+    public void setUp() {
+        index = new SubversionJobIndex();
+        index.put("trunk", null, locations(REPO1, "/trunk", "svn://host/repo/trunk"));
+        index.put("module", null, locations(REPO1, "/trunk/module", "svn://host/repo/trunk/module"));
+        index.put("whole", null, locations(REPO1, "", "svn://host/repo"));
+        index.put("other", null, locations(REPO2, "/trunk", "svn://other/repo/trunk"));
+    }
+
+    private static Map<UUID, Map<String, String>> locations(UUID uuid, String path, String url) {
+        Map<UUID, Map<String, String>> r = new HashMap<UUID, Map<String, String>>();
+        r.put(uuid, Collections.singletonMap(path, url));
+        return r;
+    }
+
+    @Test
+    public void testFindJobs() {
+        Map<String, String> jobs = index.findJobs(REPO1, Arrays.asList("trunk/module/pom.xml"));
+        assertEquals(3, jobs.size());
+        assertEquals("svn://host/repo/trunk/module", jobs.get("module"));
+
+        jobs = index.findJobs(REPO1, Arrays.asList("trunk/moduleX/pom.xml", "branches/"));
+        assertEquals(2, jobs.size());
+        assertTrue(jobs.containsKey("trunk"));
+        assertTrue(jobs.containsKey("whole"));
+
+        // a directory and a file reported for the module itself
+        assertTrue(index.findJobs(REPO1, Arrays.asList("trunk/module/")).containsKey("module"));
+        assertTrue(index.findJobs(REPO1, Arrays.asList("trunk/module")).containsKey("module"));
+
+        assertEquals(Collections.singleton("other"),
+            index.findJobs(REPO2, Arrays.asList("trunk/a.txt")).keySet());
+        assertTrue(index.findJobs(UUID.randomUUID(), Arrays.asList("trunk/a.txt")).isEmpty());
+    }
+
+    @Test
+    public void testReindexAndRemove() {
+        index.put("module", null, locations(REPO1, "/branches/b1", "svn://host/repo/branches/b1"));
+        assertFalse(index.findJobs(REPO1, Arrays.asList("trunk/module/pom.xml")).containsKey("module"));
+        assertTrue(index.findJobs(REPO1, Arrays.asList("branches/b1/pom.xml")).containsKey("module"));
+
+        index.remove("whole");
+        index.remove("trunk");
+        assertTrue(index.findJobs(REPO1, Arrays.asList("trunk/a.txt")).isEmpty());
+        assertTrue(index.hasRepository(REPO2));
+    }
+
+    @Test
+    public void testParameterizedLocationsAreNotIndexed() throws Exception {
+        SubversionSCM scm = scm(new ModuleLocation("svn://host/repo/trunk", "trunk"),
+            new ModuleLocation("svn://host/repo/branches/${BRANCH}", "branch"));
+
+        // would fail if it tried to reach the repository
+        index.index("param", scm, null);
+        assertEquals(Collections.singletonList("param"), index.getUnindexableJobs());
+        assertTrue(index.getPendingJobs().isEmpty());
+
+        index.put("param", scm, locations(REPO1, "/trunk", "svn://host/repo/trunk"));
+        assertTrue(index.getUnindexableJobs().isEmpty());
+        assertTrue(index.findJobs(REPO1, Arrays.asList("trunk/a.txt")).containsKey("param"));
+    }
+
+    @Test
+    public void testFailureFallsBack() throws Exception {
+        // the URL can't even be parsed
+        assertFalse(index.tryIndex("trunk", scm(new ModuleLocation("svn://host:port/repo/trunk", "trunk")), null));
+
+        // the previous configuration is forgotten, and the job is looked at by itself
+        assertFalse(index.findJobs(REPO1, Arrays.asList("trunk/a.txt")).containsKey("trunk"));
+        assertEquals(Collections.singletonList("trunk"), index.getFallbackJobs());
+        assertTrue(index.getPendingJobs().isEmpty());
+
+        index.put("trunk", null, locations(REPO1, "/trunk", "svn://host/repo/trunk"));
+        assertTrue(index.getFallbackJobs().isEmpty());
+    }
+
+    @Test
+    public void testUnexpectedFailureFallsBack() throws Exception {
+        // without Hudson, looking up the repository fails with a NullPointerException
+        assertFalse(index.tryIndex("broken", scm(new ModuleLocation("svn://host/repo/trunk", "trunk")), null));
+
+        assertEquals(Collections.singletonList("broken"), index.getFallbackJobs());
+        assertTrue(index.getPendingJobs().isEmpty());
+
+        index.remove("broken");
+        assertTrue(index.getFallbackJobs().isEmpty());
+    }
+
+    private static SubversionSCM scm(ModuleLocation... locations) {
+        SubversionSCM scm = mock(SubversionSCM.class);
+        when(scm.getLocations()).thenReturn(locations);
+        return scm;
+    }
+}
@@ -0,0 +1,196 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepository;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.ISVNSession;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNWCUtil;
+
+public class SubversionLogCacheTest {
+
+    private File repo, cacheDir;
+    private SVNRepository repository;
+    private String uuid;
+
+    @Before
+    public void setUp() throws Exception {
+        SubversionSCM.init();
+        repo = File.createTempFile("svnlogcache", "repo");
+        repo.delete();
+        cacheDir = File.createTempFile("svnlogcache", "cache");
+        cacheDir.delete();
+        SVNURL root = SVNRepositoryFactory.createLocalRepository(repo, true, false);
+        repository = SVNRepositoryFactory.create(root);
+        repository.setAuthenticationManager(SVNWCUtil.createDefaultAuthenticationManager("alice", ""));
+        uuid = repository.getRepositoryUUID(true);
+
+        mkdir("/trunk");            // r1
+        mkdir("/trunk/a");          // r2
+        mkdir("/other");            // r3
+        mkdir("/trunk/a/b");        // r4
+        copy("/trunk", "/branch");  // r5
+        mkdir("/trunk/c");          // r6
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.closeSession();
+        FileUtils.deleteDirectory(repo);
+        FileUtils.deleteDirectory(cacheDir);
+    }
+
+    private void mkdir(String path) throws Exception {
+        ISVNEditor editor = repository.getCommitEditor("mkdir " + path, null);
+        editor.openRoot(-1);
+        editor.addDir(path, null, -1);
+        editor.closeDir();
+        editor.closeDir();
+        editor.closeEdit();
+    }
+
+    private void copy(String from, String to) throws Exception {
+        long head = repository.getLatestRevision();
+        ISVNEditor editor = repository.getCommitEditor("copy " + from, null);
+        editor.openRoot(-1);
+        editor.addDir(to, from, head);
+        editor.closeDir();
+        editor.closeDir();
+        editor.closeEdit();
+    }
+
+    private List<Long> revisions(List<SVNLogEntry> entries) {
+        List<Long> r = new ArrayList<Long>();
+        for (SVNLogEntry e : entries) {
+            r.add(e.getRevision());
+        }
+        return r;
+    }
+
+    private List<Long> serverLog(String path, long from, long to) throws Exception {
+        final List<SVNLogEntry> entries = new ArrayList<SVNLogEntry>();
+        repository.log(new String[]{path}, from, to, true, false, 0, false, null, new ISVNLogEntryHandler() {
+            public void handleLogEntry(SVNLogEntry logEntry) {
+                entries.add(logEntry);
+            }
+        });
+        return revisions(entries);
+    }
+
+    @Test
+    public void testSameAsServer() throws Exception {
+        SubversionLogCache cache = new SubversionLogCache(cacheDir);
+        assertEquals(serverLog("/trunk", 2, 4), revisions(cache.getLog(repository, uuid, "/trunk", 2, 4)));
+        assertEquals(serverLog("/trunk/a", 2, 6), revisions(cache.getLog(repository, uuid, "/trunk/a", 2, 6)));
+        assertEquals(serverLog("/other", 4, 6), revisions(cache.getLog(repository, uuid, "/other", 4, 6)));
+        assertEquals(serverLog("", 3, 6), revisions(cache.getLog(repository, uuid, "", 3, 6)));
+    }
+
+    @Test
+    public void testEntriesArePersisted() throws Exception {
+        List<SVNLogEntry> fetched = new SubversionLogCache(cacheDir).getLog(repository, uuid, "/trunk", 2, 4);
+
+        SubversionLogCache.RepositoryLog log = new SubversionLogCache.RepositoryLog(new File(cacheDir, uuid));
+        log.load();
+        List<SVNLogEntry> read = log.read(2, 4);
+        assertEquals(3, read.size());
+        assertEquals(fetched.get(0).getRevision(), read.get(0).getRevision());
+        assertEquals("alice", read.get(0).getAuthor());
+        assertEquals("mkdir /trunk/a", read.get(0).getMessage());
+        assertEquals(fetched.get(0).getDate(), read.get(0).getDate());
+        assertEquals(fetched.get(0).getChangedPaths().keySet(), read.get(0).getChangedPaths().keySet());
+    }
+
+    @Test
+    public void testOlderRevisionsAreNotServed() throws Exception {
+        SubversionLogCache cache = new SubversionLogCache(cacheDir);
+        cache.getLog(repository, uuid, "/trunk", 3, 4);
+        assertNull(cache.getLog(repository, uuid, "/trunk", 2, 4));
+    }
+
+    @Test
+    public void testCopiesAreLeftToTheServer() throws Exception {
+        SubversionLogCache cache = new SubversionLogCache(cacheDir);
+        assertNull(cache.getLog(repository, uuid, "/branch/a", 2, 6));
+        assertEquals(serverLog("/branch/a", 6, 6), revisions(cache.getLog(repository, uuid, "/branch/a", 6, 6)));
+    }
+
+    /**
+     * While entries are fetched from the server, the cache is neither locked nor reset.
+     */
+    @Test
+    public void testFetchDoesNotHoldTheCache() throws Exception {
+        final SubversionLogCache cache = new SubversionLogCache(cacheDir);
+        cache.getLog(repository, uuid, "/trunk", 2, 4);
+
+        final CountDownLatch fetching = new CountDownLatch(1), release = new CountDownLatch(1);
+        final SVNRepository slow = new FSRepository(repository.getLocation(), ISVNSession.DEFAULT) {
+            @Override
+            protected long logImpl(String[] targetPaths, long startRevision, long endRevision,
+                                   boolean changedPath, boolean strictNode, long limit, boolean includeMergedRevisions,
+                                   String[] revisionPropertyNames, ISVNLogEntryHandler handler) throws SVNException {
+                fetching.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                return super.logImpl(targetPaths, startRevision, endRevision, changedPath, strictNode, limit,
+                    includeMergedRevisions, revisionPropertyNames, handler);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        int oldMaxFill = SubversionLogCache.MAX_FILL;
+        try {
+            Future<List<SVNLogEntry>> fetch = executor.submit(new Callable<List<SVNLogEntry>>() {
+                public List<SVNLogEntry> call() throws Exception {
+                    return cache.getLog(slow, uuid, "/trunk", 2, 6);
+                }
+            });
+            assertTrue(fetching.await(10, TimeUnit.SECONDS));
+
+            Future<List<SVNLogEntry>> cached = executor.submit(new Callable<List<SVNLogEntry>>() {
+                public List<SVNLogEntry> call() throws Exception {
+                    return cache.getLog(repository, uuid, "/trunk", 2, 4);
+                }
+            });
+            assertEquals(serverLog("/trunk", 2, 4), revisions(cached.get(10, TimeUnit.SECONDS)));
+
+            // far ahead of the cache, which would normally start over
+            SubversionLogCache.MAX_FILL = 1;
+            assertNull(cache.getLog(repository, uuid, "/other", 6, 6));
+            SubversionLogCache.MAX_FILL = oldMaxFill;
+
+            release.countDown();
+            assertEquals(serverLog("/trunk", 2, 6), revisions(fetch.get(10, TimeUnit.SECONDS)));
+            assertEquals(serverLog("/trunk/a", 2, 6), revisions(cache.getLog(repository, uuid, "/trunk/a", 2, 6)));
+        } finally {
+            SubversionLogCache.MAX_FILL = oldMaxFill;
+            release.countDown();
+            executor.shutdownNow();
+            slow.closeSession();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNLogEntry;
+import org.tmatesoft.svn.core.SVNLogEntryPath;
+
+public class SubversionLogTailerTest {
+
+    private static final UUID REPO = UUID.fromString("f81d4fae-7dec-11d0-a765-00a0c91e6bf6");
+
+    private SubversionLogTailer.RepositoryLog log;
+
+    @Before
+    public void setUp() {
+        log = new SubversionLogTailer.RepositoryLog("svn://host/repo", REPO, 10);
+    }
+
+    private static SVNLogEntry entry(long revision, char type, String... paths) {
+        Map<String, SVNLogEntryPath> changed = new HashMap<String, SVNLogEntryPath>();
+        for (String path : paths) {
+            changed.put(path, new SVNLogEntryPath(path, type, null, -1));
+        }
+        return new SVNLogEntry(changed, revision, "alice", new Date(), "commit " + revision);
+    }
+
+    @Test
+    public void testChangesBelowLocation() {
+        log.append(Arrays.asList(entry(11, 'M', "/trunk/a.txt"), entry(12, 'M', "/branches/b1/a.txt"),
+            entry(13, 'A', "/trunk/dir/b.txt")), 14, 0);
+
+        SubversionLogTailer.Changes c = log.getChanges("/trunk", 10);
+        assertEquals(13, c.revision);
+        assertEquals(2, c.entries.size());
+        assertEquals(11, c.entries.get(0).getRevision());
+
+        c = log.getChanges("/trunk", 13);
+        assertEquals(13, c.revision);
+        assertEquals(0, c.entries.size());
+
+        assertEquals(12, log.getChanges("/branches/b1", 10).revision);
+        assertEquals(13, log.getChanges("", 10).revision);
+    }
+
+    @Test
+    public void testSiblingWithCommonPrefixIsNotTouched() {
+        log.append(Collections.singletonList(entry(11, 'M', "/trunk2/a.txt")), 11, 0);
+        assertEquals(10, log.getChanges("/trunk", 10).revision);
+    }
+
+    @Test
+    public void testReplacedParentTouchesLocation() {
+        log.append(Arrays.asList(entry(11, 'M', "/branches"), entry(12, 'R', "/branches/b1")), 12, 0);
+        SubversionLogTailer.Changes c = log.getChanges("/branches/b1/module", 10);
+        assertEquals(12, c.revision);
+        assertEquals(1, c.entries.size());
+    }
+
+    @Test
+    public void testUnknownRangeIsNotServed() {
+        log.append(Collections.singletonList(entry(11, 'M', "/trunk/a.txt")), 11, 0);
+        assertNull(log.getChanges("/trunk", 9));
+        assertNull(log.getChanges("/trunk", 12));
+    }
+
+    @Test
+    public void testOldEntriesAreDropped() {
+        int old = SubversionLogTailer.MAX_ENTRIES;
+        SubversionLogTailer.MAX_ENTRIES = 2;
+        try {
+            log.append(Arrays.asList(entry(11, 'M', "/trunk/a.txt"), entry(12, 'M', "/trunk/a.txt"),
+                entry(13, 'M', "/trunk/a.txt")), 13, 0);
+            assertNull(log.getChanges("/trunk", 10));
+            assertEquals(2, log.getChanges("/trunk", 11).entries.size());
+        } finally {
+            SubversionLogTailer.MAX_ENTRIES = old;
+        }
+    }
+
+    @Test
+    public void testInvalidatedUntilNextRefresh() {
+        log.invalidate();
+        assertNull(log.getChanges("/trunk", 10));
+        // a fetch that started before the notification doesn't make the log valid again
+        log.append(Collections.<SVNLogEntry>emptyList(), 10, 0);
+        assertNull(log.getChanges("/trunk", 10));
+        log.append(Collections.<SVNLogEntry>emptyList(), 10, 1);
+        assertEquals(10, log.getChanges("/trunk", 10).revision);
+    }
+}
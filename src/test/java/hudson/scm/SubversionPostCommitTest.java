@@ -9,8 +9,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 import hudson.Proc;
 import hudson.model.FreeStyleBuild;
@@ -19,6 +21,7 @@ import hudson.model.Result;
 import hudson.model.FreeStyleProject;
 import hudson.scm.SubversionSCM;
 import hudson.triggers.SCMTrigger;
+import hudson.util.StreamTaskListener;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
@@ -151,6 +154,29 @@ public class SubversionPostCommitTest extends AbstractSubversionTest {
         assertEquals("Failed to execute a buid.", 2, b.getNumber());
 	}
 	
+	/**
+	 * What the hook reports is only a hint, which the repository has to confirm.
+	 */
+	public void testPostCommitEvidenceIsConfirmed() throws Exception {
+		createSVNRepository();
+		FreeStyleProject project = createFreeStyleProject();
+		String url = "file:///tmp/399165";
+		project.setScm(new SubversionSCM(url));
+		assertBuildStatusSuccess(project.scheduleBuild2(0));
+		UUID uuid = UUID.fromString(repository.getRepositoryUUID(false));
+
+		// nothing was committed
+		PostCommitEvidence.put(project, new PostCommitEvidence(uuid, 2, 1000000, Arrays.asList("dirB/file2.txt")));
+		assertFalse(project.poll(StreamTaskListener.fromStdout()).hasChanges());
+
+		// the new baseline comes from the repository, not from the hook
+		createSecondCommit();
+		PostCommitEvidence.put(project, new PostCommitEvidence(uuid, 2, 1000000, Arrays.asList("dirB/file2.txt")));
+		PollingResult r = project.poll(StreamTaskListener.fromStdout());
+		assertEquals(PollingResult.Change.SIGNIFICANT, r.change);
+		assertEquals(2, ((SVNRevisionState) r.remote).revisions.get(url).longValue());
+	}
+
 	private SVNCommitInfo createSecondCommit() throws SVNException {
 		String logMessage = "test second commit";
 		ISVNWorkspaceMediator mediator = new PostCommitWorkspaceMediator();
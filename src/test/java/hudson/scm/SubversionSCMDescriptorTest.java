@@ -3,20 +3,31 @@ package hudson.scm;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 import hudson.EnvVars;
+import hudson.ExtensionComponent;
+import hudson.ExtensionList;
+import hudson.init.InitMilestone;
 import hudson.model.Descriptor.FormException;
 import hudson.model.Hudson;
 import hudson.scm.SubversionSCM.ModuleLocation;
 import hudson.scm.SubversionSCM.DescriptorImpl;
+import hudson.scm.SubversionSCM.DescriptorImpl.Credential;
+import hudson.scm.credential.PasswordCredential;
 import hudson.scm.subversion.WorkspaceUpdater;
 import hudson.slaves.EnvironmentVariablesNodeProperty;
 import hudson.slaves.NodeProperty;
 import hudson.slaves.NodePropertyDescriptor;
 import hudson.util.DescribableList;
 
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import net.sf.json.JSONObject;
 
+import org.apache.commons.io.FileUtils;
+
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -27,6 +38,9 @@ import org.mockito.MockitoAnnotations;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
 import org.tmatesoft.svn.core.internal.wc.admin.SVNAdminAreaFactory;
 
 /**
@@ -94,6 +108,78 @@ public class SubversionSCMDescriptorTest {
 				   descriptorImpl.isBrowserReusable(mockSubversionSCM, mockSubversionSCM2));
 	}
 	
+	@Test
+	public void testCredentialLookupCounts() throws Exception {
+		final Credential credential = new PasswordCredential("user", "secret");
+		ExtensionList<SubversionCredentialProvider> providers = new ExtensionList<SubversionCredentialProvider>(
+				hudson, SubversionCredentialProvider.class) {
+			@Override
+			protected Object getLoadLock() {
+				return this;
+			}
+
+			@Override
+			protected List<ExtensionComponent<SubversionCredentialProvider>> load() {
+				return Collections.singletonList(new ExtensionComponent<SubversionCredentialProvider>(
+						new SubversionCredentialProvider() {
+							@Override
+							public Credential getCredential(SVNURL url, String realm) {
+								return realm.equals("known") ? credential : null;
+							}
+						}));
+			}
+		};
+		when(hudson.getExtensionList(SubversionCredentialProvider.class)).thenReturn(providers);
+		when(hudson.getInitLevel()).thenReturn(InitMilestone.COMPLETED);
+
+		SubversionSCM.DescriptorImpl descriptorImpl = new DescriptorImpl();
+		ISVNAuthenticationProvider auth = descriptorImpl.createAuthenticationProvider(null);
+		SVNURL url = SVNURL.parseURIEncoded("http://localhost/svn");
+		auth.requestClientAuthentication(ISVNAuthenticationManager.PASSWORD, url, "known", null, null, false);
+		auth.requestClientAuthentication(ISVNAuthenticationManager.PASSWORD, url, "known", null, null, false);
+		auth.requestClientAuthentication(ISVNAuthenticationManager.PASSWORD, url, "unknown", null, null, false);
+
+		Map<String, long[]> counts = descriptorImpl.getCredentialLookupCounts();
+		assertArrayEquals(new long[]{2, 0}, counts.get("known"));
+		assertArrayEquals(new long[]{0, 1}, counts.get("unknown"));
+	}
+
+	@Test
+	public void testSubclassLoadsCredentials() throws Exception {
+		File root = File.createTempFile("hudson", "root");
+		root.delete();
+		root.mkdirs();
+		try {
+			when(hudson.getRootDir()).thenReturn(root);
+			when(hudson.getExtensionList(SubversionCredentialProvider.class)).thenReturn(
+					new ExtensionList<SubversionCredentialProvider>(hudson, SubversionCredentialProvider.class) {
+						@Override
+						protected Object getLoadLock() {
+							return this;
+						}
+
+						@Override
+						protected List<ExtensionComponent<SubversionCredentialProvider>> load() {
+							return Collections.emptyList();
+						}
+					});
+			when(hudson.getInitLevel()).thenReturn(InitMilestone.COMPLETED);
+			DescriptorImpl descriptorImpl = new DescriptorImpl(SubversionSCM.class, null) {};
+			// as if read from the configuration
+			Field credentials = DescriptorImpl.class.getDeclaredField("credentials");
+			credentials.setAccessible(true);
+			((Map<String, Credential>) credentials.get(descriptorImpl)).put("known",
+					new PasswordCredential("user", "secret"));
+			descriptorImpl.load();
+
+			SVNURL url = SVNURL.parseURIEncoded("http://localhost/svn");
+			assertNotNull(descriptorImpl.createAuthenticationProvider(null).requestClientAuthentication(
+					ISVNAuthenticationManager.PASSWORD, url, "known", null, null, false));
+		} finally {
+			FileUtils.deleteDirectory(root);
+		}
+	}
+
 //	@Test
 //	public void testConfigure() {
 //		
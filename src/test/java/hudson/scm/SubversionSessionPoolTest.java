@@ -0,0 +1,147 @@
+package hudson.scm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.BasicAuthenticationManager;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
+import org.tmatesoft.svn.core.auth.SVNAuthentication;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+import org.tmatesoft.svn.core.wc.SVNRevision;
+
+public class SubversionSessionPoolTest {
+
+    private File dir;
+    private SVNURL root;
+    private SubversionSessionPool pool;
+    private int oldMaxIdle, oldMaxIdleTotal, oldIdleTimeout;
+
+    @Before
+    public void setUp() throws Exception {
+        SubversionSCM.init();
+        dir = File.createTempFile("svnpool", "repo");
+        dir.delete();
+        root = SVNRepositoryFactory.createLocalRepository(dir, true, false);
+        pool = new SubversionSessionPool();
+        oldMaxIdle = SubversionSessionPool.MAX_IDLE;
+        oldMaxIdleTotal = SubversionSessionPool.MAX_IDLE_TOTAL;
+        oldIdleTimeout = SubversionSessionPool.IDLE_TIMEOUT;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        SubversionSessionPool.MAX_IDLE = oldMaxIdle;
+        SubversionSessionPool.MAX_IDLE_TOTAL = oldMaxIdleTotal;
+        SubversionSessionPool.IDLE_TIMEOUT = oldIdleTimeout;
+        pool.closeIdleSessions();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private SVNRepository borrowAndConnect(SVNURL url, String scope) throws Exception {
+        SVNRepository r = pool.borrow(url, scope, null, null);
+        r.testConnection();
+        return r;
+    }
+
+    @Test
+    public void testSessionIsReusedWithinRepository() throws Exception {
+        SVNRepository r = borrowAndConnect(root, "job:a");
+        pool.release(r, "job:a");
+        assertEquals(1, pool.getIdleCount());
+
+        SVNRepository r2 = pool.borrow(root.appendPath("trunk", false), "job:a", null, null);
+        assertSame(r, r2);
+        assertEquals(root.appendPath("trunk", false), r2.getLocation());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testSessionIsNotSharedAcrossCredentials() throws Exception {
+        SVNRepository r = borrowAndConnect(root, "job:a");
+        pool.release(r, "job:a");
+
+        SVNRepository r2 = pool.borrow(root, "job:b", null, null);
+        assertNotSame(r, r2);
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    /**
+     * A session authenticated with a credential serves the jobs that resolve the same credential, and only them.
+     */
+    @Test
+    public void testSessionIsSharedByCredential() throws Exception {
+        SVNRepository r = pool.borrow(root, "job:a", new BasicAuthenticationManager("alice", "secret"), null);
+        r.testConnection();
+        SVNAuthentication auth = r.getAuthenticationManager()
+            .getFirstAuthentication(ISVNAuthenticationManager.PASSWORD, "<svn://example.org> realm", root);
+        r.getAuthenticationManager().acknowledgeAuthentication(true, ISVNAuthenticationManager.PASSWORD,
+            "<svn://example.org> realm", null, auth);
+        pool.release(r, "job:a");
+
+        SVNRepository r2 = pool.borrow(root, "job:b", new BasicAuthenticationManager("alice", "other"), null);
+        assertNotSame(r, r2);
+        SVNRepository r3 = pool.borrow(root, "job:c", null, null);
+        assertNotSame(r, r3);
+        assertEquals(1, pool.getIdleCount());
+
+        SVNRepository r4 = pool.borrow(root, "job:b", new BasicAuthenticationManager("alice", "secret"), null);
+        assertSame(r, r4);
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testIdleSessionsAreBoundedGlobally() throws Exception {
+        SubversionSessionPool.MAX_IDLE_TOTAL = 2;
+        SVNRepository r1 = borrowAndConnect(root, "job:a");
+        SVNRepository r2 = borrowAndConnect(root, "job:b");
+        SVNRepository r3 = borrowAndConnect(root, "job:c");
+        pool.release(r1, "job:a");
+        pool.release(r2, "job:b");
+        pool.release(r3, "job:c");
+        assertEquals(2, pool.getIdleCount());
+
+        // the one idle for the longest went first
+        assertNotSame(r1, pool.borrow(root, "job:a", null, null));
+        assertSame(r3, pool.borrow(root, "job:c", null, null));
+    }
+
+    @Test
+    public void testIdleSessionsAreBounded() throws Exception {
+        SubversionSessionPool.MAX_IDLE = 2;
+        SVNRepository r1 = borrowAndConnect(root, "global");
+        SVNRepository r2 = borrowAndConnect(root, "global");
+        SVNRepository r3 = borrowAndConnect(root, "global");
+        pool.release(r1, "global");
+        pool.release(r2, "global");
+        pool.release(r3, "global");
+        assertEquals(2, pool.getIdleCount());
+    }
+
+    @Test
+    public void testPoolingDisabled() throws Exception {
+        SubversionSessionPool.IDLE_TIMEOUT = 0;
+        pool.release(borrowAndConnect(root, "global"), "global");
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testClientManagerReturnsSessionsOnDispose() throws Exception {
+        SVNClientManager manager = pool.createClientManager(null);
+        try {
+            manager.getWCClient().doInfo(root, SVNRevision.HEAD, SVNRevision.HEAD);
+        } finally {
+            manager.dispose();
+        }
+        assertEquals(1, pool.getIdleCount());
+    }
+}
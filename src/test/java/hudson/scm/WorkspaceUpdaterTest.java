@@ -32,19 +32,28 @@ import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
+import hudson.model.Item;
 import hudson.scm.subversion.CheckoutUpdater;
+import hudson.scm.subversion.ExportUpdater;
 import hudson.scm.subversion.UpdateUpdater;
 import hudson.scm.subversion.UpdateWithCleanUpdater;
 import hudson.scm.subversion.UpdateWithRevertUpdater;
 import hudson.scm.subversion.WorkspaceUpdater;
 import hudson.util.StreamTaskListener;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.jvnet.hudson.test.Bug;
 import org.jvnet.hudson.test.TestBuilder;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
 
 
 /**
@@ -157,6 +166,65 @@ public class WorkspaceUpdaterTest extends AbstractSubversionTest {
         }
     }
 
+    /**
+     * The changes of externals are in the change log of exports too, though exports have no working copy.
+     */
+    public void testExportChangeLogHasExternals() throws Exception {
+        File repo = createTmpDir();
+        SVNURL root = SVNRepositoryFactory.createLocalRepository(repo, true, true);
+        SVNRepository repository = SVNRepositoryFactory.create(root);
+        try {
+            ISVNEditor editor = repository.getCommitEditor("layout", null);
+            editor.openRoot(-1);
+            editor.addDir("lib", null, -1);
+            editor.closeDir();
+            editor.addDir("mod", null, -1);
+            editor.changeDirProperty("svn:externals", SVNPropertyValue.create("^/lib ext"));
+            editor.closeDir();
+            editor.closeDir();
+            editor.closeEdit();
+
+            FreeStyleProject p = createFreeStyleProject();
+            SubversionSCM scm = new SubversionSCM(root.appendPath("mod", false).toString());
+            scm.setWorkspaceUpdater(new ExportUpdater());
+            p.setScm(scm);
+            buildAndAssertSuccess(p);
+
+            editor = repository.getCommitEditor("change in the external", null);
+            editor.openRoot(-1);
+            editor.openDir("lib", -1);
+            editor.addDir("lib/new", null, -1);
+            editor.closeDir();
+            editor.closeDir();
+            editor.closeDir();
+            editor.closeEdit();
+
+            FreeStyleBuild b = buildAndAssertSuccess(p);
+            String changelog = FileUtils.readFileToString(new File(b.getRootDir(), "changelog.xml"));
+            assertTrue(changelog, changelog.contains("/lib/new"));
+            assertFalse(getLog(b), getLog(b).contains("no revision recorded for null"));
+        } finally {
+            repository.closeSession();
+        }
+    }
+
+    /**
+     * Each job can set how many module locations are fetched at the same time.
+     */
+    public void testParallelismRoundtrip() throws Exception {
+        FreeStyleProject p = createFreeStyleProject();
+        SubversionSCM scm = new SubversionSCM("file:///tmp/dir1");
+        scm.setWorkspaceUpdater(new UpdateUpdater(4));
+        p.setScm(scm);
+        configRoundtrip((Item) p);
+        assertEquals(4, ((SubversionSCM) p.getScm()).getWorkspaceUpdater().getParallelism());
+
+        scm.setWorkspaceUpdater(new UpdateUpdater());
+        p.setScm(scm);
+        configRoundtrip((Item) p);
+        assertEquals(0, ((SubversionSCM) p.getScm()).getWorkspaceUpdater().getParallelism());
+    }
+
     private void verifyCompatibility(String resourceName, Class<? extends WorkspaceUpdater> expected)
         throws IOException {
         InputStream io = null;
@@ -0,0 +1,165 @@
+package hudson.scm.subversion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import hudson.Functions;
+import hudson.Util;
+import hudson.model.TaskListener;
+import hudson.scm.SubversionSCM;
+import hudson.util.StreamTaskListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNProperty;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaGenerator;
+
+public class CheckoutCacheTest {
+
+    private File repo, cache, ws;
+    private SVNURL root;
+    private String oldDir;
+    private int oldMaxEntries;
+
+    @Before
+    public void setUp() throws Exception {
+        SubversionSCM.init();
+        repo = File.createTempFile("checkoutcache", "repo");
+        repo.delete();
+        cache = File.createTempFile("checkoutcache", "cache");
+        cache.delete();
+        ws = File.createTempFile("checkoutcache", "ws");
+        ws.delete();
+        root = SVNRepositoryFactory.createLocalRepository(repo, true, false);
+        oldDir = CheckoutCache.DIR;
+        oldMaxEntries = CheckoutCache.MAX_ENTRIES;
+        CheckoutCache.DIR = cache.getPath();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        CheckoutCache.DIR = oldDir;
+        CheckoutCache.MAX_ENTRIES = oldMaxEntries;
+        FileUtils.deleteDirectory(repo);
+        FileUtils.deleteDirectory(cache);
+        FileUtils.deleteDirectory(ws);
+    }
+
+    private void mkdir(String path) throws Exception {
+        SVNRepository repository = SVNRepositoryFactory.create(root);
+        ISVNEditor editor = repository.getCommitEditor("mkdir " + path, null);
+        editor.openRoot(-1);
+        editor.addDir(path, null, -1);
+        editor.closeDir();
+        editor.closeDir();
+        editor.closeEdit();
+        repository.closeSession();
+    }
+
+    private void addFile(String path, String content, String property) throws Exception {
+        SVNRepository repository = SVNRepositoryFactory.create(root);
+        ISVNEditor editor = repository.getCommitEditor("add " + path, null);
+        editor.openRoot(-1);
+        editor.addFile(path, null, -1);
+        editor.changeFileProperty(path, property, SVNPropertyValue.create("*"));
+        editor.applyTextDelta(path, null);
+        String checksum = new SVNDeltaGenerator().sendDelta(path, new ByteArrayInputStream(content.getBytes("UTF-8")),
+            editor, true);
+        editor.closeFile(path, checksum);
+        editor.closeDir();
+        editor.closeEdit();
+        repository.closeSession();
+    }
+
+    private String checkout(String module, Map<File, Long> revisions) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WorkspaceUpdater.UpdateTask task = new CheckoutUpdater().createTask();
+        task.setManager(SubversionSCM.createSvnClientManager((ISVNAuthenticationProvider) null));
+        task.setLocations(new SubversionSCM.ModuleLocation[]{
+            new SubversionSCM.ModuleLocation(root.appendPath(module, false).toString(), module,
+                SVNDepth.INFINITY.getName(), false)});
+        task.setWs(ws);
+        task.setRevisionPolicy(SubversionSCM.RevisionPolicy.HEAD);
+        task.setListener(new StreamTaskListener(out));
+        task.setUpdatedRevisions(revisions);
+        assertNotNull(out.toString(), task.perform());
+        return out.toString();
+    }
+
+    @Test
+    public void testSeedFromCache() throws Exception {
+        mkdir("trunk");         // r1
+        mkdir("trunk/a");       // r2
+
+        Map<File, Long> revisions = new ConcurrentHashMap<File, Long>();
+        String log = checkout("trunk", revisions);
+        assertTrue(log, log.contains("from the checkout cache"));
+        assertTrue(new File(ws, "trunk/a").isDirectory());
+        assertEquals(Long.valueOf(2), revisions.get(new File(ws, "trunk").getCanonicalFile()));
+        assertEquals(1, cache.list().length);
+
+        mkdir("trunk/b");       // r3
+        revisions.clear();
+        checkout("trunk", revisions);
+        assertTrue(new File(ws, "trunk/b").isDirectory());
+        assertEquals(Long.valueOf(3), revisions.get(new File(ws, "trunk").getCanonicalFile()));
+        // the reference was updated in place
+        assertEquals(1, cache.list().length);
+        assertTrue(new File(cache.listFiles()[0], "b").isDirectory());
+    }
+
+    /**
+     * The copy has to be what a check out would have made, since "svn update" doesn't repair it.
+     */
+    @Test
+    public void testExecutablesAndSymlinksSurviveTheCopy() throws Exception {
+        if (Functions.isWindows()) {
+            return;
+        }
+        mkdir("trunk");
+        addFile("trunk/gradlew", "#!/bin/sh\n", SVNProperty.EXECUTABLE);
+        addFile("trunk/link", "link gradlew", SVNProperty.SPECIAL);
+
+        checkout("trunk", null);
+        File reference = cache.listFiles()[0];
+        assertTrue(Util.isSymlink(new File(reference, "link")));
+
+        File trunk = new File(ws, "trunk");
+        assertTrue(new File(trunk, "gradlew").canExecute());
+        assertTrue(Util.isSymlink(new File(trunk, "link")));
+        assertEquals("gradlew", Util.resolveSymlink(new File(trunk, "link"), TaskListener.NULL));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        CheckoutCache.MAX_ENTRIES = 1;
+        mkdir("one");
+        mkdir("two");
+
+        checkout("one", null);
+        File first = cache.listFiles()[0];
+        first.setLastModified(System.currentTimeMillis() - 60000);
+        checkout("two", null);
+
+        assertEquals(1, cache.list().length);
+        assertFalse(first.exists());
+        assertTrue(new File(ws, "two").isDirectory());
+    }
+}
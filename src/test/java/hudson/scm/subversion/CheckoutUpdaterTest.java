@@ -25,7 +25,14 @@
 package hudson.scm.subversion;
 
 import hudson.scm.SubversionSCM;
+import hudson.util.StreamTaskListener;
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
 import org.tmatesoft.svn.core.SVNDepth;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.internal.wc2.SvnWcGeneration;
@@ -36,10 +43,17 @@ import org.tmatesoft.svn.core.wc.SVNRevision;
 import org.tmatesoft.svn.core.wc.SVNUpdateClient;
 import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
 
 /**
  * Test for {@link CheckoutUpdater}
@@ -74,4 +88,131 @@ public class CheckoutUpdaterTest {
         task.perform();
         verify(manager, svnuc);
     }
+
+    @Test
+    public void testParallelCheckout() throws Exception {
+        SubversionSCM.init();
+        File repo = File.createTempFile("checkout", "repo");
+        repo.delete();
+        File ws = File.createTempFile("checkout", "ws");
+        ws.delete();
+        try {
+            SVNURL root = SVNRepositoryFactory.createLocalRepository(repo, true, false);
+            SVNRepository repository = SVNRepositoryFactory.create(root);
+            ISVNEditor editor = repository.getCommitEditor("modules", null);
+            editor.openRoot(-1);
+            for (String m : new String[]{"m1", "m2", "m3", "m4"}) {
+                editor.addDir(m, null, -1);
+                editor.addDir(m + "/sub", null, -1);
+                editor.closeDir();
+                editor.closeDir();
+            }
+            editor.closeDir();
+            editor.closeEdit();
+            repository.closeSession();
+
+            SubversionSCM.ModuleLocation[] locations = new SubversionSCM.ModuleLocation[4];
+            for (int i = 0; i < locations.length; i++) {
+                locations[i] = new SubversionSCM.ModuleLocation(root.appendPath("m" + (i + 1), false).toString(),
+                    "m" + (i + 1), SVNDepth.INFINITY.getName(), false);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            WorkspaceUpdater.UpdateTask task = new CheckoutUpdater().createTask();
+            task.setManager(SubversionSCM.createSvnClientManager((ISVNAuthenticationProvider) null));
+            task.setLocations(locations);
+            task.setWs(ws);
+            task.setRevisionPolicy(SubversionSCM.RevisionPolicy.HEAD);
+            task.setListener(new StreamTaskListener(out));
+            task.setParallelism(3);
+            Map<File, Long> revisions = new ConcurrentHashMap<File, Long>();
+            task.setUpdatedRevisions(revisions);
+            List<SubversionSCM.External> externals = task.perform();
+
+            assertNotNull(out.toString(), externals);
+            assertTrue(externals.isEmpty());
+            String log = out.toString();
+            for (int i = 1; i <= 4; i++) {
+                assertTrue(new File(ws, "m" + i + "/sub").isDirectory());
+                assertEquals(revisions.toString(), Long.valueOf(1), revisions.get(new File(ws, "m" + i).getCanonicalFile()));
+                // lines prefixed with the module they are about
+                assertTrue(log, log.contains("[m" + i + "] Checking out " + root.appendPath("m" + i, false)));
+            }
+        } finally {
+            FileUtils.deleteDirectory(repo);
+            FileUtils.deleteDirectory(ws);
+        }
+    }
+
+    @Test
+    public void testNestedLocationsAreGrouped() throws Exception {
+        String[] dirs = {"a", "b", "a/lib", "ab", ".", "c", "c", "d"};
+        SubversionSCM.ModuleLocation[] locations = new SubversionSCM.ModuleLocation[dirs.length];
+        for (int i = 0; i < dirs.length; i++) {
+            locations[i] = new SubversionSCM.ModuleLocation("http://localhost/m" + i, dirs[i]);
+        }
+        WorkspaceUpdater.UpdateTask task = new CheckoutUpdater().createTask();
+        task.setWs(new File("./target/workspace"));
+        task.setLocations(new SubversionSCM.ModuleLocation[]{locations[0], locations[1], locations[2], locations[3]});
+        List<List<SubversionSCM.ModuleLocation>> groups = task.groupByLocalDir();
+        assertEquals(3, groups.size());
+        assertEquals(Arrays.asList(locations[0], locations[2]), groups.get(0));
+        assertEquals(Arrays.asList(locations[1]), groups.get(1));
+        assertEquals(Arrays.asList(locations[3]), groups.get(2));
+
+        // the workspace itself holds everything
+        task.setLocations(locations);
+        assertEquals(1, task.groupByLocalDir().size());
+
+        task.setLocations(new SubversionSCM.ModuleLocation[]{locations[5], locations[7], locations[6]});
+        groups = task.groupByLocalDir();
+        assertEquals(2, groups.size());
+        assertEquals(Arrays.asList(locations[5], locations[6]), groups.get(0));
+    }
+
+    @Test
+    public void testSummaryLog() throws Exception {
+        SubversionSCM.init();
+        File repo = File.createTempFile("checkout", "repo");
+        repo.delete();
+        File ws = File.createTempFile("checkout", "ws");
+        ws.delete();
+        try {
+            SVNURL root = SVNRepositoryFactory.createLocalRepository(repo, true, false);
+            SVNRepository repository = SVNRepositoryFactory.create(root);
+            ISVNEditor editor = repository.getCommitEditor("module", null);
+            editor.openRoot(-1);
+            editor.addDir("m", null, -1);
+            editor.addDir("m/a", null, -1);
+            editor.closeDir();
+            editor.addDir("m/b", null, -1);
+            editor.closeDir();
+            editor.closeDir();
+            editor.closeDir();
+            editor.closeEdit();
+            repository.closeSession();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream detail = new ByteArrayOutputStream();
+            WorkspaceUpdater.UpdateTask task = new CheckoutUpdater().createTask();
+            task.setManager(SubversionSCM.createSvnClientManager((ISVNAuthenticationProvider) null));
+            task.setLocations(new SubversionSCM.ModuleLocation[]{
+                new SubversionSCM.ModuleLocation(root.appendPath("m", false).toString(), "m",
+                    SVNDepth.INFINITY.getName(), false)});
+            task.setWs(ws);
+            task.setRevisionPolicy(SubversionSCM.RevisionPolicy.HEAD);
+            task.setListener(new StreamTaskListener(out));
+            task.setLogLevel(WorkspaceUpdater.LogLevel.SUMMARY, new PrintStream(detail, true));
+            assertNotNull(out.toString(), task.perform());
+
+            String log = out.toString();
+            assertTrue(log, log.contains("m: 2 added, 0 updated, 0 deleted, 0 conflicted, 0 merged (2 paths in"));
+            assertFalse(log, log.contains("A         "));
+            String details = detail.toString();
+            assertTrue(details, details.contains("m: A         a"));
+            assertTrue(details, details.contains("m: A         b"));
+        } finally {
+            FileUtils.deleteDirectory(repo);
+            FileUtils.deleteDirectory(ws);
+        }
+    }
 }
@@ -0,0 +1,94 @@
+package hudson.scm.subversion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import hudson.scm.SubversionSCM;
+import hudson.scm.SubversionSCM.External;
+import hudson.util.StreamTaskListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNPropertyValue;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationProvider;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+
+public class ExportUpdaterTest {
+
+    private File repo, ws;
+    private SVNURL root;
+
+    @Before
+    public void setUp() throws Exception {
+        SubversionSCM.init();
+        repo = File.createTempFile("export", "repo");
+        repo.delete();
+        ws = File.createTempFile("export", "ws");
+        ws.delete();
+        root = SVNRepositoryFactory.createLocalRepository(repo, true, false);
+
+        SVNRepository repository = SVNRepositoryFactory.create(root);
+        ISVNEditor editor = repository.getCommitEditor("layout", null);
+        editor.openRoot(-1);
+        editor.addDir("lib", null, -1);
+        editor.addDir("lib/x", null, -1);
+        editor.closeDir();
+        editor.closeDir();
+        editor.addDir("mod", null, -1);
+        editor.addDir("mod/sub", null, -1);
+        editor.changeDirProperty("svn:externals", SVNPropertyValue.create("^/lib ext"));
+        editor.closeDir();
+        editor.closeDir();
+        editor.closeDir();
+        editor.closeEdit();
+        repository.closeSession();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(repo);
+        FileUtils.deleteDirectory(ws);
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WorkspaceUpdater.UpdateTask task = new ExportUpdater().createTask();
+        task.setManager(SubversionSCM.createSvnClientManager((ISVNAuthenticationProvider) null));
+        task.setLocations(new SubversionSCM.ModuleLocation[]{
+            new SubversionSCM.ModuleLocation(root.appendPath("mod", false).toString(), "mod",
+                SVNDepth.INFINITY.getName(), false)});
+        task.setWs(ws);
+        task.setRevisionPolicy(SubversionSCM.RevisionPolicy.HEAD);
+        task.setListener(new StreamTaskListener(out));
+        Map<File, Long> revisions = new ConcurrentHashMap<File, Long>();
+        task.setUpdatedRevisions(revisions);
+
+        List<External> externals = task.perform();
+        assertNotNull(out.toString(), externals);
+
+        assertTrue(new File(ws, "mod/sub/ext/x").isDirectory());
+        assertFalse(new File(ws, "mod/.svn").exists());
+        assertEquals(Long.valueOf(1), revisions.get(new File(ws, "mod").getCanonicalFile()));
+        assertEquals(Long.valueOf(1), revisions.get(new File(ws, "mod/sub/ext").getCanonicalFile()));
+
+        assertEquals(1, externals.size());
+        assertEquals("mod/sub/ext", externals.get(0).path);
+        assertEquals(root.appendPath("lib", false).toDecodedString(), externals.get(0).url);
+        assertFalse(externals.get(0).isRevisionFixed());
+    }
+}
@@ -10,11 +10,13 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.tmatesoft.svn.core.SVNCancelException;
 import org.tmatesoft.svn.core.SVNNodeKind;
 import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.internal.wc.SVNExternal;
@@ -82,4 +84,21 @@ public class SubversionUpdateEventHandlerTest {
 		assertFalse(baos.toString().isEmpty());
 		assertTrue(baos.toString().contains("svn:externals to a file requires Subversion 1.6 workspace support. Use the system configuration to enable that."));
 	}
+
+	@Test
+	public void testCancelled() throws Exception {
+		SubversionUpdateEventHandler handler = new SubversionUpdateEventHandler(new PrintStream(new ByteArrayOutputStream()),
+			new ArrayList<External>(), new File(""), "");
+		AtomicBoolean cancelled = new AtomicBoolean();
+		handler.setCancelled(cancelled);
+		handler.checkCancelled();
+
+		cancelled.set(true);
+		try {
+			handler.checkCancelled();
+			fail();
+		} catch (SVNCancelException e) {
+			// expected
+		}
+	}
 }
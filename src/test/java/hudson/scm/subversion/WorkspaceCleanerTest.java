@@ -0,0 +1,60 @@
+package hudson.scm.subversion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkspaceCleanerTest {
+
+    private File root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = File.createTempFile("cleaner", "root");
+        root.delete();
+        root.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(root);
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        File build = new File(root, "build");
+        for (int i = 0; i < 5; i++) {
+            File dir = new File(build, "d" + i + "/sub");
+            dir.mkdirs();
+            for (int j = 0; j < 10; j++) {
+                FileUtils.writeStringToFile(new File(dir, "f" + j), "x");
+            }
+        }
+        File file = new File(root, "unversioned.txt");
+        FileUtils.writeStringToFile(file, "x");
+        File kept = new File(root, "kept.txt");
+        FileUtils.writeStringToFile(kept, "x");
+
+        WorkspaceCleaner cleaner = new WorkspaceCleaner(3);
+        try {
+            cleaner.delete(build);
+            cleaner.delete(file);
+            cleaner.await();
+        } finally {
+            cleaner.shutdown();
+        }
+
+        assertFalse(build.exists());
+        assertFalse(file.exists());
+        assertTrue(kept.exists());
+        assertEquals(51, cleaner.getFileCount());
+        assertEquals(11, cleaner.getDirectoryCount());
+    }
+}
@@ -0,0 +1,64 @@
+package hudson.scm.subversion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkspaceTrashTest {
+
+    private File trash, ws;
+    private String oldDir;
+    private long oldMinFreeSpace;
+
+    @Before
+    public void setUp() throws Exception {
+        trash = File.createTempFile("trash", "dir");
+        trash.delete();
+        ws = File.createTempFile("trash", "ws");
+        ws.delete();
+        new File(ws, "module/sub").mkdirs();
+        FileUtils.writeStringToFile(new File(ws, "module/sub/file"), "x");
+        FileUtils.writeStringToFile(new File(ws, "top"), "x");
+        oldDir = WorkspaceTrash.DIR;
+        oldMinFreeSpace = WorkspaceTrash.MIN_FREE_SPACE;
+        WorkspaceTrash.DIR = trash.getPath();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        WorkspaceTrash.DIR = oldDir;
+        WorkspaceTrash.MIN_FREE_SPACE = oldMinFreeSpace;
+        FileUtils.deleteDirectory(trash);
+        FileUtils.deleteDirectory(ws);
+    }
+
+    @Test
+    public void testMoveAndReap() throws Exception {
+        // left by a previous run
+        new File(trash, "old/sub").mkdirs();
+
+        WorkspaceTrash.deleteContentsRecursive(ws);
+        assertTrue(ws.isDirectory());
+        assertEquals(0, ws.list().length);
+
+        for (int i = 0; i < 100 && trash.list().length > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, trash.list().length);
+    }
+
+    @Test
+    public void testLowDiskSpace() throws Exception {
+        WorkspaceTrash.MIN_FREE_SPACE = Long.MAX_VALUE / (1024 * 1024);
+        WorkspaceTrash.deleteContentsRecursive(ws);
+        assertEquals(0, ws.list().length);
+        assertFalse(new File(trash, "module").exists());
+    }
+}